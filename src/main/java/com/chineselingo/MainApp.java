@@ -4,6 +4,7 @@ import com.chineselingo.app.AppContext;
 import com.chineselingo.app.ApplicationService;
 import com.chineselingo.learning.ui.MainView;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.layout.VBox;
@@ -11,11 +12,13 @@ import javafx.stage.Stage;
 
 public class MainApp extends Application {
 
+    private AppContext context;
+
     @Override
     public void start(Stage stage) {
         Scene scene;
         try {
-            AppContext context = new AppContext();
+            context = new AppContext(Platform::runLater);
             ApplicationService appService = new ApplicationService(context);
             MainView mainView = new MainView(appService);
             scene = new Scene(mainView, 1200, 500);
@@ -31,4 +34,11 @@ public class MainApp extends Application {
         stage.setScene(scene);
         stage.show();
     }
+
+    @Override
+    public void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
 }
\ No newline at end of file
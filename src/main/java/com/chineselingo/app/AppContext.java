@@ -2,28 +2,101 @@ package com.chineselingo.app;
 
 import com.chineselingo.data.CharIdMapper;
 import com.chineselingo.data.DataManager;
-import com.chineselingo.data.StaticData;
-import com.chineselingo.graph.GraphManager;
 import com.chineselingo.recommendation.RecommendationEngine;
 import com.chineselingo.user.UserManager;
+import com.chineselingo.user.UserState;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
-public class AppContext {
+public class AppContext implements AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(AppContext.class);
+    private static final Duration RELOAD_DEBOUNCE = Duration.ofSeconds(2);
 
     private final UserManager userManager;
-    private final RecommendationEngine recommendationEngine;
-    private final StaticData staticData;
+    private final AtomicReference<LoadedData> data;
+    private final Executor publishExecutor;
+    private final List<Consumer<int[]>> idRemapListeners = new CopyOnWriteArrayList<>();
+    private final DataReloader reloader;
 
     public AppContext() throws IOException {
+        this(Runnable::run);
+    }
+
+    /**
+     * Creates the context and starts watching the data directory.
+     * @param publishExecutor executor on which reloaded data is swapped in, e.g. the UI thread,
+     *                        so that the swap and the user-state ID remapping never interleave with UI work
+     * @throws IOException if the initial data cannot be loaded
+     */
+    public AppContext(Executor publishExecutor) throws IOException {
         userManager = new UserManager();
         DataManager dataManager = new DataManager();
-        staticData = dataManager.loadData();
-        recommendationEngine = new RecommendationEngine(new GraphManager(staticData), RecommendationEngine.RecommendationMode.LENIENT);
+        data = new AtomicReference<>(LoadedData.of(dataManager.loadData()));
+        this.publishExecutor = publishExecutor;
+
+        reloader = new DataReloader(dataManager, this::publish, RELOAD_DEBOUNCE);
+        try {
+            reloader.start();
+        } catch (IOException e) {
+            logger.warn("Cannot watch data directory, hot reload disabled", e);
+        }
+    }
+
+    /**
+     * Swaps in a rebuilt data version. Operations that already hold the previous version
+     * finish on it; the previous version becomes unreachable once they complete.
+     */
+    private void publish(LoadedData fresh) {
+        publishExecutor.execute(() -> {
+            int[] translation = moveUserState(userManager.getUserState(), data.get(), fresh);
+            if (translation != null) {
+                idRemapListeners.forEach(listener -> listener.accept(translation));
+            }
+            data.set(fresh);
+            logger.info("Published reloaded data ({} characters)", fresh.getCharIdMapper().size());
+        });
+    }
+
+    /**
+     * Moves a user state from one data version to the next: character IDs are translated if they
+     * changed, and the per-user structures built on the previous version (recommendation
+     * frontiers, sentence bitmaps) are detached in every case, so they are rebuilt on the new
+     * version and the previous one is not kept alive by the user state.
+     *
+     * @return the ID translation applied, or null if both versions assign identical IDs
+     */
+    static int[] moveUserState(UserState userState, LoadedData previous, LoadedData fresh) {
+        int[] translation = previous.idTranslationTo(fresh);
+        if (translation != null) {
+            userState.remapIds(translation);
+        } else {
+            userState.clearKnownListeners();
+        }
+        return translation;
+    }
+
+    /**
+     * Registers a callback invoked when a reload changed character IDs.
+     * @param listener receives the old ID (index) to new ID table, -1 for removed characters
+     */
+    public void addIdRemapListener(Consumer<int[]> listener) {
+        idRemapListeners.add(listener);
+    }
+
+    /**
+     * @return the current data version
+     */
+    public LoadedData getData() {
+        return data.get();
     }
 
     public UserManager getUserManager() {
@@ -31,14 +104,19 @@ public class AppContext {
     }
 
     public RecommendationEngine getRecommendationEngine() {
-        return recommendationEngine;
+        return data.get().getRecommendationEngine();
     }
 
     public CharIdMapper getCharIdMapper() {
-        return staticData.getCharIdMapper();
+        return data.get().getCharIdMapper();
     }
 
     public Int2ObjectOpenHashMap<String> getDefinitions() {
-        return staticData.getDefinitions();
+        return data.get().getDefinitions();
+    }
+
+    @Override
+    public void close() {
+        reloader.close();
     }
-}
\ No newline at end of file
+}
@@ -13,10 +13,14 @@ public class ApplicationService {
     public ApplicationService(AppContext context) {
         this.appContext = context;
 
-        this.trainingService = new TrainingService(context.getUserManager().getUserState(), context.getRecommendationEngine(),
-                context.getCharIdMapper(), context.getDefinitions());
+        this.trainingService = new TrainingService(context.getUserManager().getUserState(), context::getData);
 
-        this.verifyingService = new VerifyingService(context.getUserManager().getUserState(), context.getCharIdMapper(), context.getDefinitions());
+        this.verifyingService = new VerifyingService(context.getUserManager().getUserState(), context::getData);
+
+        context.addIdRemapListener(oldToNew -> {
+            trainingService.remapIds(oldToNew);
+            verifyingService.remapIds(oldToNew);
+        });
     }
 
     public TrainingService training() {
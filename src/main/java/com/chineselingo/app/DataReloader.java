@@ -0,0 +1,136 @@
+package com.chineselingo.app;
+
+import com.chineselingo.data.DataManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches the data directory and rebuilds the data in the background when a source file changes.
+ *
+ * Change events are debounced so that a burst of writes (e.g. copying a new corpus) causes a
+ * single rebuild. Rebuilds run one at a time on a dedicated thread; the finished version is
+ * handed to the publisher, which swaps it in. The old version stays reachable only through
+ * callers that are still using it.
+ */
+public class DataReloader implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(DataReloader.class);
+
+    private final DataManager dataManager;
+    private final Consumer<LoadedData> publisher;
+    private final Duration debounce;
+    private final ScheduledExecutorService rebuildExecutor;
+    private WatchService watchService;
+    private ScheduledFuture<?> pendingRebuild;
+
+    /**
+     * @param dataManager loader used for rebuilds
+     * @param publisher receives each successfully rebuilt version
+     * @param debounce quiet period after the last change before rebuilding
+     */
+    public DataReloader(DataManager dataManager, Consumer<LoadedData> publisher, Duration debounce) {
+        this.dataManager = dataManager;
+        this.publisher = publisher;
+        this.debounce = debounce;
+        this.rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "data-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts watching the data directory.
+     * @throws IOException if the directory cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        Path directory = dataManager.getDataDirectory();
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+
+        WatchService service = watchService;
+        Thread watchThread = new Thread(() -> watch(service), "data-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        logger.info("Watching {} for data changes", directory);
+    }
+
+    /**
+     * Schedules a rebuild after the debounce period, replacing any rebuild not yet started.
+     */
+    public synchronized void requestReload() {
+        if (pendingRebuild != null) {
+            pendingRebuild.cancel(false);
+        }
+        pendingRebuild = rebuildExecutor.schedule(this::rebuild, debounce.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void watch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean sourceChanged = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        sourceChanged = true;
+                    } else if (event.context() instanceof Path changed) {
+                        sourceChanged |= DataManager.isSourceFileName(changed.getFileName().toString());
+                    }
+                }
+                if (sourceChanged) {
+                    requestReload();
+                }
+                if (!key.reset()) {
+                    logger.warn("Data directory is no longer accessible, stopped watching");
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+        try {
+            LoadedData fresh = LoadedData.of(dataManager.loadData());
+            logger.info("Rebuilt data in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            publisher.accept(fresh);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Data reload failed, keeping the current data", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        rebuildExecutor.shutdownNow();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.warn("Cannot close data watcher", e);
+            }
+            watchService = null;
+        }
+    }
+}
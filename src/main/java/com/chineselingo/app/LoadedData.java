@@ -0,0 +1,70 @@
+package com.chineselingo.app;
+
+import com.chineselingo.data.CharIdMapper;
+import com.chineselingo.data.StaticData;
+import com.chineselingo.graph.GraphManager;
+import com.chineselingo.recommendation.RecommendationEngine;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+/**
+ * One immutable version of the loaded data together with the engines built on it.
+ * Callers read a version once per operation so the operation sees a consistent dataset
+ * even if a newer version is published meanwhile.
+ */
+public final class LoadedData {
+    private final StaticData staticData;
+    private final RecommendationEngine recommendationEngine;
+
+    private LoadedData(StaticData staticData, RecommendationEngine recommendationEngine) {
+        this.staticData = staticData;
+        this.recommendationEngine = recommendationEngine;
+    }
+
+    /**
+     * Builds the engines for freshly loaded data.
+     * @param staticData the loaded data
+     * @return the bundled version
+     */
+    public static LoadedData of(StaticData staticData) {
+        return new LoadedData(staticData,
+                new RecommendationEngine(new GraphManager(staticData), RecommendationEngine.RecommendationMode.LENIENT));
+    }
+
+    public StaticData getStaticData() {
+        return staticData;
+    }
+
+    public RecommendationEngine getRecommendationEngine() {
+        return recommendationEngine;
+    }
+
+    public CharIdMapper getCharIdMapper() {
+        return staticData.getCharIdMapper();
+    }
+
+    public Int2ObjectOpenHashMap<String> getDefinitions() {
+        return staticData.getDefinitions();
+    }
+
+    public String getDefinition(int charId) {
+        return staticData.getDefinition(charId);
+    }
+
+    /**
+     * Builds the table translating this version's character IDs into another version's IDs.
+     * @param newer the version to translate into
+     * @return old ID (index) to new ID, -1 for characters missing from {@code newer};
+     *         null if both versions assign identical IDs
+     */
+    public int[] idTranslationTo(LoadedData newer) {
+        CharIdMapper oldMapper = getCharIdMapper();
+        CharIdMapper newMapper = newer.getCharIdMapper();
+        int[] translation = new int[oldMapper.size()];
+        boolean identity = true;
+        for (int oldId = 0; oldId < translation.length; oldId++) {
+            translation[oldId] = newMapper.findId(oldMapper.getCodePoint(oldId));
+            identity &= translation[oldId] == oldId;
+        }
+        return identity ? null : translation;
+    }
+}
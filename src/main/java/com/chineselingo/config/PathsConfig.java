@@ -12,4 +12,11 @@ public final class PathsConfig {
                 "user-state.json"
         );
     }
+
+    public static Path staticDataSnapshot() {
+        return Path.of(
+                System.getProperty("user.dir"),
+                "static-data.snapshot"
+        );
+    }
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+package com.chineselingo.data;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntList;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntList;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Lists of character IDs per character ID, in compressed sparse rows.
+ *
+ * Row {@code charId} holds the values [offsets[charId], offsets[charId + 1]) of one flat value
+ * array. Both arrays are {@link IntBuffer}s: heap arrays when built from parsed data, read-only
+ * views of the snapshot mapping when read back, so nothing is decoded on start.
+ *
+ * Rows are immutable; {@link #get(int)} returns an unmodifiable view of one row.
+ */
+public final class CharAdjacency {
+    private final IntBuffer offsets;
+    private final IntBuffer values;
+    private final int count;
+
+    private CharAdjacency(IntBuffer offsets, IntBuffer values, int count) {
+        this.offsets = offsets;
+        this.values = values;
+        this.count = count;
+    }
+
+    /**
+     * Copies lists into rows.
+     *
+     * @param lists lists per character ID, left unchanged
+     * @param size number of rows, above every key
+     * @param ranks the rank of each character ID to sort every row by ascending rank, or null to
+     *              keep the order of the lists
+     * @return the rows
+     */
+    static CharAdjacency of(Int2ObjectOpenHashMap<IntArrayList> lists, int size, int[] ranks) {
+        int[] offsets = new int[size + 1];
+        int count = 0;
+        for (Int2ObjectMap.Entry<IntArrayList> entry : lists.int2ObjectEntrySet()) {
+            offsets[entry.getIntKey() + 1] = entry.getValue().size();
+            if (!entry.getValue().isEmpty()) {
+                count++;
+            }
+        }
+        for (int charId = 0; charId < size; charId++) {
+            offsets[charId + 1] += offsets[charId];
+        }
+        int[] values = new int[offsets[size]];
+        for (Int2ObjectMap.Entry<IntArrayList> entry : lists.int2ObjectEntrySet()) {
+            int from = offsets[entry.getIntKey()];
+            IntArrayList list = entry.getValue();
+            list.getElements(0, values, from, list.size());
+            if (ranks != null) {
+                IntArrays.quickSort(values, from, from + list.size(), (a, b) -> Integer.compare(ranks[a], ranks[b]));
+            }
+        }
+        return new CharAdjacency(IntBuffer.wrap(offsets), IntBuffer.wrap(values), count);
+    }
+
+    /**
+     * @param charId the character ID
+     * @return a view of the character's list, or null if it has none
+     */
+    public IntList get(int charId) {
+        if (charId < 0 || charId >= offsets.limit() - 1) {
+            return null;
+        }
+        int from = offsets.get(charId);
+        int to = offsets.get(charId + 1);
+        return from == to ? null : new Row(values, from, to - from);
+    }
+
+    /**
+     * @return number of characters with a non-empty list
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Decodes every row into a new map.
+     *
+     * @return map of charId -> list, without empty lists
+     */
+    public Int2ObjectOpenHashMap<IntArrayList> toMap() {
+        Int2ObjectOpenHashMap<IntArrayList> map = new Int2ObjectOpenHashMap<>(count);
+        for (int charId = 0; charId < offsets.limit() - 1; charId++) {
+            IntList row = get(charId);
+            if (row != null) {
+                map.put(charId, new IntArrayList(row));
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Writes the rows. Format: non-empty row count, offset count (rows + 1), offsets, value count,
+     * values.
+     *
+     * @param out the output to write to
+     * @throws IOException if writing fails
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(count);
+        writeInts(out, offsets);
+        writeInts(out, values);
+    }
+
+    /**
+     * Reads rows written by {@link #writeTo(DataOutput)} as views of {@code buffer}, advancing the
+     * buffer past them. The buffer must stay unchanged while the rows are used.
+     *
+     * @param buffer the buffer positioned at the start of the rows
+     * @return the rows
+     */
+    static CharAdjacency readFrom(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        IntBuffer offsets = readInts(buffer);
+        IntBuffer values = readInts(buffer);
+        if (offsets.limit() == 0 || offsets.get(offsets.limit() - 1) != values.limit()) {
+            throw new IllegalArgumentException("Invalid adjacency offsets");
+        }
+        return new CharAdjacency(offsets, values, count);
+    }
+
+    /**
+     * Writes an int count followed by the ints.
+     */
+    static void writeInts(DataOutput out, IntBuffer ints) throws IOException {
+        out.writeInt(ints.limit());
+        for (int i = 0; i < ints.limit(); i++) {
+            out.writeInt(ints.get(i));
+        }
+    }
+
+    /**
+     * Reads ints written by {@link #writeInts} as a read-only view, advancing the buffer past them.
+     */
+    static IntBuffer readInts(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        IntBuffer ints = buffer.slice(buffer.position(), length * Integer.BYTES)
+                .order(buffer.order())
+                .asIntBuffer()
+                .asReadOnlyBuffer();
+        buffer.position(buffer.position() + length * Integer.BYTES);
+        return ints;
+    }
+
+    /**
+     * Unmodifiable view of one row.
+     */
+    private static final class Row extends AbstractIntList {
+        private final IntBuffer values;
+        private final int from;
+        private final int size;
+
+        Row(IntBuffer values, int from, int size) {
+            this.values = values;
+            this.from = from;
+            this.size = size;
+        }
+
+        @Override
+        public int getInt(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            return values.get(from + index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
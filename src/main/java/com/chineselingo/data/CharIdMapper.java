@@ -1,5 +1,7 @@
 package com.chineselingo.data;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -7,18 +9,34 @@ import java.util.concurrent.atomic.AtomicInteger;
 /**
  * Thread-safe mapper that assigns stable integer IDs to Chinese characters.
  * Used during the data loading phase to convert characters to IDs for efficient storage.
+ *
+ * Once loading is complete the mapper is {@link #freeze() frozen}: the hash maps are replaced by
+ * dense primitive tables, an id -> codepoint {@code int[]} and a two-level codepoint -> id page
+ * table covering all of Unicode (including CJK Extension B and beyond). Lookups on a frozen
+ * mapper neither lock nor allocate; no new characters can be added.
  */
 public class CharIdMapper {
-    private final ConcurrentHashMap<String, Integer> charToId = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<Integer, String> idToChar = new ConcurrentHashMap<>();
+    /** Codepoints per page of the frozen codepoint -> id table. */
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_COUNT = (Character.MAX_CODE_POINT >>> PAGE_BITS) + 1;
+
+    private ConcurrentHashMap<String, Integer> charToId = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<Integer, String> idToChar = new ConcurrentHashMap<>();
     private final AtomicInteger nextId = new AtomicInteger(0);
+    private volatile Frozen frozen;
 
     /**
      * Gets or creates an ID for the given character.
      * @param character the character (can be a single char or a String)
      * @return the stable integer ID for this character
+     * @throws IllegalStateException if the mapper is frozen and the character is not mapped
      */
     public int getId(String character) {
+        Frozen table = frozen;
+        if (table != null) {
+            return table.require(singleCodePoint(character), character);
+        }
         return charToId.computeIfAbsent(character, c -> {
             int id = nextId.getAndIncrement();
             idToChar.put(id, c);
@@ -26,21 +44,144 @@ public class CharIdMapper {
         });
     }
 
+    /**
+     * Gets or creates an ID for the character with the given codepoint.
+     * @param codePoint a Unicode codepoint
+     * @return the stable integer ID for this character
+     * @throws IllegalStateException if the mapper is frozen and the character is not mapped
+     */
+    public int getId(int codePoint) {
+        Frozen table = frozen;
+        if (table != null) {
+            return table.require(codePoint, null);
+        }
+        return getId(Character.toString(codePoint));
+    }
+
+    /**
+     * Looks up the ID of a character without assigning a new one.
+     * @param character the character
+     * @return the ID, or -1 if the character is not mapped
+     */
+    public int findId(String character) {
+        Frozen table = frozen;
+        if (table != null) {
+            return table.find(singleCodePoint(character));
+        }
+        Integer id = charToId.get(character);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Looks up the ID of a codepoint without assigning a new one.
+     * @param codePoint a Unicode codepoint
+     * @return the ID, or -1 if the character is not mapped
+     */
+    public int findId(int codePoint) {
+        Frozen table = frozen;
+        if (table != null) {
+            return table.find(codePoint);
+        }
+        return findId(Character.toString(codePoint));
+    }
+
     /**
      * Gets the character for a given ID.
      * @param id the character ID
      * @return the character string, or null if ID not found
      */
     public String getChar(int id) {
+        Frozen table = frozen;
+        if (table != null) {
+            return id >= 0 && id < table.codePoints.length ? Character.toString(table.codePoints[id]) : null;
+        }
         return idToChar.get(id);
     }
 
+    /**
+     * Gets the codepoint of the character with the given ID.
+     * @param id the character ID
+     * @return the codepoint, or -1 if the ID is not found or maps to more than one codepoint
+     */
+    public int getCodePoint(int id) {
+        Frozen table = frozen;
+        if (table != null) {
+            return id >= 0 && id < table.codePoints.length ? table.codePoints[id] : -1;
+        }
+        String character = idToChar.get(id);
+        return character == null ? -1 : singleCodePoint(character);
+    }
+
     /**
      * Returns the total number of unique characters mapped.
      * @return count of unique characters
      */
     public int size() {
-        return charToId.size();
+        Frozen table = frozen;
+        return table != null ? table.codePoints.length : charToId.size();
+    }
+
+    /**
+     * Replaces the hash maps with primitive lookup tables. Call once all characters are mapped;
+     * afterwards lookups are allocation-free and unknown characters can no longer be added.
+     * Freezing a frozen mapper has no effect. Must not run concurrently with other calls.
+     * @return this mapper
+     * @throws IllegalStateException if a mapped key is not exactly one codepoint
+     */
+    public synchronized CharIdMapper freeze() {
+        if (frozen != null) {
+            return this;
+        }
+        int[] codePoints = new int[nextId.get()];
+        for (int id = 0; id < codePoints.length; id++) {
+            String character = idToChar.get(id);
+            codePoints[id] = singleCodePoint(character);
+            if (codePoints[id] < 0) {
+                throw new IllegalStateException("Cannot freeze mapper: '" + character + "' is not a single codepoint");
+            }
+        }
+        frozen = Frozen.of(codePoints);
+        charToId = null;
+        idToChar = null;
+        return this;
+    }
+
+    /**
+     * Creates a frozen mapper directly from its id -> codepoint table.
+     * @param codePoints codepoint of each ID, without duplicates
+     * @return the frozen mapper
+     * @throws IllegalArgumentException if a codepoint is invalid or repeated
+     */
+    public static CharIdMapper frozen(int[] codePoints) {
+        CharIdMapper mapper = new CharIdMapper();
+        mapper.nextId.set(codePoints.length);
+        mapper.frozen = Frozen.of(codePoints.clone());
+        mapper.charToId = null;
+        mapper.idToChar = null;
+        return mapper;
+    }
+
+    /**
+     * @return true once {@link #freeze()} has been called
+     */
+    public boolean isFrozen() {
+        return frozen != null;
+    }
+
+    /**
+     * Merges every character of another mapper into this one, in the other mapper's ID order.
+     * Characters already present keep their ID; new ones are appended in that order, so merging
+     * per-source mappers in a fixed source order yields the same IDs as parsing serially.
+     *
+     * @param other mapper whose characters should be merged
+     * @return table translating IDs of {@code other} (array index) into IDs of this mapper
+     */
+    public int[] mergeFrom(CharIdMapper other) {
+        int[] translation = new int[other.size()];
+        for (int otherId = 0; otherId < translation.length; otherId++) {
+            translation[otherId] = getId(other.getChar(otherId));
+        }
+        return translation;
     }
 
     /**
@@ -48,7 +189,15 @@ public class CharIdMapper {
      * @return unmodifiable map of characters to IDs
      */
     public Map<String, Integer> getReadOnlyCharToIdMap() {
-        return Map.copyOf(charToId);
+        Frozen table = frozen;
+        if (table == null) {
+            return Map.copyOf(charToId);
+        }
+        Map<String, Integer> map = new HashMap<>(table.codePoints.length * 4 / 3 + 1);
+        for (int id = 0; id < table.codePoints.length; id++) {
+            map.put(Character.toString(table.codePoints[id]), id);
+        }
+        return Map.copyOf(map);
     }
 
     /**
@@ -56,6 +205,76 @@ public class CharIdMapper {
      * @return unmodifiable map of IDs to characters
      */
     public Map<Integer, String> getReadOnlyIdToCharMap() {
-        return Map.copyOf(idToChar);
+        Frozen table = frozen;
+        if (table == null) {
+            return Map.copyOf(idToChar);
+        }
+        Map<Integer, String> map = new HashMap<>(table.codePoints.length * 4 / 3 + 1);
+        for (int id = 0; id < table.codePoints.length; id++) {
+            map.put(id, Character.toString(table.codePoints[id]));
+        }
+        return Map.copyOf(map);
+    }
+
+    /**
+     * @return the codepoint if the string is exactly one codepoint, else -1
+     */
+    private static int singleCodePoint(String character) {
+        if (character == null || character.isEmpty()) {
+            return -1;
+        }
+        int codePoint = character.codePointAt(0);
+        return Character.charCount(codePoint) == character.length() ? codePoint : -1;
+    }
+
+    /**
+     * Primitive tables of a frozen mapper.
+     */
+    private static final class Frozen {
+        final int[] codePoints;
+        final int[][] pages;
+
+        Frozen(int[] codePoints, int[][] pages) {
+            this.codePoints = codePoints;
+            this.pages = pages;
+        }
+
+        static Frozen of(int[] codePoints) {
+            int[][] pages = new int[PAGE_COUNT][];
+            for (int id = 0; id < codePoints.length; id++) {
+                int codePoint = codePoints[id];
+                if (!Character.isValidCodePoint(codePoint)) {
+                    throw new IllegalArgumentException("Invalid codepoint " + codePoint + " for ID " + id);
+                }
+                int[] page = pages[codePoint >>> PAGE_BITS];
+                if (page == null) {
+                    page = new int[PAGE_SIZE];
+                    Arrays.fill(page, -1);
+                    pages[codePoint >>> PAGE_BITS] = page;
+                }
+                if (page[codePoint & (PAGE_SIZE - 1)] >= 0) {
+                    throw new IllegalArgumentException("Duplicate codepoint U+" + Integer.toHexString(codePoint));
+                }
+                page[codePoint & (PAGE_SIZE - 1)] = id;
+            }
+            return new Frozen(codePoints, pages);
+        }
+
+        int find(int codePoint) {
+            if (codePoint < 0 || codePoint > Character.MAX_CODE_POINT) {
+                return -1;
+            }
+            int[] page = pages[codePoint >>> PAGE_BITS];
+            return page == null ? -1 : page[codePoint & (PAGE_SIZE - 1)];
+        }
+
+        int require(int codePoint, String character) {
+            int id = find(codePoint);
+            if (id < 0) {
+                throw new IllegalStateException("Mapper is frozen, cannot add '"
+                        + (character != null ? character : Character.toString(codePoint)) + "'");
+            }
+            return id;
+        }
     }
 }
@@ -1,22 +1,45 @@
 package com.chineselingo.data;
 
+import com.chineselingo.config.PathsConfig;
 import com.chineselingo.parser.CEDICTParser;
 import com.chineselingo.parser.IDSParser;
 import com.chineselingo.parser.SUBTLEXParser;
+import com.chineselingo.parser.ThroughputCounter;
+import com.chineselingo.parser.Utf8Source;
 import com.chineselingo.sentence.InvertedIndex;
+import com.chineselingo.sentence.SentenceDeduplicator;
 import com.chineselingo.sentence.SentenceParser;
 import com.chineselingo.sentence.SentenceStore;
+import com.chineselingo.word.WordDictionary;
+import com.chineselingo.word.WordDictionaryBuilder;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2LongMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * Facade for data loading and parsing operations.
@@ -25,29 +48,94 @@ import java.time.Instant;
 public class DataManager {
     private static final Logger logger = LoggerFactory.getLogger(DataManager.class);
 
+    /** CEDICT, SUBTLEX and IDS are parsed in parallel. */
+    private static final int DICTIONARY_SOURCES = 3;
+
+    private static final String[] CEDICT_FILES = {"cedict_ts.u8", "cedict.txt", "cedict_1_0_ts_utf-8_mdbg.txt"};
+    private static final String[] SUBTLEX_FILES = {"subtlex.txt", "frequency.txt"};
+    private static final String[] IDS_FILES = {"ids.txt", "ids-ucs.txt"};
+    private static final String[] SENTENCE_FILES = {"sentences.tsv", "sentences.txt", "tatoeba.tsv"};
+
     private final Path dataDirectory;
+    private final Path snapshotFile;
+    private final LoadOptions options;
     private final CEDICTParser cedictParser;
     private final SUBTLEXParser subtlexParser;
     private final IDSParser idsParser;
     private final SentenceParser sentenceParser;
+    private volatile LoadReport lastLoadReport;
 
     /**
      * Creates a DataManager with the specified data directory.
+     * Always parses the source files; no snapshot is read or written.
      * @param dataDirectory path to directory containing data files
      */
     public DataManager(Path dataDirectory) {
+        this(dataDirectory, null);
+    }
+
+    /**
+     * Creates a DataManager that caches parsed data in a binary snapshot.
+     * @param dataDirectory path to directory containing data files
+     * @param snapshotFile snapshot file to read on start and write after parsing, or null to disable
+     */
+    public DataManager(Path dataDirectory, Path snapshotFile) {
+        this(dataDirectory, snapshotFile, LoadOptions.defaults());
+    }
+
+    /**
+     * Creates a DataManager with optional loading behaviours.
+     * @param dataDirectory path to directory containing data files
+     * @param snapshotFile snapshot file to read on start and write after parsing, or null to disable
+     * @param options loading options
+     */
+    public DataManager(Path dataDirectory, Path snapshotFile, LoadOptions options) {
         this.dataDirectory = dataDirectory;
+        this.snapshotFile = snapshotFile;
+        this.options = options;
         this.cedictParser = new CEDICTParser();
         this.subtlexParser = new SUBTLEXParser();
         this.idsParser = new IDSParser();
-        this.sentenceParser = new SentenceParser();
+        this.sentenceParser = new SentenceParser(ForkJoinPool.commonPool(), options.isSentencesByLength());
     }
 
     /**
-     * Creates a DataManager with default data directory "data/".
+     * Creates a DataManager with default data directory "data/" and the default snapshot file.
      */
     public DataManager() {
-        this(Paths.get("data"));
+        this(Paths.get("data"), PathsConfig.staticDataSnapshot());
+    }
+
+    /**
+     * @return the directory data files are loaded from
+     */
+    public Path getDataDirectory() {
+        return dataDirectory;
+    }
+
+    /**
+     * @return measurements of the most recent {@link #loadData()} call, or null before the first load
+     */
+    public LoadReport getLastLoadReport() {
+        return lastLoadReport;
+    }
+
+    /**
+     * Checks whether a file name is one of the source names {@link #loadData()} looks for,
+     * plain or compressed.
+     * @param fileName a file name without directory
+     * @return true if changing this file affects the loaded data
+     */
+    public static boolean isSourceFileName(String fileName) {
+        fileName = Utf8Source.uncompressedName(fileName);
+        for (String[] names : new String[][]{CEDICT_FILES, SUBTLEX_FILES, IDS_FILES, SENTENCE_FILES}) {
+            for (String name : names) {
+                if (name.equals(fileName)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /**
@@ -59,71 +147,340 @@ public class DataManager {
      * - ids.txt
      * - sentences.tsv (or sentences.txt) [optional]
      * 
+     * Each file may also be stored compressed as {@code <name>.gz} or {@code <name>.zip};
+     * a plain file takes precedence over a compressed one.
+     * 
+     * CEDICT, SUBTLEX and IDS are parsed concurrently, each into its own CharIdMapper.
+     * The per-source mappers are then merged in that fixed order, which assigns exactly the
+     * IDs a serial CEDICT -> SUBTLEX -> IDS parse would. Sentences are parsed last, once the
+     * shared mapper is complete and frozen into primitive lookup tables.
+     * 
+     * If a snapshot file is configured and matches the current sources, it is memory-mapped
+     * instead of parsing; otherwise a fresh snapshot is written after parsing.
+     * 
+     * With {@link LoadOptions#lazyDefinitions(boolean)} only definition locations are indexed
+     * and definitions are decoded from the mapped CEDICT file when requested. With
+     * {@link LoadOptions#deduplicateSentences(double)} near-duplicate sentences are dropped while
+     * parsing, and with {@link LoadOptions#orderSentencesByLength(boolean)} sentence IDs follow
+     * sentence length. Snapshots record both settings and are only reused with the same ones.
+     * 
+     * Each call records a {@link LoadReport}, available from {@link #getLastLoadReport()}.
+     * 
      * @return StaticData containing all parsed structures
      * @throws IOException if any file cannot be read or parsed
      */
     public StaticData loadData() throws IOException {
         logger.info("Loading data from directory: {}. Start: {}", dataDirectory, Instant.now().toString());
+        long loadStart = System.nanoTime();
+        List<LoadReport.Phase> report = new ArrayList<>();
 
         if (!Files.exists(dataDirectory) || !Files.isDirectory(dataDirectory)) {
             throw new IOException("Data directory does not exist: " + dataDirectory);
         }
 
-        // Initialize data structures
-        CharIdMapper charIdMapper = new CharIdMapper();
-        Int2ObjectOpenHashMap<String> definitions = new Int2ObjectOpenHashMap<>();
-        Int2IntOpenHashMap frequencies = new Int2IntOpenHashMap();
-        Int2ObjectOpenHashMap<IntArrayList> componentToCompounds = new Int2ObjectOpenHashMap<>();
-        Int2ObjectOpenHashMap<IntArrayList> compoundToComponents = new Int2ObjectOpenHashMap<>();
-
-        // Load CEDICT
-        Path cedictPath = findFile(dataDirectory, "cedict_ts.u8", "cedict.txt");
-        if (cedictPath != null) {
-            cedictParser.parse(cedictPath, charIdMapper, definitions);
-        } else {
+        Path cedictPath = findFile(dataDirectory, CEDICT_FILES);
+        if (cedictPath == null) {
             logger.warn("CEDICT file not found in {}", dataDirectory);
         }
-
-        // Load SUBTLEX
-        Path subtlexPath = findFile(dataDirectory, "subtlex.txt", "frequency.txt");
-        if (subtlexPath != null) {
-            subtlexParser.parse(subtlexPath, charIdMapper, frequencies);
-        } else {
+        Path subtlexPath = findFile(dataDirectory, SUBTLEX_FILES);
+        if (subtlexPath == null) {
             logger.warn("SUBTLEX file not found in {}", dataDirectory);
         }
-
-        // Load IDS
-        Path idsPath = findFile(dataDirectory, "ids.txt", "ids-ucs.txt");
-        if (idsPath != null) {
-            idsParser.parse(idsPath, charIdMapper, componentToCompounds, compoundToComponents);
-        } else {
+        Path idsPath = findFile(dataDirectory, IDS_FILES);
+        if (idsPath == null) {
             logger.warn("IDS file not found in {}", dataDirectory);
         }
+        Path sentencePath = findFile(dataDirectory, SENTENCE_FILES);
+
+        boolean compressedCedict = cedictPath != null && Utf8Source.isCompressed(cedictPath);
+        if (options.isLazyDefinitions() && compressedCedict) {
+            logger.info("CEDICT file {} is compressed, keeping definitions on the heap", cedictPath);
+        }
+        boolean lazyDefinitions = options.isLazyDefinitions() && !compressedCedict;
+
+        List<StaticDataSnapshot.SourceFingerprint> sources = null;
+        if (snapshotFile != null) {
+            PhaseProbe probe = PhaseProbe.thread();
+            sources = StaticDataSnapshot.fingerprint(cedictPath, subtlexPath, idsPath, sentencePath);
+            if (options.getSentenceSimilarity() > 0) {
+                sources.add(StaticDataSnapshot.SourceFingerprint.setting("sentenceBigramSimilarity",
+                        Double.doubleToLongBits(options.getSentenceSimilarity())));
+            }
+            if (options.isSentencesByLength()) {
+                sources.add(StaticDataSnapshot.SourceFingerprint.setting("sentencesByLength", 1));
+            }
+            StaticData cached = StaticDataSnapshot.read(snapshotFile, sources, options);
+            if (cached != null && !matchesDefinitionMode(cached, lazyDefinitions)) {
+                logger.info("Snapshot {} was built with a different definition mode, reparsing", snapshotFile);
+                cached = null;
+            }
+            if (cached != null) {
+                report.add(probe.finish(LoadReport.SNAPSHOT, Files.size(snapshotFile), 0, sizes(cached)));
+                publishReport(report, loadStart, true);
+                logger.info("Loaded data from snapshot {}. End:{}", snapshotFile, Instant.now().toString());
+                return cached;
+            }
+        }
+
+        // Phase 1: dictionary sources in parallel, each with a private mapper
+        CedictPhase cedict = new CedictPhase();
+        SubtlexPhase subtlex = new SubtlexPhase();
+        IdsPhase ids = new IdsPhase();
+
+        ExecutorService executor = Executors.newFixedThreadPool(DICTIONARY_SOURCES, loaderThreadFactory());
+        try {
+            List<Future<LoadReport.Phase>> phases = List.of(
+                    executor.submit(() -> measure(PhaseProbe.thread(), LoadReport.CEDICT, cedictParser.getThroughput(), () -> {
+                        if (cedictPath != null && lazyDefinitions) {
+                            cedictParser.parseLocations(cedictPath, cedict.mapper, cedict.locations, cedict.words);
+                        } else if (cedictPath != null) {
+                            cedictParser.parse(cedictPath, cedict.mapper, cedict.definitions, cedict.words);
+                        }
+                    }, () -> Map.of(
+                            "definitions", (long) (cedict.definitions.size() + cedict.locations.size()),
+                            "wordEntries", (long) cedict.words.size()))),
+                    executor.submit(() -> measure(PhaseProbe.thread(), LoadReport.SUBTLEX, subtlexParser.getThroughput(), () -> {
+                        if (subtlexPath != null) {
+                            subtlexParser.parse(subtlexPath, subtlex.mapper, subtlex.frequencies, subtlex.wordFrequencies);
+                        }
+                    }, () -> Map.of(
+                            "frequencies", (long) subtlex.frequencies.size(),
+                            "wordFrequencies", (long) subtlex.wordFrequencies.size()))),
+                    executor.submit(() -> measure(PhaseProbe.thread(), LoadReport.IDS, idsParser.getThroughput(), () -> {
+                        if (idsPath != null) {
+                            idsParser.parse(idsPath, ids.mapper, ids.componentToCompounds, ids.compoundToComponents);
+                        }
+                    }, () -> Map.of(
+                            "components", (long) ids.componentToCompounds.size(),
+                            "compounds", (long) ids.compoundToComponents.size()))));
+            for (Future<LoadReport.Phase> phase : phases) {
+                report.add(awaitPhase(phase));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
 
-        // Load sentences (optional)
-        SentenceStore sentenceStore = new SentenceStore();
+        // Merge in fixed source order so IDs do not depend on thread interleaving
+        PhaseProbe mergeProbe = PhaseProbe.thread();
+        CharIdMapper charIdMapper = new CharIdMapper();
+        int[] cedictTranslation = charIdMapper.mergeFrom(cedict.mapper);
+        Int2IntOpenHashMap frequencies = subtlex.merge(charIdMapper);
+        int[] idsTranslation = charIdMapper.mergeFrom(ids.mapper);
+        Int2ObjectOpenHashMap<IntArrayList> componentToCompounds = translate(ids.componentToCompounds, idsTranslation);
+        Int2ObjectOpenHashMap<IntArrayList> compoundToComponents = translate(ids.compoundToComponents, idsTranslation);
+        WordDictionary wordDictionary = cedict.words.build(charIdMapper, subtlex.wordFrequencies);
+        // All characters are known now; sentences and the app only look them up
+        charIdMapper.freeze();
+        report.add(mergeProbe.finish(LoadReport.MERGE, 0, 0, Map.of(
+                "characters", (long) charIdMapper.size(),
+                "words", (long) wordDictionary.size())));
+
+        // Phase 2: sentences (optional), which need the complete mapper
+        SentenceStore sentenceStore = options.isOffHeapSentences() ? SentenceStore.offHeap() : new SentenceStore();
         InvertedIndex sentenceIndex = new InvertedIndex();
-        
-        Path sentencePath = findFile(dataDirectory, "sentences.tsv", "sentences.txt", "tatoeba.tsv");
+        SentenceDeduplicator deduplicator = options.getSentenceSimilarity() > 0
+                ? new SentenceDeduplicator(options.getSentenceSimilarity())
+                : null;
         if (sentencePath != null) {
-            sentenceParser.parse(sentencePath, charIdMapper, sentenceStore, sentenceIndex);
+            // Sentence chunks run on the fork-join pool, so measure all threads
+            report.add(measure(PhaseProbe.process(), LoadReport.SENTENCES, sentenceParser.getThroughput(),
+                    () -> sentenceParser.parse(sentencePath, charIdMapper, sentenceStore, sentenceIndex, deduplicator),
+                    () -> {
+                        InvertedIndex.Stats indexStats = sentenceIndex.getStats();
+                        return Map.of(
+                                "sentences", (long) sentenceStore.size(),
+                                "sentenceTextBytes", (long) sentenceStore.textByteCount(),
+                                "indexedCharacters", (long) sentenceIndex.size(),
+                                "indexPostings", indexStats.getPostings(),
+                                "indexBytes", indexStats.getBytes(),
+                                "duplicatesRemoved", deduplicator == null ? 0L : (long) deduplicator.getRemoved());
+                    }));
         } else {
             logger.info("Sentence file not found in {} (optional)", dataDirectory);
         }
 
         logger.info("Data loading complete. Total unique characters: {}. End:{}", charIdMapper.size(), Instant.now().toString());
-        logger.info("  Definitions: {}", definitions.size());
+        // Ranked and copied into columns once here; the snapshot stores the result
+        StaticData data;
+        if (lazyDefinitions) {
+            MappedDefinitions definitions = cedictPath == null
+                    ? null
+                    : MappedDefinitions.open(cedictPath, cedict.locationTable(cedictTranslation, charIdMapper.size()),
+                            options.getDefinitionCacheSize());
+            data = definitions == null
+                    ? new StaticData(charIdMapper, new Int2ObjectOpenHashMap<>(), frequencies,
+                            componentToCompounds, compoundToComponents, sentenceStore, sentenceIndex)
+                    : new StaticData(charIdMapper, definitions, frequencies,
+                            componentToCompounds, compoundToComponents, sentenceStore, sentenceIndex);
+        } else {
+            data = new StaticData(charIdMapper, cedict.definitions(cedictTranslation), frequencies,
+                    componentToCompounds, compoundToComponents, sentenceStore, sentenceIndex);
+        }
+        data = data.withWordDictionary(wordDictionary);
+
+        logger.info("  Definitions: {}", data.getDefinitionCount());
         logger.info("  Frequencies: {}", frequencies.size());
         logger.info("  Component relationships: {}", componentToCompounds.size());
+        logger.info("  Words: {}", wordDictionary.size());
         logger.info("  Sentences: {}", sentenceStore.size());
 
-        return new StaticData(charIdMapper, definitions, frequencies, 
-                            componentToCompounds, compoundToComponents,
-                            sentenceStore, sentenceIndex);
+        if (snapshotFile != null) {
+            try {
+                StaticDataSnapshot.write(snapshotFile, data, sources);
+                logger.info("Wrote data snapshot {}", snapshotFile);
+            } catch (IOException e) {
+                logger.warn("Cannot write data snapshot {}", snapshotFile, e);
+            }
+        }
+
+        publishReport(report, loadStart, false);
+        return data;
+    }
+
+    private void publishReport(List<LoadReport.Phase> phases, long loadStart, boolean fromSnapshot) {
+        LoadReport report = new LoadReport(phases, System.nanoTime() - loadStart, fromSnapshot);
+        lastLoadReport = report;
+        logger.info("{}", report);
+    }
+
+    /**
+     * Runs one parsing step and reports it together with the input its parser consumed meanwhile.
+     */
+    private static LoadReport.Phase measure(PhaseProbe probe, String name, ThroughputCounter counter,
+                                            ParseStep step, Supplier<Map<String, Long>> sizes) throws IOException {
+        long bytesBefore = counter.getBytes();
+        long linesBefore = counter.getLines();
+        step.run();
+        return probe.finish(name, counter.getBytes() - bytesBefore, counter.getLines() - linesBefore, sizes.get());
+    }
+
+    private static Map<String, Long> sizes(StaticData data) {
+        return Map.of(
+                "characters", (long) data.getCharIdMapper().size(),
+                "definitions", (long) data.getDefinitionCount(),
+                "words", (long) data.getWordDictionary().size(),
+                "sentences", (long) data.getSentenceStore().size());
+    }
+
+    /**
+     * One parsing step of a phase.
+     */
+    @FunctionalInterface
+    private interface ParseStep {
+        void run() throws IOException;
+    }
+
+    /**
+     * Checks that snapshot data holds its definitions the way the options ask for.
+     * Data without any definitions fits either mode.
+     */
+    private static boolean matchesDefinitionMode(StaticData data, boolean lazyDefinitions) {
+        boolean lazy = data.getMappedDefinitions() != null;
+        return lazy == lazyDefinitions || data.getDefinitionCount() == 0;
+    }
+
+    /**
+     * Waits for a parsing phase and rethrows its failure as the original exception type.
+     */
+    private static <T> T awaitPhase(Future<T> phase) throws IOException {
+        try {
+            return phase.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading data");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Data loading failed", cause);
+        }
+    }
+
+    private static ThreadFactory loaderThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "data-loader-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Rewrites keys and list values of an adjacency map from source-local IDs to merged IDs.
+     * List order is preserved.
+     */
+    private static Int2ObjectOpenHashMap<IntArrayList> translate(Int2ObjectOpenHashMap<IntArrayList> local, int[] translation) {
+        Int2ObjectOpenHashMap<IntArrayList> result = new Int2ObjectOpenHashMap<>(local.size());
+        for (Int2ObjectMap.Entry<IntArrayList> entry : local.int2ObjectEntrySet()) {
+            IntArrayList values = entry.getValue();
+            for (int i = 0; i < values.size(); i++) {
+                values.set(i, translation[values.getInt(i)]);
+            }
+            result.put(translation[entry.getIntKey()], values);
+        }
+        return result;
+    }
+
+    /**
+     * CEDICT parsing state with its own mapper.
+     */
+    private static final class CedictPhase {
+        final CharIdMapper mapper = new CharIdMapper();
+        final Int2ObjectOpenHashMap<String> definitions = new Int2ObjectOpenHashMap<>();
+        final Int2LongOpenHashMap locations = new Int2LongOpenHashMap();
+        final WordDictionaryBuilder words = new WordDictionaryBuilder();
+
+        Int2ObjectOpenHashMap<String> definitions(int[] translation) {
+            Int2ObjectOpenHashMap<String> result = new Int2ObjectOpenHashMap<>(definitions.size());
+            for (Int2ObjectMap.Entry<String> entry : definitions.int2ObjectEntrySet()) {
+                result.put(translation[entry.getIntKey()], entry.getValue());
+            }
+            return result;
+        }
+
+        long[] locationTable(int[] translation, int size) {
+            long[] table = MappedDefinitions.emptyLocations(size);
+            for (Int2LongMap.Entry entry : locations.int2LongEntrySet()) {
+                table[translation[entry.getIntKey()]] = entry.getLongValue();
+            }
+            return table;
+        }
+    }
+
+    /**
+     * SUBTLEX parsing state with its own mapper.
+     */
+    private static final class SubtlexPhase {
+        final CharIdMapper mapper = new CharIdMapper();
+        final Int2IntOpenHashMap frequencies = new Int2IntOpenHashMap();
+        final Object2IntOpenHashMap<String> wordFrequencies = new Object2IntOpenHashMap<>();
+
+        Int2IntOpenHashMap merge(CharIdMapper target) {
+            int[] translation = target.mergeFrom(mapper);
+            Int2IntOpenHashMap result = new Int2IntOpenHashMap(frequencies.size());
+            for (Int2IntMap.Entry entry : frequencies.int2IntEntrySet()) {
+                result.put(translation[entry.getIntKey()], entry.getIntValue());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * IDS parsing state with its own mapper.
+     */
+    private static final class IdsPhase {
+        final CharIdMapper mapper = new CharIdMapper();
+        final Int2ObjectOpenHashMap<IntArrayList> componentToCompounds = new Int2ObjectOpenHashMap<>();
+        final Int2ObjectOpenHashMap<IntArrayList> compoundToComponents = new Int2ObjectOpenHashMap<>();
     }
 
     /**
      * Finds a file in the data directory, trying multiple possible names.
+     * Plain files are preferred; compressed variants of all names are tried afterwards.
      * @param directory the directory to search
      * @param names possible file names to try
      * @return Path to the first file found, or null if none exist
@@ -135,6 +492,14 @@ public class DataManager {
                 return path;
             }
         }
+        for (String name : names) {
+            for (String suffix : Utf8Source.COMPRESSED_SUFFIXES) {
+                Path path = directory.resolve(name + suffix);
+                if (Files.isRegularFile(path)) {
+                    return path;
+                }
+            }
+        }
         return null;
     }
 }
@@ -0,0 +1,104 @@
+package com.chineselingo.data;
+
+/**
+ * Optional behaviours of {@link DataManager#loadData()}.
+ * Defaults reproduce the plain parse-everything-onto-the-heap loading.
+ */
+public class LoadOptions {
+    private boolean lazyDefinitions;
+    private int definitionCacheSize = 1024;
+    private boolean offHeapSentences;
+    private double sentenceSimilarity;
+    private boolean sentencesByLength;
+
+    /**
+     * @return options with every optional behaviour disabled
+     */
+    public static LoadOptions defaults() {
+        return new LoadOptions();
+    }
+
+    /**
+     * Serves definitions on demand from the memory-mapped CEDICT file instead of keeping
+     * every definition as a heap String. Source files should then be replaced atomically
+     * (write + rename) rather than rewritten in place while the application runs.
+     * @param enabled whether definitions are loaded lazily
+     * @return this options object
+     */
+    public LoadOptions lazyDefinitions(boolean enabled) {
+        this.lazyDefinitions = enabled;
+        return this;
+    }
+
+    public boolean isLazyDefinitions() {
+        return lazyDefinitions;
+    }
+
+    /**
+     * @param size number of decoded definitions kept in the lazy-definition cache
+     * @return this options object
+     */
+    public LoadOptions definitionCacheSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.definitionCacheSize = size;
+        return this;
+    }
+
+    public int getDefinitionCacheSize() {
+        return definitionCacheSize;
+    }
+
+    /**
+     * Keeps the sentence store outside the Java heap: direct buffers while parsing, or the
+     * memory-mapped snapshot itself when loading from a snapshot.
+     * @param enabled whether sentences are stored off-heap
+     * @return this options object
+     */
+    public LoadOptions offHeapSentences(boolean enabled) {
+        this.offHeapSentences = enabled;
+        return this;
+    }
+
+    public boolean isOffHeapSentences() {
+        return offHeapSentences;
+    }
+
+    /**
+     * Drops near-duplicate sentences while parsing, keeping one sentence per cluster of sentences
+     * whose character bigrams have at least the given Jaccard similarity.
+     * @param similarity similarity from which sentences are duplicates, or 0 to keep all sentences
+     * @return this options object
+     * @see com.chineselingo.sentence.SentenceDeduplicator
+     */
+    public LoadOptions deduplicateSentences(double similarity) {
+        if (!(similarity >= 0.0 && similarity <= 1.0)) {
+            throw new IllegalArgumentException("Similarity must be between 0 and 1");
+        }
+        this.sentenceSimilarity = similarity;
+        return this;
+    }
+
+    /**
+     * @return similarity from which sentences are dropped as duplicates, 0 if disabled
+     */
+    public double getSentenceSimilarity() {
+        return sentenceSimilarity;
+    }
+
+    /**
+     * Assigns sentence IDs in ascending order of sentence length instead of file order, so
+     * sentence searches can stop at their first page of matches.
+     * @param enabled whether sentence IDs follow sentence length
+     * @return this options object
+     */
+    public LoadOptions orderSentencesByLength(boolean enabled) {
+        this.sentencesByLength = enabled;
+        return this;
+    }
+
+    public boolean isSentencesByLength() {
+        return sentencesByLength;
+    }
+}
@@ -0,0 +1,158 @@
+package com.chineselingo.data;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-phase measurements of one {@link DataManager#loadData()} call.
+ *
+ * CPU time and allocation are measured with the JVM's thread management bean and are -1 where
+ * the JVM does not support them. Dictionary phases run on their own loader thread and are
+ * measured for that thread only (a decompression thread is not included); the sentence phase
+ * runs alone and is measured across all threads, which includes its fork-join workers.
+ */
+public final class LoadReport {
+    public static final String CEDICT = "cedict";
+    public static final String SUBTLEX = "subtlex";
+    public static final String IDS = "ids";
+    public static final String MERGE = "merge";
+    public static final String SENTENCES = "sentences";
+    public static final String SNAPSHOT = "snapshot";
+
+    private final List<Phase> phases;
+    private final long wallNanos;
+    private final boolean fromSnapshot;
+
+    LoadReport(List<Phase> phases, long wallNanos, boolean fromSnapshot) {
+        this.phases = List.copyOf(phases);
+        this.wallNanos = wallNanos;
+        this.fromSnapshot = fromSnapshot;
+    }
+
+    /**
+     * @return phases in the order they were started
+     */
+    public List<Phase> getPhases() {
+        return phases;
+    }
+
+    /**
+     * @param name one of the phase name constants
+     * @return the phase, or null if it did not run
+     */
+    public Phase getPhase(String name) {
+        for (Phase phase : phases) {
+            if (phase.name.equals(name)) {
+                return phase;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return wall time of the whole load
+     */
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return true if the data came from a snapshot instead of the sources
+     */
+    public boolean isFromSnapshot() {
+        return fromSnapshot;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(String.format("Load report (%s, %d ms total)",
+                fromSnapshot ? "snapshot" : "parsed", TimeUnit.NANOSECONDS.toMillis(wallNanos)));
+        for (Phase phase : phases) {
+            text.append(System.lineSeparator()).append("  ").append(phase);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Measurements of one loading phase.
+     */
+    public static final class Phase {
+        private final String name;
+        private final long wallNanos;
+        private final long cpuNanos;
+        private final long allocatedBytes;
+        private final long bytesRead;
+        private final long lines;
+        private final Map<String, Long> sizes;
+
+        Phase(String name, long wallNanos, long cpuNanos, long allocatedBytes, long bytesRead, long lines,
+              Map<String, Long> sizes) {
+            this.name = name;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.bytesRead = bytesRead;
+            this.lines = lines;
+            this.sizes = Collections.unmodifiableMap(new TreeMap<>(sizes));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /**
+         * @return CPU time, or -1 if not measurable
+         */
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        /**
+         * @return bytes allocated on the heap, or -1 if not measurable
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * @return uncompressed input bytes parsed
+         */
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        public long getLines() {
+            return lines;
+        }
+
+        /**
+         * @return input lines per second of wall time, or 0 if nothing was read
+         */
+        public double getLinesPerSecond() {
+            return wallNanos == 0 ? 0.0 : lines / (wallNanos / 1_000_000_000.0);
+        }
+
+        /**
+         * @return sizes of the structures the phase produced by name, e.g. {@code definitions -> 120000}
+         */
+        public Map<String, Long> getSizes() {
+            return sizes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-9s wall=%dms cpu=%s alloc=%s read=%dKB lines=%d (%.0f/s) %s",
+                    name, TimeUnit.NANOSECONDS.toMillis(wallNanos),
+                    cpuNanos < 0 ? "n/a" : TimeUnit.NANOSECONDS.toMillis(cpuNanos) + "ms",
+                    allocatedBytes < 0 ? "n/a" : (allocatedBytes >> 10) + "KB",
+                    bytesRead >> 10, lines, getLinesPerSecond(), sizes);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.chineselingo.data;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Definitions decoded on demand from a memory-mapped CEDICT file.
+ *
+ * Only a dense charId -> (offset, length) table lives on the heap; the definition text stays in
+ * the OS page cache until requested. A small LRU cache keeps recently shown definitions decoded.
+ */
+public class MappedDefinitions {
+    private static final long ABSENT = -1L;
+
+    private final Path dictionaryFile;
+    private final ByteBuffer dictionary;
+    private final long[] locations;
+    private final int count;
+    private final Map<Integer, String> cache;
+
+    private MappedDefinitions(Path dictionaryFile, ByteBuffer dictionary, long[] locations, int cacheSize) {
+        this.dictionaryFile = dictionaryFile;
+        this.dictionary = dictionary;
+        this.locations = locations;
+        this.count = (int) Arrays.stream(locations).filter(location -> location != ABSENT).count();
+        this.cache = new LinkedHashMap<>(cacheSize * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Maps the dictionary file and wraps the location table.
+     * @param dictionaryFile the CEDICT file the locations refer to
+     * @param locations per character ID a value from {@link #location(int, int)}, or -1
+     * @param cacheSize number of decoded definitions to keep
+     * @return the definitions
+     * @throws IOException if the file cannot be mapped
+     */
+    public static MappedDefinitions open(Path dictionaryFile, long[] locations, int cacheSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(dictionaryFile, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Dictionary too large to map: " + dictionaryFile);
+            }
+            ByteBuffer dictionary = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedDefinitions(dictionaryFile, dictionary, locations, cacheSize);
+        }
+    }
+
+    /**
+     * Packs a byte range of the dictionary file into one table entry.
+     */
+    public static long location(int offset, int length) {
+        return ((long) offset << 32) | (length & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Creates an empty table with room for the given number of character IDs.
+     */
+    public static long[] emptyLocations(int size) {
+        long[] locations = new long[size];
+        Arrays.fill(locations, ABSENT);
+        return locations;
+    }
+
+    /**
+     * Gets the definition for a character ID, decoding it from the mapping on a cache miss.
+     * @param charId the character ID
+     * @return definition string, or null if not found
+     */
+    public String get(int charId) {
+        if (!contains(charId)) {
+            return null;
+        }
+        synchronized (cache) {
+            String cached = cache.get(charId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        String definition = decode(locations[charId]);
+        synchronized (cache) {
+            cache.put(charId, definition);
+        }
+        return definition;
+    }
+
+    /**
+     * @return true if the character ID has a definition
+     */
+    public boolean contains(int charId) {
+        return charId >= 0 && charId < locations.length && locations[charId] != ABSENT;
+    }
+
+    private String decode(long location) {
+        int offset = (int) (location >>> 32);
+        byte[] bytes = new byte[(int) location];
+        dictionary.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return number of characters with a definition
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Decodes every definition into a heap map. Intended for bulk export, not for lookups.
+     * @return a new map of charId -> definition
+     */
+    public Int2ObjectOpenHashMap<String> toMap() {
+        Int2ObjectOpenHashMap<String> map = new Int2ObjectOpenHashMap<>(count);
+        for (int charId = 0; charId < locations.length; charId++) {
+            if (locations[charId] != ABSENT) {
+                map.put(charId, decode(locations[charId]));
+            }
+        }
+        return map;
+    }
+
+    Path getDictionaryFile() {
+        return dictionaryFile;
+    }
+
+    long[] getLocations() {
+        return locations;
+    }
+}
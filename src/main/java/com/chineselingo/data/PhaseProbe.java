@@ -0,0 +1,88 @@
+package com.chineselingo.data;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+
+/**
+ * Captures wall time, CPU time and heap allocation at the start of a loading phase and turns
+ * the differences into a {@link LoadReport.Phase}.
+ *
+ * A thread probe measures the calling thread; a process probe sums over all live threads.
+ */
+final class PhaseProbe {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final boolean allThreads;
+    private final long startWall;
+    private final long startCpu;
+    private final long startAllocated;
+
+    private PhaseProbe(boolean allThreads) {
+        this.allThreads = allThreads;
+        this.startWall = System.nanoTime();
+        this.startCpu = cpuNanos(allThreads);
+        this.startAllocated = allocatedBytes(allThreads);
+    }
+
+    /**
+     * Starts measuring the calling thread.
+     */
+    static PhaseProbe thread() {
+        return new PhaseProbe(false);
+    }
+
+    /**
+     * Starts measuring all threads of the JVM.
+     */
+    static PhaseProbe process() {
+        return new PhaseProbe(true);
+    }
+
+    /**
+     * Ends the measurement. Must be called on the thread that started a thread probe.
+     */
+    LoadReport.Phase finish(String name, long bytesRead, long lines, Map<String, Long> sizes) {
+        long wall = System.nanoTime() - startWall;
+        long cpu = cpuNanos(allThreads);
+        long allocated = allocatedBytes(allThreads);
+        return new LoadReport.Phase(name, wall,
+                cpu < 0 || startCpu < 0 ? -1 : cpu - startCpu,
+                allocated < 0 || startAllocated < 0 ? -1 : allocated - startAllocated,
+                bytesRead, lines, sizes);
+    }
+
+    private static long cpuNanos(boolean allThreads) {
+        if (!THREADS.isThreadCpuTimeSupported() || !THREADS.isThreadCpuTimeEnabled()) {
+            return -1;
+        }
+        if (!allThreads) {
+            return THREADS.getCurrentThreadCpuTime();
+        }
+        long total = 0;
+        for (long threadId : THREADS.getAllThreadIds()) {
+            long cpu = THREADS.getThreadCpuTime(threadId);
+            if (cpu > 0) {
+                total += cpu;
+            }
+        }
+        return total;
+    }
+
+    private static long allocatedBytes(boolean allThreads) {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        if (!allThreads) {
+            return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (allocated > 0) {
+                total += allocated;
+            }
+        }
+        return total;
+    }
+}
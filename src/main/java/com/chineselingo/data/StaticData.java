@@ -2,68 +2,282 @@ package com.chineselingo.data;
 
 import com.chineselingo.sentence.InvertedIndex;
 import com.chineselingo.sentence.SentenceStore;
+import com.chineselingo.word.WordDictionary;
 import it.unimi.dsi.fastutil.ints.Int2IntMap;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntList;
+
+import java.nio.IntBuffer;
 
 /**
  * Immutable container for all parsed data structures.
- * Holds character definitions, frequencies, component relationships, and sentences.
+ * Holds character definitions, frequencies, component relationships, sentences and words.
+ *
+ * Every character has a frequency rank (0 for the most frequent, ties by ascending ID), and each
+ * component's compound list is sorted by that rank, so the most useful compounds come first.
+ * Frequencies and ranks are dense int columns indexed by character ID, and the component graph is
+ * held as {@link CharAdjacency} rows. The public constructors rank and copy parsed maps once;
+ * data read from a snapshot keeps all of these as views of the mapping.
  */
 public class StaticData {
     private final CharIdMapper charIdMapper;
     private final Int2ObjectOpenHashMap<String> definitions;
-    private final Int2IntOpenHashMap frequencies;
-    private final Int2ObjectOpenHashMap<IntArrayList> componentToCompounds;
-    private final Int2ObjectOpenHashMap<IntArrayList> compoundToComponents;
+    private final MappedDefinitions mappedDefinitions;
+    // Frequency of each character ID, its rank, and the character ID of each rank
+    private final IntBuffer frequencies;
+    private final IntBuffer ranks;
+    private final IntBuffer byRank;
+    private final CharAdjacency componentToCompounds;
+    private final CharAdjacency compoundToComponents;
     private final SentenceStore sentenceStore;
     private final InvertedIndex sentenceIndex;
+    private final WordDictionary wordDictionary;
+
+    public StaticData(
+            CharIdMapper charIdMapper,
+            Int2ObjectOpenHashMap<String> definitions,
+            Int2IntOpenHashMap frequencies,
+            Int2ObjectOpenHashMap<IntArrayList> componentToCompounds,
+            Int2ObjectOpenHashMap<IntArrayList> compoundToComponents,
+            SentenceStore sentenceStore,
+            InvertedIndex sentenceIndex) {
+        this(charIdMapper, definitions, null, frequencies, componentToCompounds, compoundToComponents,
+                sentenceStore, sentenceIndex);
+    }
 
+    /**
+     * Creates StaticData whose definitions are decoded on demand from the mapped dictionary.
+     */
     public StaticData(
+            CharIdMapper charIdMapper,
+            MappedDefinitions mappedDefinitions,
+            Int2IntOpenHashMap frequencies,
+            Int2ObjectOpenHashMap<IntArrayList> componentToCompounds,
+            Int2ObjectOpenHashMap<IntArrayList> compoundToComponents,
+            SentenceStore sentenceStore,
+            InvertedIndex sentenceIndex) {
+        this(charIdMapper, null, mappedDefinitions, frequencies, componentToCompounds, compoundToComponents,
+                sentenceStore, sentenceIndex);
+    }
+
+    /**
+     * Ranks the parsed data and copies it into columns and rows; the given maps are not modified.
+     */
+    private StaticData(
             CharIdMapper charIdMapper,
             Int2ObjectOpenHashMap<String> definitions,
+            MappedDefinitions mappedDefinitions,
             Int2IntOpenHashMap frequencies,
             Int2ObjectOpenHashMap<IntArrayList> componentToCompounds,
             Int2ObjectOpenHashMap<IntArrayList> compoundToComponents,
             SentenceStore sentenceStore,
             InvertedIndex sentenceIndex) {
+        int count = characterCount(charIdMapper, frequencies, componentToCompounds, compoundToComponents);
+        int[] frequencyOf = new int[count];
+        for (Int2IntMap.Entry entry : frequencies.int2IntEntrySet()) {
+            frequencyOf[entry.getIntKey()] = entry.getIntValue();
+        }
+        int[] charByRank = rankByFrequency(frequencyOf);
+        int[] rankOf = new int[count];
+        for (int rank = 0; rank < count; rank++) {
+            rankOf[charByRank[rank]] = rank;
+        }
+
+        this.charIdMapper = charIdMapper;
+        this.definitions = definitions;
+        this.mappedDefinitions = mappedDefinitions;
+        this.frequencies = IntBuffer.wrap(frequencyOf);
+        this.ranks = IntBuffer.wrap(rankOf);
+        this.byRank = IntBuffer.wrap(charByRank);
+        this.componentToCompounds = CharAdjacency.of(componentToCompounds, count, rankOf);
+        this.compoundToComponents = CharAdjacency.of(compoundToComponents, count, null);
+        this.sentenceStore = sentenceStore;
+        this.sentenceIndex = sentenceIndex;
+        this.wordDictionary = WordDictionary.EMPTY;
+    }
+
+    /**
+     * Creates StaticData from already ranked columns, as read from a snapshot.
+     *
+     * @param frequencies frequency per character ID
+     * @param ranks rank per character ID
+     * @param byRank character ID per rank
+     * @param componentToCompounds compound rows sorted by rank
+     */
+    StaticData(
+            CharIdMapper charIdMapper,
+            Int2ObjectOpenHashMap<String> definitions,
+            MappedDefinitions mappedDefinitions,
+            IntBuffer frequencies,
+            IntBuffer ranks,
+            IntBuffer byRank,
+            CharAdjacency componentToCompounds,
+            CharAdjacency compoundToComponents,
+            SentenceStore sentenceStore,
+            InvertedIndex sentenceIndex,
+            WordDictionary wordDictionary) {
+        if (ranks.limit() != frequencies.limit() || byRank.limit() != frequencies.limit()) {
+            throw new IllegalArgumentException("Frequency and rank columns differ in length");
+        }
         this.charIdMapper = charIdMapper;
         this.definitions = definitions;
+        this.mappedDefinitions = mappedDefinitions;
         this.frequencies = frequencies;
+        this.ranks = ranks;
+        this.byRank = byRank;
         this.componentToCompounds = componentToCompounds;
         this.compoundToComponents = compoundToComponents;
         this.sentenceStore = sentenceStore;
         this.sentenceIndex = sentenceIndex;
+        this.wordDictionary = wordDictionary;
+    }
+
+    /**
+     * @return one more than the highest character ID of the mapper, the frequencies and the
+     *         component graph
+     */
+    private static int characterCount(CharIdMapper charIdMapper, Int2IntOpenHashMap frequencies,
+                                      Int2ObjectOpenHashMap<IntArrayList> componentToCompounds,
+                                      Int2ObjectOpenHashMap<IntArrayList> compoundToComponents) {
+        int count = charIdMapper.size();
+        for (int charId : frequencies.keySet()) {
+            count = Math.max(count, charId + 1);
+        }
+        for (Int2ObjectMap.Entry<IntArrayList> entry : compoundToComponents.int2ObjectEntrySet()) {
+            count = Math.max(count, entry.getIntKey() + 1);
+            for (int component : entry.getValue()) {
+                count = Math.max(count, component + 1);
+            }
+        }
+        for (Int2ObjectMap.Entry<IntArrayList> entry : componentToCompounds.int2ObjectEntrySet()) {
+            count = Math.max(count, entry.getIntKey() + 1);
+            for (int compound : entry.getValue()) {
+                count = Math.max(count, compound + 1);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Orders every character ID by descending frequency, then ascending ID.
+     *
+     * @param frequencyOf frequency per character ID
+     * @return character IDs by rank
+     */
+    private static int[] rankByFrequency(int[] frequencyOf) {
+        int[] byRank = new int[frequencyOf.length];
+        for (int charId = 0; charId < byRank.length; charId++) {
+            byRank[charId] = charId;
+        }
+        IntArrays.quickSort(byRank, (a, b) -> {
+            int byFrequency = Integer.compare(frequencyOf[b], frequencyOf[a]);
+            return byFrequency != 0 ? byFrequency : Integer.compare(a, b);
+        });
+        return byRank;
+    }
+
+    /**
+     * Returns a copy of this data with the given word dictionary.
+     * @param wordDictionary the words
+     * @return new StaticData sharing all other structures
+     */
+    public StaticData withWordDictionary(WordDictionary wordDictionary) {
+        return new StaticData(charIdMapper, definitions, mappedDefinitions, frequencies, ranks, byRank,
+                componentToCompounds, compoundToComponents, sentenceStore, sentenceIndex, wordDictionary);
     }
 
     public CharIdMapper getCharIdMapper() {
         return charIdMapper;
     }
 
+    /**
+     * Gets all definitions as a map.
+     * With lazily loaded definitions this decodes every entry into a new map;
+     * use {@link #getDefinition(int)} for lookups.
+     * @return map of charId -> definition
+     */
     public Int2ObjectOpenHashMap<String> getDefinitions() {
-        return definitions;
+        return definitions != null ? definitions : mappedDefinitions.toMap();
+    }
+
+    /**
+     * @return number of characters with a definition
+     */
+    public int getDefinitionCount() {
+        return definitions != null ? definitions.size() : mappedDefinitions.size();
     }
 
+    /**
+     * @return the lazily decoded definitions, or null if definitions are held on the heap
+     */
+    public MappedDefinitions getMappedDefinitions() {
+        return mappedDefinitions;
+    }
+
+    /**
+     * Gets all non-zero frequencies as a map.
+     * This decodes every entry into a new map; use {@link #getFrequency(int)} for lookups.
+     * @return map of charId -> frequency
+     */
     public Int2IntOpenHashMap getFrequencies() {
-        return frequencies;
+        Int2IntOpenHashMap map = new Int2IntOpenHashMap();
+        for (int charId = 0; charId < frequencies.limit(); charId++) {
+            if (frequencies.get(charId) != 0) {
+                map.put(charId, frequencies.get(charId));
+            }
+        }
+        return map;
     }
 
+    /**
+     * Gets all component relationships as a map.
+     * This decodes every row into a new map; use {@link #getCompoundsContaining(int)} for lookups.
+     * @return map of component ID -> compound IDs by ascending frequency rank
+     */
     public Int2ObjectOpenHashMap<IntArrayList> getComponentToCompounds() {
-        return componentToCompounds;
+        return componentToCompounds.toMap();
     }
 
+    /**
+     * Gets all compound decompositions as a map.
+     * This decodes every row into a new map; use {@link #getComponents(int)} for lookups.
+     * @return map of compound ID -> component IDs
+     */
     public Int2ObjectOpenHashMap<IntArrayList> getCompoundToComponents() {
+        return compoundToComponents.toMap();
+    }
+
+    CharAdjacency compoundRows() {
+        return componentToCompounds;
+    }
+
+    CharAdjacency componentRows() {
         return compoundToComponents;
     }
 
+    IntBuffer frequencyColumn() {
+        return frequencies;
+    }
+
+    IntBuffer rankColumn() {
+        return ranks;
+    }
+
+    IntBuffer byRankColumn() {
+        return byRank;
+    }
+
     /**
      * Gets the definition for a character ID.
      * @param charId the character ID
      * @return definition string, or null if not found
      */
     public String getDefinition(int charId) {
-        return definitions.get(charId);
+        return definitions != null ? definitions.get(charId) : mappedDefinitions.get(charId);
     }
 
     /**
@@ -72,36 +286,56 @@ public class StaticData {
      * @return frequency count, or 0 if not found
      */
     public int getFrequency(int charId) {
-        return frequencies.get(charId);
+        return charId >= 0 && charId < frequencies.limit() ? frequencies.get(charId) : 0;
     }
 
+    /**
+     * @return the most frequent character ID (the lowest ID among equally frequent ones), or -1
+     *         if there are no characters
+     */
     public int getMostFrequent() {
-        int maxKey = 0;
-        int maxValue = Integer.MIN_VALUE;
+        return byRank.limit() == 0 ? -1 : byRank.get(0);
+    }
 
-        for (Int2IntMap.Entry entry : frequencies.int2IntEntrySet()) {
-            if (entry.getIntValue() > maxValue) {
-                maxValue = entry.getIntValue();
-                maxKey = entry.getIntKey();
-            }
-        }
-        return maxKey;
+    /**
+     * @param charId the character ID
+     * @return position of the character by descending frequency (0 for the most frequent), or -1
+     *         if the ID is unknown
+     */
+    public int getFrequencyRank(int charId) {
+        return charId >= 0 && charId < ranks.limit() ? ranks.get(charId) : -1;
     }
+
+    /**
+     * @param rank a frequency rank, below {@link #getRankedCount()}
+     * @return the character ID with that rank
+     */
+    public int getCharByRank(int rank) {
+        return byRank.get(rank);
+    }
+
+    /**
+     * @return number of ranked characters
+     */
+    public int getRankedCount() {
+        return byRank.limit();
+    }
+
     /**
      * Gets the list of compound character IDs that contain the given component.
      * @param componentId the component character ID
-     * @return list of compound IDs, or null if not found
+     * @return unmodifiable list of compound IDs by ascending frequency rank, or null if not found
      */
-    public IntArrayList getCompoundsContaining(int componentId) {
+    public IntList getCompoundsContaining(int componentId) {
         return componentToCompounds.get(componentId);
     }
 
     /**
      * Gets the list of component character IDs for a given compound.
      * @param compoundId the compound character ID
-     * @return list of component IDs, or null if not found
+     * @return unmodifiable list of component IDs, or null if not found
      */
-    public IntArrayList getComponents(int compoundId) {
+    public IntList getComponents(int compoundId) {
         return compoundToComponents.get(compoundId);
     }
 
@@ -120,4 +354,12 @@ public class StaticData {
     public InvertedIndex getSentenceIndex() {
         return sentenceIndex;
     }
+
+    /**
+     * Gets the dictionary of multi-character words.
+     * @return the word dictionary, empty if no words were loaded
+     */
+    public WordDictionary getWordDictionary() {
+        return wordDictionary;
+    }
 }
@@ -0,0 +1,367 @@
+package com.chineselingo.data;
+
+import com.chineselingo.sentence.InvertedIndex;
+import com.chineselingo.sentence.SentenceStore;
+import com.chineselingo.word.WordDictionary;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Compiled binary snapshot of {@link StaticData}.
+ *
+ * A snapshot is written after a successful parse and memory-mapped on the next start, which
+ * skips text parsing entirely. Each snapshot records a fingerprint (name, size, mtime and
+ * CRC32C) of every source file it was built from; a snapshot whose fingerprints do not match
+ * the current sources is treated as stale and ignored. Sources are only hashed when their size
+ * matches the recorded one but their mtime does not, so an unchanged tree starts without reading
+ * the sources at all.
+ *
+ * Layout (big-endian, as written by {@link DataOutputStream}):
+ * header, source fingerprints, character table, definitions, frequency, rank and by-rank columns,
+ * component-to-compounds rows (sorted by rank), compound-to-components rows, sentence store,
+ * inverted index, words.
+ *
+ * The columns, rows, sentence index and (off-heap) sentence store are served as views of the
+ * mapping. Only the character table and the definitions are decoded onto the heap: the mapper
+ * needs its code point lookup table, and definitions are either text or, for lazily loaded
+ * definitions, the dictionary path plus definition locations; the fingerprints guarantee those
+ * locations are still valid.
+ */
+public final class StaticDataSnapshot {
+    private static final Logger logger = LoggerFactory.getLogger(StaticDataSnapshot.class);
+
+    private static final int MAGIC = 0x434C5344; // "CLSD"
+    private static final int VERSION = 9;
+
+    private static final byte DEFINITIONS_TEXT = 0;
+    private static final byte DEFINITIONS_MAPPED = 1;
+
+    private StaticDataSnapshot() {
+    }
+
+    /**
+     * Computes the fingerprints of the given source files.
+     *
+     * @param sources source files, {@code null} entries mark sources that were not found
+     * @return fingerprints in the same order as {@code sources}
+     * @throws IOException if a source file cannot be read
+     */
+    public static List<SourceFingerprint> fingerprint(Path... sources) throws IOException {
+        List<SourceFingerprint> result = new ArrayList<>(sources.length);
+        for (Path source : sources) {
+            result.add(source == null ? SourceFingerprint.ABSENT : SourceFingerprint.of(source));
+        }
+        return result;
+    }
+
+    /**
+     * Writes a snapshot atomically (temp file + move).
+     *
+     * @param file target snapshot file
+     * @param data parsed data to store
+     * @param sources fingerprints of the sources {@code data} was parsed from
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(Path file, StaticData data, List<SourceFingerprint> sources) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+
+                out.writeInt(sources.size());
+                for (SourceFingerprint source : sources) {
+                    writeString(out, source.name);
+                    out.writeLong(source.size);
+                    out.writeLong(source.lastModified);
+                    out.writeLong(source.checksum());
+                }
+
+                CharIdMapper mapper = data.getCharIdMapper();
+                out.writeInt(mapper.size());
+                for (int id = 0; id < mapper.size(); id++) {
+                    out.writeInt(mapper.getCodePoint(id));
+                }
+
+                writeDefinitions(out, data);
+
+                CharAdjacency.writeInts(out, data.frequencyColumn());
+                CharAdjacency.writeInts(out, data.rankColumn());
+                CharAdjacency.writeInts(out, data.byRankColumn());
+                data.compoundRows().writeTo(out);
+                data.componentRows().writeTo(out);
+
+                data.getSentenceStore().writeTo(out);
+                data.getSentenceIndex().writeTo(out);
+                data.getWordDictionary().writeTo(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Memory-maps a snapshot and decodes it if it matches the given sources.
+     *
+     * @param file snapshot file
+     * @param sources fingerprints of the current source files
+     * @return the stored data, or null if the snapshot is missing, stale or unreadable
+     */
+    public static StaticData read(Path file, List<SourceFingerprint> sources) {
+        return read(file, sources, LoadOptions.defaults().getDefinitionCacheSize());
+    }
+
+    /**
+     * Memory-maps a snapshot and decodes it if it matches the given sources.
+     *
+     * @param file snapshot file
+     * @param sources fingerprints of the current source files
+     * @param definitionCacheSize cache size for lazily loaded definitions
+     * @return the stored data, or null if the snapshot is missing, stale or unreadable
+     */
+    public static StaticData read(Path file, List<SourceFingerprint> sources, int definitionCacheSize) {
+        return read(file, sources, LoadOptions.defaults().definitionCacheSize(definitionCacheSize));
+    }
+
+    /**
+     * Memory-maps a snapshot and decodes it if it matches the given sources.
+     * With off-heap sentences the sentence store keeps reading from the mapping.
+     *
+     * @param file snapshot file
+     * @param sources fingerprints of the current source files
+     * @param options definition cache size and sentence storage
+     * @return the stored data, or null if the snapshot is missing, stale or unreadable
+     */
+    public static StaticData read(Path file, List<SourceFingerprint> sources, LoadOptions options) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                logger.info("Snapshot {} has an unsupported format, ignoring it", file);
+                return null;
+            }
+
+            int sourceCount = buffer.getInt();
+            List<SourceFingerprint> stored = new ArrayList<>(sourceCount);
+            for (int i = 0; i < sourceCount; i++) {
+                stored.add(new SourceFingerprint(readString(buffer), buffer.getLong(), buffer.getLong(), buffer.getLong()));
+            }
+            if (!matches(stored, sources)) {
+                logger.info("Snapshot {} is stale, source files changed", file);
+                return null;
+            }
+
+            int charCount = buffer.getInt();
+            int[] codePoints = new int[charCount];
+            buffer.asIntBuffer().get(codePoints);
+            buffer.position(buffer.position() + charCount * Integer.BYTES);
+            CharIdMapper mapper = CharIdMapper.frozen(codePoints);
+
+            Int2ObjectOpenHashMap<String> definitions = null;
+            MappedDefinitions mappedDefinitions = null;
+            byte definitionMode = buffer.get();
+            if (definitionMode == DEFINITIONS_TEXT) {
+                int definitionCount = buffer.getInt();
+                definitions = new Int2ObjectOpenHashMap<>(definitionCount);
+                for (int i = 0; i < definitionCount; i++) {
+                    int charId = buffer.getInt();
+                    definitions.put(charId, readString(buffer));
+                }
+            } else if (definitionMode == DEFINITIONS_MAPPED) {
+                Path dictionary = Path.of(readString(buffer));
+                long[] locations = MappedDefinitions.emptyLocations(charCount);
+                int definitionCount = buffer.getInt();
+                for (int i = 0; i < definitionCount; i++) {
+                    int charId = buffer.getInt();
+                    locations[charId] = buffer.getLong();
+                }
+                mappedDefinitions = MappedDefinitions.open(dictionary, locations, options.getDefinitionCacheSize());
+            } else {
+                throw new IllegalArgumentException("Unknown definition mode " + definitionMode);
+            }
+
+            IntBuffer frequencies = CharAdjacency.readInts(buffer);
+            IntBuffer ranks = CharAdjacency.readInts(buffer);
+            IntBuffer byRank = CharAdjacency.readInts(buffer);
+            CharAdjacency componentToCompounds = CharAdjacency.readFrom(buffer);
+            CharAdjacency compoundToComponents = CharAdjacency.readFrom(buffer);
+
+            SentenceStore sentenceStore = SentenceStore.readFrom(buffer, options.isOffHeapSentences());
+            InvertedIndex sentenceIndex = InvertedIndex.readFrom(buffer);
+            WordDictionary wordDictionary = WordDictionary.readFrom(buffer);
+
+            return new StaticData(mapper, definitions, mappedDefinitions, frequencies, ranks, byRank,
+                    componentToCompounds, compoundToComponents, sentenceStore, sentenceIndex, wordDictionary);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            logger.warn("Cannot read snapshot {}, falling back to parsing", file, e);
+            return null;
+        }
+    }
+
+    private static void writeDefinitions(DataOutputStream out, StaticData data) throws IOException {
+        MappedDefinitions mapped = data.getMappedDefinitions();
+        if (mapped == null) {
+            out.writeByte(DEFINITIONS_TEXT);
+            out.writeInt(data.getDefinitions().size());
+            for (Int2ObjectMap.Entry<String> entry : data.getDefinitions().int2ObjectEntrySet()) {
+                out.writeInt(entry.getIntKey());
+                writeString(out, entry.getValue());
+            }
+            return;
+        }
+        out.writeByte(DEFINITIONS_MAPPED);
+        writeString(out, mapped.getDictionaryFile().toAbsolutePath().toString());
+        long[] locations = mapped.getLocations();
+        out.writeInt(mapped.size());
+        for (int charId = 0; charId < locations.length; charId++) {
+            if (mapped.contains(charId)) {
+                out.writeInt(charId);
+                out.writeLong(locations[charId]);
+            }
+        }
+    }
+
+    /**
+     * Compares the recorded fingerprints with the current ones, hashing a current source only when
+     * its size matches but its mtime does not.
+     */
+    private static boolean matches(List<SourceFingerprint> stored, List<SourceFingerprint> current)
+            throws IOException {
+        if (stored.size() != current.size()) {
+            return false;
+        }
+        for (int i = 0; i < stored.size(); i++) {
+            if (!current.get(i).matches(stored.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Identity of one source file: name, size, modification time and content checksum.
+     *
+     * The checksum of a current source file is computed on first use, either when a snapshot is
+     * written or when {@link #matches} cannot decide from size and mtime alone.
+     */
+    public static final class SourceFingerprint {
+        static final SourceFingerprint ABSENT = new SourceFingerprint("", -1, -1, 0);
+
+        final String name;
+        final long size;
+        final long lastModified;
+        // Source file still to be hashed, or null once the checksum is known
+        private Path file;
+        private long checksum;
+
+        SourceFingerprint(String name, long size, long lastModified, long checksum) {
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.checksum = checksum;
+        }
+
+        private SourceFingerprint(Path file, long size, long lastModified) {
+            this(file.getFileName().toString(), size, lastModified, 0);
+            this.file = file;
+        }
+
+        /**
+         * Fingerprints a load setting that changes the stored data, so that a snapshot built with
+         * a different value is stale.
+         *
+         * @param name name of the setting
+         * @param value value of the setting
+         * @return the fingerprint
+         */
+        public static SourceFingerprint setting(String name, long value) {
+            return new SourceFingerprint(name, -1, -1, value);
+        }
+
+        static SourceFingerprint of(Path file) throws IOException {
+            return new SourceFingerprint(file, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+        }
+
+        /**
+         * @return the CRC32C of the source file, computed on first use
+         * @throws IOException if the file cannot be read, or changed since it was fingerprinted
+         */
+        long checksum() throws IOException {
+            if (file == null) {
+                return checksum;
+            }
+            CRC32C crc = new CRC32C();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+                    long length = Math.min(Integer.MAX_VALUE, size - position);
+                    crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+                }
+                if (channel.size() != size || Files.getLastModifiedTime(file).toMillis() != lastModified) {
+                    throw new IOException("Source " + file + " changed after it was fingerprinted");
+                }
+            }
+            checksum = crc.getValue();
+            file = null;
+            return checksum;
+        }
+
+        /**
+         * Checks this current fingerprint against a recorded one. A source with the recorded size
+         * and mtime is taken as unchanged without reading it; one with the recorded size but
+         * another mtime is hashed, so merely touched files still match.
+         *
+         * @param recorded the fingerprint stored in a snapshot
+         * @return true if the source is unchanged
+         * @throws IOException if the source has to be hashed and cannot be read
+         */
+        boolean matches(SourceFingerprint recorded) throws IOException {
+            if (!name.equals(recorded.name) || size != recorded.size) {
+                return false;
+            }
+            if (file != null && lastModified == recorded.lastModified) {
+                return true;
+            }
+            return checksum() == recorded.checksum;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.chineselingo.graph;
 
 import com.chineselingo.data.StaticData;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
 
 /**
  * Manages the structural graph of Chinese character components.
@@ -26,15 +27,15 @@ public class GraphManager {
      * Returns a defensive copy to ensure immutability.
      * 
      * @param componentId the component character ID
-     * @return defensive copy of compound IDs list, or null if component not found
+     * @return defensive copy of compound IDs list, most frequent first, or null if component not found
      */
     public IntArrayList getCompoundsForComponent(int componentId) {
-        IntArrayList compounds = staticData.getCompoundsContaining(componentId);
+        IntList compounds = staticData.getCompoundsContaining(componentId);
         if (compounds == null) {
             return null;
         }
         // Return defensive copy
-        return compounds.clone();
+        return new IntArrayList(compounds);
     }
 
     /**
@@ -45,12 +46,12 @@ public class GraphManager {
      * @return defensive copy of component IDs list, or null if compound not found
      */
     public IntArrayList getComponentsForCompound(int compoundId) {
-        IntArrayList components = staticData.getComponents(compoundId);
+        IntList components = staticData.getComponents(compoundId);
         if (components == null) {
             return null;
         }
         // Return defensive copy
-        return components.clone();
+        return new IntArrayList(components);
     }
 
     /**
@@ -67,6 +68,30 @@ public class GraphManager {
         return staticData.getMostFrequent();
     }
 
+    /**
+     * @param charId the character ID
+     * @return position of the character by descending frequency, or -1 if the ID is unknown
+     * @see StaticData#getFrequencyRank(int)
+     */
+    public int getFrequencyRank(int charId) {
+        return staticData.getFrequencyRank(charId);
+    }
+
+    /**
+     * @param rank a frequency rank, below {@link #getRankedCount()}
+     * @return the character ID with that rank
+     */
+    public int getCharByRank(int rank) {
+        return staticData.getCharByRank(rank);
+    }
+
+    /**
+     * @return number of ranked characters
+     */
+    public int getRankedCount() {
+        return staticData.getRankedCount();
+    }
+
     /**
      * Gets the underlying StaticData (for advanced use cases).
      * Note: Callers should treat the returned data as immutable.
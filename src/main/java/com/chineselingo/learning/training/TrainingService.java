@@ -1,33 +1,29 @@
 package com.chineselingo.learning.training;
 
-import com.chineselingo.data.CharIdMapper;
+import com.chineselingo.app.LoadedData;
 import com.chineselingo.learning.common.dto.CharacterCandidate;
-import com.chineselingo.recommendation.RecommendationEngine;
 import com.chineselingo.user.UserState;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import java.util.function.Supplier;
 
 public class TrainingService {
 
     private final UserState userState;
-    private final RecommendationEngine recommendationEngine;
-    private final CharIdMapper charIdMapper;
-    final Int2ObjectOpenHashMap<String> definitions;
+    private final Supplier<LoadedData> data;
 
     private CharacterCandidate current;
 
-    public TrainingService(final UserState userState, final RecommendationEngine recommendationEngine,
-                           final CharIdMapper charIdMapper, final Int2ObjectOpenHashMap<String> definitions) {
+    public TrainingService(final UserState userState, final Supplier<LoadedData> data) {
         this.userState = userState;
-        this.recommendationEngine = recommendationEngine;
-        this.charIdMapper = charIdMapper;
-        this.definitions = definitions;
+        this.data = data;
     }
 
     /** Pobiera pierwszy / kolejny znak do nauki */
     public CharacterCandidate nextSign() {
-        int charId = recommendationEngine.recommendNext(userState);
-        String character = charIdMapper.getChar(charId);
-        String meaning = definitions.get(charId);
+        LoadedData version = data.get();
+        int charId = version.getRecommendationEngine().recommendNext(userState);
+        String character = version.getCharIdMapper().getChar(charId);
+        String meaning = version.getDefinition(charId);
         current = new CharacterCandidate(charId, character, meaning);
         return current;
     }
@@ -43,4 +39,14 @@ public class TrainingService {
     public CharacterCandidate getCurrent() {
         return current;
     }
-}
\ No newline at end of file
+
+    /** Przelicza ID bieżącego znaku po przeładowaniu danych */
+    public void remapIds(int[] oldToNew) {
+        if (current == null) {
+            return;
+        }
+        int charId = current.getCharId();
+        int newId = charId >= 0 && charId < oldToNew.length ? oldToNew[charId] : -1;
+        current = newId < 0 ? null : new CharacterCandidate(newId, current.getCharacter(), current.getMeaning());
+    }
+}
@@ -1,15 +1,15 @@
 package com.chineselingo.learning.verifying;
 
-import com.chineselingo.data.CharIdMapper;
+import com.chineselingo.app.LoadedData;
 import com.chineselingo.learning.common.dto.CharacterCandidate;
 import com.chineselingo.user.UserState;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -17,17 +17,15 @@ public class VerifyingService {
     private static final int MAX_TEST_SIZE = 8;
     private static final String DELIMS = "[/\\.\\;\\(\\) ]";
     private final UserState userState;
-    final CharIdMapper charIdMapper;
-    final Int2ObjectOpenHashMap<String> definitions;
+    private final Supplier<LoadedData> data;
 
     private List<Integer> testSet = new ArrayList<>();
     private int index = 0;
     private CharacterCandidate current;
 
-    public VerifyingService(final UserState userState, final CharIdMapper charIdMapper, final Int2ObjectOpenHashMap<String> definitions) {
+    public VerifyingService(final UserState userState, final Supplier<LoadedData> data) {
         this.userState = userState;
-        this.charIdMapper = charIdMapper;
-        this.definitions = definitions;
+        this.data = data;
     }
 
     public CharacterCandidate getCurrent() {
@@ -36,8 +34,9 @@ public class VerifyingService {
         }
         int charId = testSet.get(index);
         if (current != null && charId == current.getCharId()) {return current;}
-        String character = charIdMapper.getChar(charId);
-        String meaning = definitions.get(charId);
+        LoadedData version = data.get();
+        String character = version.getCharIdMapper().getChar(charId);
+        String meaning = version.getDefinition(charId);
         current = new CharacterCandidate(charId, character, meaning);
         return current;
     }
@@ -70,6 +69,7 @@ public class VerifyingService {
             success = false;
         }
         if (success) {
+            getCurrent(); // re-resolve after a data reload
             String correctMeaning = current.getMeaning();
             String regex = DELIMS + Pattern.quote(answer) + DELIMS;
             Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
@@ -95,6 +95,19 @@ public class VerifyingService {
     }
 
     public String getCorrectAnswer () {
-        return testSet.isEmpty() ? "" : definitions.get(testSet.get(index));
+        return testSet.isEmpty() ? "" : data.get().getDefinition(testSet.get(index));
+    }
+
+    /** Przelicza ID znaków w bieżącym teście po przeładowaniu danych */
+    public void remapIds(int[] oldToNew) {
+        List<Integer> remapped = new ArrayList<>(testSet.size());
+        for (int charId : testSet) {
+            if (charId < oldToNew.length && oldToNew[charId] >= 0) {
+                remapped.add(oldToNew[charId]);
+            }
+        }
+        testSet = remapped;
+        index = Math.min(index, Math.max(0, testSet.size() - 1));
+        current = null;
     }
 }
\ No newline at end of file
@@ -1,13 +1,15 @@
 package com.chineselingo.parser;
 
 import com.chineselingo.data.CharIdMapper;
+import com.chineselingo.data.MappedDefinitions;
+import com.chineselingo.word.WordDictionaryBuilder;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.time.Instant;
 
@@ -18,14 +20,20 @@ import java.time.Instant;
  * 林 林 [lin2] /forest/grove/
  * 
  * Lines starting with # are comments and are skipped.
- * For WP-01, focuses on single-character entries.
+ * Single-character entries become character definitions; multi-character entries can
+ * optionally be collected into a {@link WordDictionaryBuilder}.
  */
 public class CEDICTParser {
     private static final Logger logger = LoggerFactory.getLogger(CEDICTParser.class);
 
+    private final ThroughputCounter throughput = new ThroughputCounter();
+
     /**
      * Parses a CEDICT file and populates the definitions map.
      * 
+     * The file is memory-mapped (or stream-decompressed, see {@link Utf8Source}) and scanned
+     * byte by byte; only the definitions that are kept are decoded into Strings.
+     * 
      * @param filePath path to the CEDICT file
      * @param charIdMapper mapper to assign character IDs
      * @param definitions map to populate with charId -> definition
@@ -33,69 +41,176 @@ public class CEDICTParser {
      */
     public void parse(Path filePath, CharIdMapper charIdMapper, Int2ObjectOpenHashMap<String> definitions) 
             throws IOException {
+        parse(filePath, charIdMapper, definitions, null);
+    }
+
+    /**
+     * Parses a CEDICT file, populating the definitions map and collecting multi-character words.
+     * 
+     * @param filePath path to the CEDICT file
+     * @param charIdMapper mapper to assign character IDs
+     * @param definitions map to populate with charId -> definition
+     * @param words receives every multi-character entry, or null to skip them
+     * @throws IOException if file reading fails
+     */
+    public void parse(Path filePath, CharIdMapper charIdMapper, Int2ObjectOpenHashMap<String> definitions,
+                      WordDictionaryBuilder words) throws IOException {
+        parse(filePath, charIdMapper, words, new DefinitionSink() {
+            // Simplified and traditional forms of one line share a single String
+            private int lastFrom = -1;
+            private String lastDefinition;
+
+            @Override
+            public void accept(int charId, Utf8LineScanner line, int from, int to) {
+                if (from != lastFrom) {
+                    lastDefinition = line.decode(from, to);
+                    lastFrom = from;
+                }
+                definitions.put(charId, lastDefinition);
+            }
+        });
+    }
+
+    /**
+     * Indexes a CEDICT file without decoding any definition.
+     * 
+     * Each single-character entry is recorded as the byte range of its definition in the file,
+     * packed as {@code offset << 32 | length}, for lazy decoding from a mapping of the same file.
+     * Compressed files have no stable offsets and are rejected.
+     * 
+     * @param filePath path to the CEDICT file
+     * @param charIdMapper mapper to assign character IDs
+     * @param locations map to populate with charId -> packed definition location
+     * @throws IOException if file reading fails
+     */
+    public void parseLocations(Path filePath, CharIdMapper charIdMapper, Int2LongOpenHashMap locations)
+            throws IOException {
+        parseLocations(filePath, charIdMapper, locations, null);
+    }
+
+    /**
+     * Indexes a CEDICT file without decoding any character definition, collecting
+     * multi-character words.
+     * 
+     * @param filePath path to the CEDICT file
+     * @param charIdMapper mapper to assign character IDs
+     * @param locations map to populate with charId -> packed definition location
+     * @param words receives every multi-character entry, or null to skip them
+     * @throws IOException if file reading fails
+     */
+    public void parseLocations(Path filePath, CharIdMapper charIdMapper, Int2LongOpenHashMap locations,
+                               WordDictionaryBuilder words) throws IOException {
+        if (Utf8Source.isCompressed(filePath)) {
+            throw new IOException("Cannot index definitions of a compressed file: " + filePath);
+        }
+        parse(filePath, charIdMapper, words, (charId, line, from, to) ->
+                locations.put(charId, MappedDefinitions.location(from, to - from)));
+    }
+
+    private void parse(Path filePath, CharIdMapper charIdMapper, WordDictionaryBuilder words, DefinitionSink sink)
+            throws IOException {
         logger.info("Parsing CEDICT file: {}. Start:{}", filePath, Instant.now().toString());
+        long startNanos = System.nanoTime();
         int lineCount = 0;
         int entryCount = 0;
 
-        try (BufferedReader reader = Files.newBufferedReader(filePath)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                lineCount++;
-                
-                // Skip comments and empty lines
-                if (line.startsWith("#") || line.trim().isEmpty()) {
-                    continue;
-                }
+        long bytes;
+        CodePointIds ids = new CodePointIds(charIdMapper);
+        try (Utf8Source source = Utf8Source.open(filePath)) {
+            ByteBuffer block;
+            while ((block = source.nextBlock()) != null) {
+                Utf8LineScanner scanner = new Utf8LineScanner(block);
+                while (scanner.nextLine()) {
+                    lineCount++;
+                    int start = scanner.lineStart();
+                    int end = scanner.lineEnd();
+
+                    // Skip comments and empty lines
+                    if ((start < end && scanner.byteAt(start) == '#') || scanner.trimStart(start, end) == end) {
+                        continue;
+                    }
 
-                try {
-                    parseLine(line, charIdMapper, definitions);
-                    entryCount++;
-                } catch (Exception e) {
-                    logger.warn("Failed to parse line {}: {}", lineCount, line, e);
+                    try {
+                        parseLine(scanner, start, end, ids, words, sink);
+                        entryCount++;
+                    } catch (Exception e) {
+                        logger.warn("Failed to parse line {}: {}", lineCount, scanner.currentLine(), e);
+                    }
                 }
             }
+            bytes = source.getBytesRead();
         }
 
-        logger.info("Parsed {} entries from {} lines. End: {}", entryCount, lineCount, Instant.now().toString());
+        long elapsedNanos = System.nanoTime() - startNanos;
+        throughput.record(bytes, lineCount, elapsedNanos);
+        logger.info("Parsed {} entries from {} lines ({} MB/s). End: {}", entryCount, lineCount,
+                ThroughputCounter.format(bytes, elapsedNanos), Instant.now().toString());
     }
 
-    private void parseLine(String line, CharIdMapper charIdMapper, Int2ObjectOpenHashMap<String> definitions) {
+    /**
+     * @return cumulative parsing throughput of this parser
+     */
+    public ThroughputCounter getThroughput() {
+        return throughput;
+    }
+
+    private void parseLine(Utf8LineScanner line, int start, int end, CodePointIds ids, WordDictionaryBuilder words,
+                           DefinitionSink sink) {
         // Format: 传统 简体 [pinyin] /def1/def2/
         // Find the opening bracket for pinyin
-        int pinyinStart = line.indexOf('[');
+        int pinyinStart = line.indexOf((byte) '[', start, end);
         if (pinyinStart == -1) {
             return;
         }
 
         // Extract traditional and simplified (space-separated before pinyin)
-        String beforePinyin = line.substring(0, pinyinStart).trim();
-        int spaceIdx = beforePinyin.indexOf(' ');
+        int headStart = line.trimStart(start, pinyinStart);
+        int headEnd = line.trimEnd(headStart, pinyinStart);
+        int spaceIdx = line.indexOf((byte) ' ', headStart, headEnd);
         if (spaceIdx == -1) {
             return;
         }
 
-        String traditional = beforePinyin.substring(0, spaceIdx).trim();
-        String simplified = beforePinyin.substring(spaceIdx + 1).trim();
-
         // Find the closing bracket and definition start
-        int pinyinEnd = line.indexOf(']', pinyinStart);
-        if (pinyinEnd == -1 || pinyinEnd + 1 >= line.length()) {
+        int pinyinEnd = line.indexOf((byte) ']', pinyinStart, end);
+        if (pinyinEnd == -1 || pinyinEnd + 1 >= end) {
             return;
         }
 
         // Extract definition (everything after the closing bracket)
-        String definition = line.substring(pinyinEnd + 1).trim();
+        int definitionStart = line.trimStart(pinyinEnd + 1, end);
+        int definitionEnd = line.trimEnd(definitionStart, end);
 
-        // For WP-01, focus on single-character entries
         // Store both simplified and traditional if they're single characters
-        if (simplified.length() == 1) {
-            int charId = charIdMapper.getId(simplified);
-            definitions.put(charId, definition);
+        int traditionalEnd = line.trimEnd(headStart, spaceIdx);
+        int simplifiedStart = line.trimStart(spaceIdx + 1, headEnd);
+        int traditional = line.singleCodePoint(headStart, traditionalEnd);
+        int simplified = line.singleCodePoint(simplifiedStart, headEnd);
+        if (traditional < 0 && simplified < 0) {
+            if (words != null && simplifiedStart + line.codePointLength(simplifiedStart) < headEnd) {
+                int readingStart = line.trimStart(pinyinStart + 1, pinyinEnd);
+                words.add(line.decode(simplifiedStart, headEnd),
+                        line.decode(headStart, traditionalEnd),
+                        line.decode(readingStart, line.trimEnd(readingStart, pinyinEnd)),
+                        line.decode(definitionStart, definitionEnd));
+            }
+            return;
         }
 
-        if (traditional.length() == 1 && !traditional.equals(simplified)) {
-            int charId = charIdMapper.getId(traditional);
-            definitions.put(charId, definition);
+        if (simplified >= 0) {
+            sink.accept(ids.get(simplified), line, definitionStart, definitionEnd);
         }
+
+        if (traditional >= 0 && traditional != simplified) {
+            sink.accept(ids.get(traditional), line, definitionStart, definitionEnd);
+        }
+    }
+
+    /**
+     * Receives the definition byte range of each stored entry.
+     */
+    @FunctionalInterface
+    private interface DefinitionSink {
+        void accept(int charId, Utf8LineScanner line, int from, int to);
     }
 }
@@ -0,0 +1,27 @@
+package com.chineselingo.parser;
+
+import com.chineselingo.data.CharIdMapper;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+/**
+ * Per-parse cache from codepoint to character ID.
+ * Only the first occurrence of each codepoint reaches the shared, concurrent {@link CharIdMapper}.
+ */
+final class CodePointIds {
+    private final CharIdMapper charIdMapper;
+    private final Int2IntOpenHashMap ids = new Int2IntOpenHashMap();
+
+    CodePointIds(CharIdMapper charIdMapper) {
+        this.charIdMapper = charIdMapper;
+        this.ids.defaultReturnValue(-1);
+    }
+
+    int get(int codePoint) {
+        int id = ids.get(codePoint);
+        if (id < 0) {
+            id = charIdMapper.getId(codePoint);
+            ids.put(codePoint, id);
+        }
+        return id;
+    }
+}
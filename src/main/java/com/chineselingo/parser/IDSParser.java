@@ -6,9 +6,8 @@ import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.time.Instant;
 
@@ -24,9 +23,14 @@ import java.time.Instant;
 public class IDSParser {
     private static final Logger logger = LoggerFactory.getLogger(IDSParser.class);
 
+    private final ThroughputCounter throughput = new ThroughputCounter();
+
     /**
      * Parses an IDS file and builds component-compound relationships.
      * 
+     * The file is memory-mapped (or stream-decompressed, see {@link Utf8Source}); columns are
+     * located and codepoints decoded in place.
+     * 
      * @param filePath path to the IDS file
      * @param charIdMapper mapper to assign character IDs
      * @param componentToCompounds map from component ID to list of compound IDs
@@ -38,56 +42,72 @@ public class IDSParser {
                      Int2ObjectOpenHashMap<IntArrayList> compoundToComponents) 
             throws IOException {
         logger.info("Parsing IDS file: {}. Start:{}", filePath, Instant.now().toString());
+        long startNanos = System.nanoTime();
         int lineCount = 0;
         int entryCount = 0;
 
-        try (BufferedReader reader = Files.newBufferedReader(filePath)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                lineCount++;
-                line = line.trim();
-                
-                // Skip comments and empty lines
-                if (line.startsWith("#") || line.isEmpty()) {
-                    continue;
-                }
-
-                try {
-                    parseLine(line, charIdMapper, componentToCompounds, compoundToComponents);
-                    entryCount++;
-                } catch (Exception e) {
-                    logger.warn("Failed to parse line {}: {}", lineCount, line, e);
+        long bytes;
+        CodePointIds ids = new CodePointIds(charIdMapper);
+        try (Utf8Source source = Utf8Source.open(filePath)) {
+            ByteBuffer block;
+            while ((block = source.nextBlock()) != null) {
+                Utf8LineScanner scanner = new Utf8LineScanner(block);
+                while (scanner.nextLine()) {
+                    lineCount++;
+                    int start = scanner.trimStart(scanner.lineStart(), scanner.lineEnd());
+                    int end = scanner.trimEnd(start, scanner.lineEnd());
+                    
+                    // Skip comments and empty lines
+                    if (start == end || scanner.byteAt(start) == '#') {
+                        continue;
+                    }
+
+                    try {
+                        parseLine(scanner, start, end, ids, componentToCompounds, compoundToComponents);
+                        entryCount++;
+                    } catch (Exception e) {
+                        logger.warn("Failed to parse line {}: {}", lineCount, scanner.currentLine(), e);
+                    }
                 }
             }
+            bytes = source.getBytesRead();
         }
 
-        logger.info("Parsed {} IDS entries from {} lines. End:{}", entryCount, lineCount, Instant.now().toString());
+        long elapsedNanos = System.nanoTime() - startNanos;
+        throughput.record(bytes, lineCount, elapsedNanos);
+        logger.info("Parsed {} IDS entries from {} lines ({} MB/s). End:{}", entryCount, lineCount,
+                ThroughputCounter.format(bytes, elapsedNanos), Instant.now().toString());
     }
 
-    private void parseLine(String line, CharIdMapper charIdMapper,
+    /**
+     * @return cumulative parsing throughput of this parser
+     */
+    public ThroughputCounter getThroughput() {
+        return throughput;
+    }
+
+    private void parseLine(Utf8LineScanner line, int start, int end, CodePointIds ids,
                           Int2ObjectOpenHashMap<IntArrayList> componentToCompounds,
                           Int2ObjectOpenHashMap<IntArrayList> compoundToComponents) {
         // Format: U+6797 林 ⿰木木
-        String[] parts = line.split("\\s+");
-        
-        if (parts.length < 3) {
+        // column 1 is unicode (U+xxxx), column 2 the character, column 3 the IDS decomposition
+        int characterStart = skipColumn(line, start, end);
+        int characterEnd = columnEnd(line, characterStart, end);
+        int idsStart = skipColumn(line, characterStart, end);
+        if (idsStart == end) {
             return;
         }
+        int idsEnd = columnEnd(line, idsStart, end);
 
-        // parts[0] is unicode (U+xxxx)
-        // parts[1] is the character
-        // parts[2] is the IDS decomposition
-        String character = parts[1].trim();
-        String ids = parts[2].trim();
-
-        if (character.length() != 1) {
+        int character = line.singleCodePoint(characterStart, characterEnd);
+        if (character < 0) {
             return;
         }
 
-        int compoundId = charIdMapper.getId(character);
+        int compoundId = ids.get(character);
 
         // Extract components from IDS
-        IntArrayList componentIds = extractComponents(ids, charIdMapper);
+        IntArrayList componentIds = extractComponents(line, idsStart, idsEnd, ids);
         
         if (componentIds.isEmpty()) {
             return;
@@ -104,32 +124,51 @@ public class IDSParser {
         }
     }
 
-    private IntArrayList extractComponents(String ids, CharIdMapper charIdMapper) {
+    private IntArrayList extractComponents(Utf8LineScanner line, int start, int end, CodePointIds ids) {
         IntArrayList components = new IntArrayList();
         
         // Extract all characters from IDS, ignoring IDC operators
         // IDC operators are in the Unicode block U+2FF0–U+2FFF
-        for (int i = 0; i < ids.length(); ) {
-            int codePoint = ids.codePointAt(i);
+        for (int i = start; i < end; ) {
+            int codePoint = line.codePointAt(i, end);
+            i += line.codePointLength(i);
             
             // Skip IDC operators (U+2FF0 to U+2FFF)
             if (codePoint >= 0x2FF0 && codePoint <= 0x2FFF) {
-                i += Character.charCount(codePoint);
                 continue;
             }
 
-            // Extract the character
-            String component = ids.substring(i, i + Character.charCount(codePoint));
-            int componentId = charIdMapper.getId(component);
+            int componentId = ids.get(codePoint);
             
             // Add to components list if not already present (treat as set)
             if (!components.contains(componentId)) {
                 components.add(componentId);
             }
-            
-            i += Character.charCount(codePoint);
         }
         
         return components;
     }
+
+    /**
+     * Returns the end of the whitespace-delimited column starting at {@code from}.
+     */
+    private static int columnEnd(Utf8LineScanner line, int from, int end) {
+        while (from < end && !line.isWhitespace(from)) {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * Skips the column starting at {@code from} and the whitespace after it.
+     * 
+     * @return start of the next column, or {@code end} if there is none
+     */
+    private static int skipColumn(Utf8LineScanner line, int from, int end) {
+        from = columnEnd(line, from, end);
+        while (from < end && line.isWhitespace(from)) {
+            from++;
+        }
+        return from;
+    }
 }
@@ -2,12 +2,12 @@ package com.chineselingo.parser;
 
 import com.chineselingo.data.CharIdMapper;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.time.Instant;
 
@@ -25,9 +25,14 @@ import java.time.Instant;
 public class SUBTLEXParser {
     private static final Logger logger = LoggerFactory.getLogger(SUBTLEXParser.class);
 
+    private final ThroughputCounter throughput = new ThroughputCounter();
+
     /**
      * Parses a SUBTLEX frequency file and populates the frequencies map.
      * 
+     * The file is memory-mapped (or stream-decompressed, see {@link Utf8Source}) and fields
+     * are located and parsed in place, without creating per-line Strings.
+     * 
      * @param filePath path to the frequency file
      * @param charIdMapper mapper to assign character IDs
      * @param frequencies map to populate with charId -> frequency
@@ -35,89 +40,151 @@ public class SUBTLEXParser {
      */
     public void parse(Path filePath, CharIdMapper charIdMapper, Int2IntOpenHashMap frequencies) 
             throws IOException {
+        parse(filePath, charIdMapper, frequencies, null);
+    }
+
+    /**
+     * Parses a SUBTLEX frequency file, also keeping the frequencies of multi-character words.
+     * 
+     * @param filePath path to the frequency file
+     * @param charIdMapper mapper to assign character IDs
+     * @param frequencies map to populate with charId -> frequency
+     * @param wordFrequencies map to populate with word -> frequency, or null to skip words
+     * @throws IOException if file reading fails
+     */
+    public void parse(Path filePath, CharIdMapper charIdMapper, Int2IntOpenHashMap frequencies,
+                      Object2IntOpenHashMap<String> wordFrequencies) throws IOException {
         logger.info("Parsing SUBTLEX file: {}. Start:{}", filePath, Instant.now().toString());
+        long startNanos = System.nanoTime();
         int lineCount = 0;
         int entryCount = 0;
         boolean firstLine = true;
 
-        try (BufferedReader reader = Files.newBufferedReader(filePath)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                lineCount++;
-                line = line.trim();
-                
-                // Skip empty lines
-                if (line.isEmpty()) {
-                    continue;
-                }
+        long bytes;
+        CodePointIds ids = new CodePointIds(charIdMapper);
+        int[] fields = new int[4];
+        try (Utf8Source source = Utf8Source.open(filePath)) {
+            ByteBuffer block;
+            while ((block = source.nextBlock()) != null) {
+                Utf8LineScanner scanner = new Utf8LineScanner(block);
+                while (scanner.nextLine()) {
+                    lineCount++;
+                    int start = scanner.trimStart(scanner.lineStart(), scanner.lineEnd());
+                    int end = scanner.trimEnd(start, scanner.lineEnd());
 
-                // Skip header if present (first line with non-numeric second column)
-                if (firstLine) {
-                    firstLine = false;
-                    if (looksLikeHeader(line)) {
+                    // Skip empty lines
+                    if (start == end) {
                         continue;
                     }
-                }
 
-                try {
-                    parseLine(line, charIdMapper, frequencies);
-                    entryCount++;
-                } catch (Exception e) {
-                    logger.warn("Failed to parse line {}: {}", lineCount, line, e);
+                    // Skip header if present (first line with non-numeric second column)
+                    if (firstLine) {
+                        firstLine = false;
+                        if (looksLikeHeader(scanner, start, end, fields)) {
+                            continue;
+                        }
+                    }
+
+                    try {
+                        parseLine(scanner, start, end, fields, ids, frequencies, wordFrequencies);
+                        entryCount++;
+                    } catch (Exception e) {
+                        logger.warn("Failed to parse line {}: {}", lineCount, scanner.currentLine(), e);
+                    }
                 }
             }
+            bytes = source.getBytesRead();
         }
 
-        logger.info("Parsed {} frequency entries from {} lines. End:{}", entryCount, lineCount, Instant.now().toString());
+        long elapsedNanos = System.nanoTime() - startNanos;
+        throughput.record(bytes, lineCount, elapsedNanos);
+        logger.info("Parsed {} frequency entries from {} lines ({} MB/s). End:{}", entryCount, lineCount,
+                ThroughputCounter.format(bytes, elapsedNanos), Instant.now().toString());
     }
 
-    private boolean looksLikeHeader(String line) {
+    /**
+     * @return cumulative parsing throughput of this parser
+     */
+    public ThroughputCounter getThroughput() {
+        return throughput;
+    }
+
+    private boolean looksLikeHeader(Utf8LineScanner line, int start, int end, int[] fields) {
         // Try to detect if this is a header line
-        String[] parts = splitLine(line);
-        if (parts.length >= 2) {
-            try {
-                Integer.parseInt(parts[1]);
-                return false; // Second column is numeric, not a header
-            } catch (NumberFormatException e) {
-                return true; // Second column is not numeric, likely a header
-            }
+        if (splitLine(line, start, end, fields)) {
+            // Second column is numeric -> data, otherwise likely a header
+            return line.parseInt(fields[2], fields[3]) == Utf8LineScanner.INVALID_NUMBER;
         }
         return false;
     }
 
-    private void parseLine(String line, CharIdMapper charIdMapper, Int2IntOpenHashMap frequencies) {
-        String[] parts = splitLine(line);
-        
-        if (parts.length < 2) {
+    private void parseLine(Utf8LineScanner line, int start, int end, int[] fields,
+                           CodePointIds ids, Int2IntOpenHashMap frequencies,
+                           Object2IntOpenHashMap<String> wordFrequencies) {
+        if (!splitLine(line, start, end, fields)) {
             return;
         }
 
-        String character = parts[0].trim();
-        String freqStr = parts[1].trim();
-
-        // Only process single characters
-        if (character.length() != 1) {
+        // Skip invalid frequency values
+        long frequency = line.parseInt(fields[2], fields[3]);
+        if (frequency == Utf8LineScanner.INVALID_NUMBER) {
             return;
         }
 
-        try {
-            int frequency = Integer.parseInt(freqStr);
-            int charId = charIdMapper.getId(character);
-            frequencies.put(charId, frequency);
-        } catch (NumberFormatException e) {
-            // Skip invalid frequency values
+        // Characters get IDs; words are only kept by text
+        int character = line.singleCodePoint(fields[0], fields[1]);
+        if (character >= 0) {
+            frequencies.put(ids.get(character), (int) frequency);
+        } else if (wordFrequencies != null && fields[0] < fields[1]) {
+            wordFrequencies.put(line.decode(fields[0], fields[1]), (int) frequency);
         }
     }
 
-    private String[] splitLine(String line) {
-        // Try tab first, then comma
-        if (line.contains("\t")) {
-            return line.split("\t");
-        } else if (line.contains(",")) {
-            return line.split(",");
+    /**
+     * Locates the first two columns of a trimmed line.
+     * Tab is tried first, then comma, then whitespace runs.
+     * 
+     * @param fields receives trimmed [start, end) of column 1 and column 2
+     * @return false if the line has fewer than two columns
+     */
+    private boolean splitLine(Utf8LineScanner line, int start, int end, int[] fields) {
+        int firstSeparator;
+        int secondStart;
+        int secondEnd;
+        if ((firstSeparator = line.indexOf((byte) '\t', start, end)) >= 0) {
+            secondStart = firstSeparator + 1;
+            secondEnd = line.indexOf((byte) '\t', secondStart, end);
+        } else if ((firstSeparator = line.indexOf((byte) ',', start, end)) >= 0) {
+            secondStart = firstSeparator + 1;
+            secondEnd = line.indexOf((byte) ',', secondStart, end);
         } else {
-            // Fallback to whitespace
-            return line.split("\\s+");
+            firstSeparator = start;
+            while (firstSeparator < end && !line.isWhitespace(firstSeparator)) {
+                firstSeparator++;
+            }
+            if (firstSeparator == end) {
+                return false;
+            }
+            secondStart = firstSeparator;
+            while (secondStart < end && line.isWhitespace(secondStart)) {
+                secondStart++;
+            }
+            secondEnd = secondStart;
+            while (secondEnd < end && !line.isWhitespace(secondEnd)) {
+                secondEnd++;
+            }
+        }
+        if (secondStart == end) {
+            return false;
         }
+        if (secondEnd < 0) {
+            secondEnd = end;
+        }
+
+        fields[0] = start;
+        fields[1] = line.trimEnd(start, firstSeparator);
+        fields[2] = line.trimStart(secondStart, secondEnd);
+        fields[3] = line.trimEnd(fields[2], secondEnd);
+        return true;
     }
 }
@@ -0,0 +1,62 @@
+package com.chineselingo.parser;
+
+/**
+ * Accumulates bytes and lines parsed and time spent, reporting throughput in MB/s.
+ * Each parser owns one counter; it covers every file that parser has read.
+ */
+public final class ThroughputCounter {
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    private long bytes;
+    private long lines;
+    private long nanos;
+
+    /**
+     * Records one parsing run.
+     *
+     * @param bytes number of input bytes scanned
+     * @param lines number of input lines scanned
+     * @param nanos elapsed wall time in nanoseconds
+     */
+    public synchronized void record(long bytes, long lines, long nanos) {
+        this.bytes += bytes;
+        this.lines += lines;
+        this.nanos += nanos;
+    }
+
+    /**
+     * @return total bytes recorded
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return total lines recorded
+     */
+    public synchronized long getLines() {
+        return lines;
+    }
+
+    /**
+     * @return total elapsed nanoseconds recorded
+     */
+    public synchronized long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * @return overall throughput in MB/s, or 0 if nothing was recorded
+     */
+    public synchronized double getMegabytesPerSecond() {
+        return megabytesPerSecond(bytes, nanos);
+    }
+
+    static double megabytesPerSecond(long bytes, long nanos) {
+        return nanos == 0 ? 0.0 : (bytes / BYTES_PER_MB) / (nanos / 1_000_000_000.0);
+    }
+
+    static String format(long bytes, long nanos) {
+        return String.format("%.1f", megabytesPerSecond(bytes, nanos));
+    }
+}
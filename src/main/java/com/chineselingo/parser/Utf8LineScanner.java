@@ -0,0 +1,251 @@
+package com.chineselingo.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Line scanner over a UTF-8 encoded {@link ByteBuffer}, typically a memory-mapped file.
+ *
+ * Lines are exposed as byte ranges [lineStart, lineEnd) of the underlying buffer, without
+ * the line terminator. Nothing is decoded or copied unless the caller asks for it, so parsers
+ * can inspect fields and codepoints in place and only allocate for the values they keep.
+ */
+public final class Utf8LineScanner {
+    /** Returned by {@link #parseInt(int, int)} for ranges that are not a valid int. */
+    public static final long INVALID_NUMBER = Long.MIN_VALUE;
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int position;
+    private int lineStart;
+    private int lineEnd;
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Creates a scanner over the remaining bytes of the buffer.
+     * A leading UTF-8 byte order mark is skipped.
+     *
+     * @param buffer UTF-8 encoded content
+     */
+    public Utf8LineScanner(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+        this.position = buffer.position();
+        if (limit - position >= 3
+                && buffer.get(position) == (byte) 0xEF
+                && buffer.get(position + 1) == (byte) 0xBB
+                && buffer.get(position + 2) == (byte) 0xBF) {
+            position += 3;
+        }
+    }
+
+    /**
+     * Memory-maps a whole file read-only.
+     *
+     * @param file the file to map
+     * @return the mapped content
+     * @throws IOException if the file cannot be mapped or exceeds 2 GB
+     */
+    public static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + file + " (" + size + " bytes)");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * Advances to the next line.
+     *
+     * @return true if a line is available, false at end of input
+     */
+    public boolean nextLine() {
+        if (position >= limit) {
+            return false;
+        }
+        int end = indexOf((byte) '\n', position, limit);
+        if (end < 0) {
+            end = limit;
+        }
+        lineStart = position;
+        lineEnd = end > lineStart && buffer.get(end - 1) == '\r' ? end - 1 : end;
+        position = end + 1;
+        return true;
+    }
+
+    public int lineStart() {
+        return lineStart;
+    }
+
+    public int lineEnd() {
+        return lineEnd;
+    }
+
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    public byte byteAt(int index) {
+        return buffer.get(index);
+    }
+
+    /**
+     * Finds the first occurrence of an ASCII byte in [from, to).
+     *
+     * @return its index, or -1 if absent
+     */
+    public int indexOf(byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Skips leading bytes {@code <= ' '} (same rule as {@link String#trim()}).
+     *
+     * @return index of the first non-blank byte, or {@code to} if the range is blank
+     */
+    public int trimStart(int from, int to) {
+        while (from < to && (buffer.get(from) & 0xFF) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * Skips trailing bytes {@code <= ' '} (same rule as {@link String#trim()}).
+     *
+     * @return exclusive end of the trimmed range
+     */
+    public int trimEnd(int from, int to) {
+        while (to > from && (buffer.get(to - 1) & 0xFF) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    /**
+     * Checks for the whitespace characters matched by the regex {@code \s}.
+     */
+    public boolean isWhitespace(int index) {
+        byte b = buffer.get(index);
+        return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+    }
+
+    /**
+     * Returns the length in bytes of the UTF-8 sequence starting at {@code index}.
+     * Invalid lead bytes count as a single byte.
+     */
+    public int codePointLength(int index) {
+        int lead = buffer.get(index) & 0xFF;
+        if (lead < 0x80) {
+            return 1;
+        } else if (lead >= 0xF0 && lead <= 0xF7) {
+            return 4;
+        } else if (lead >= 0xE0) {
+            return lead <= 0xEF ? 3 : 1;
+        } else if (lead >= 0xC0) {
+            return 2;
+        }
+        return 1;
+    }
+
+    /**
+     * Decodes the codepoint starting at {@code index} without allocating.
+     * Malformed or truncated sequences (relative to {@code to}) decode as U+FFFD.
+     *
+     * @param index start of the sequence
+     * @param to exclusive end of the enclosing range
+     * @return the codepoint
+     */
+    public int codePointAt(int index, int to) {
+        int lead = buffer.get(index) & 0xFF;
+        int length = codePointLength(index);
+        if (length == 1) {
+            return lead < 0x80 ? lead : 0xFFFD;
+        }
+        if (index + length > to) {
+            return 0xFFFD;
+        }
+        int codePoint = lead & (0xFF >>> (length + 1));
+        for (int i = 1; i < length; i++) {
+            int next = buffer.get(index + i) & 0xFF;
+            if ((next & 0xC0) != 0x80) {
+                return 0xFFFD;
+            }
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        return codePoint;
+    }
+
+    /**
+     * Returns the codepoint if [from, to) holds exactly one character, else -1.
+     * Supplementary-plane characters (CJK Extension B and later) are accepted.
+     */
+    public int singleCodePoint(int from, int to) {
+        if (from >= to || from + codePointLength(from) != to) {
+            return -1;
+        }
+        return codePointAt(from, to);
+    }
+
+    /**
+     * Parses an optionally signed decimal int from [from, to).
+     *
+     * @return the value, or {@link #INVALID_NUMBER} if the range is not a valid int
+     */
+    public long parseInt(int from, int to) {
+        if (from >= to) {
+            return INVALID_NUMBER;
+        }
+        boolean negative = false;
+        byte first = buffer.get(from);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++from == to) {
+                return INVALID_NUMBER;
+            }
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID_NUMBER;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return INVALID_NUMBER;
+            }
+        }
+        value = negative ? -value : value;
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? value : INVALID_NUMBER;
+    }
+
+    /**
+     * Decodes [from, to) into a new String.
+     */
+    public String decode(int from, int to) {
+        int length = to - from;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(from, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes the current line, for diagnostics.
+     */
+    public String currentLine() {
+        return decode(lineStart, lineEnd);
+    }
+}
@@ -0,0 +1,250 @@
+package com.chineselingo.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * UTF-8 source file delivered as a sequence of line-aligned blocks.
+ *
+ * Plain files are memory-mapped and returned as a single block. Compressed files
+ * ({@code .gz}, or the first file entry of a {@code .zip}) are inflated on a separate
+ * thread into a small bounded queue of blocks, so decompression overlaps with parsing and
+ * the uncompressed content never has to exist on disk or fully in memory.
+ *
+ * Every block ends at a line break (or at end of input), so a {@link Utf8LineScanner} over a
+ * block never sees a partial line.
+ */
+public abstract class Utf8Source implements AutoCloseable {
+    /** Suffixes of the supported compressed containers. */
+    public static final String[] COMPRESSED_SUFFIXES = {".gz", ".zip"};
+
+    static final int BLOCK_BYTES = 4 << 20;
+    private static final int QUEUED_BLOCKS = 4;
+
+    private long bytesRead;
+
+    /**
+     * Opens a source file, choosing the reader from the file name.
+     *
+     * @param file a plain or compressed UTF-8 file
+     * @return the source; close it when done
+     * @throws IOException if the file cannot be opened
+     */
+    public static Utf8Source open(Path file) throws IOException {
+        return isCompressed(file) ? new Inflating(file, BLOCK_BYTES) : new Mapped(file);
+    }
+
+    static Utf8Source open(Path file, int blockBytes) throws IOException {
+        return isCompressed(file) ? new Inflating(file, blockBytes) : new Mapped(file);
+    }
+
+    /**
+     * @return true if the file name has one of the {@link #COMPRESSED_SUFFIXES}
+     */
+    public static boolean isCompressed(Path file) {
+        return compressedSuffix(file.getFileName().toString()) != null;
+    }
+
+    /**
+     * Strips a compressed suffix from a file name.
+     *
+     * @return the name of the uncompressed content, or {@code fileName} if it is not compressed
+     */
+    public static String uncompressedName(String fileName) {
+        String suffix = compressedSuffix(fileName);
+        return suffix == null ? fileName : fileName.substring(0, fileName.length() - suffix.length());
+    }
+
+    private static String compressedSuffix(String fileName) {
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        for (String suffix : COMPRESSED_SUFFIXES) {
+            if (lower.endsWith(suffix)) {
+                return suffix;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the next block of complete lines.
+     *
+     * @return the block, or null at end of input
+     * @throws IOException if reading or decompressing fails
+     */
+    public final ByteBuffer nextBlock() throws IOException {
+        ByteBuffer block = readBlock();
+        if (block != null) {
+            bytesRead += block.remaining();
+        }
+        return block;
+    }
+
+    /**
+     * @return uncompressed bytes delivered so far
+     */
+    public final long getBytesRead() {
+        return bytesRead;
+    }
+
+    protected abstract ByteBuffer readBlock() throws IOException;
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    /**
+     * Plain file: one memory-mapped block.
+     */
+    private static final class Mapped extends Utf8Source {
+        private ByteBuffer buffer;
+
+        Mapped(Path file) throws IOException {
+            this.buffer = Utf8LineScanner.map(file);
+        }
+
+        @Override
+        protected ByteBuffer readBlock() {
+            ByteBuffer block = buffer;
+            buffer = null;
+            return block;
+        }
+    }
+
+    /**
+     * Compressed file: blocks inflated by a background thread.
+     */
+    private static final class Inflating extends Utf8Source {
+        private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+        private final BlockingQueue<ByteBuffer> blocks = new ArrayBlockingQueue<>(QUEUED_BLOCKS);
+        private final InputStream input;
+        private final int blockBytes;
+        private final Thread thread;
+        // Anything thrown on the decompress thread, rethrown by readBlock() after the last block
+        private volatile Throwable failure;
+        private boolean finished;
+
+        Inflating(Path file, int blockBytes) throws IOException {
+            this.input = openDecompressed(file);
+            this.blockBytes = blockBytes;
+            this.thread = new Thread(this::inflate, "decompress-" + file.getFileName());
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        private static InputStream openDecompressed(Path file) throws IOException {
+            InputStream raw = Files.newInputStream(file);
+            try {
+                if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz")) {
+                    return new GZIPInputStream(raw, 1 << 16);
+                }
+                ZipInputStream zip = new ZipInputStream(raw);
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    if (!entry.isDirectory()) {
+                        return zip;
+                    }
+                }
+                throw new IOException("Archive contains no file: " + file);
+            } catch (IOException e) {
+                raw.close();
+                throw e;
+            }
+        }
+
+        private void inflate() {
+            try {
+                byte[] block = new byte[blockBytes];
+                int filled = 0;
+                while (true) {
+                    if (filled == block.length) {
+                        // A single line longer than the block: grow until it fits
+                        block = Arrays.copyOf(block, block.length * 2);
+                    }
+                    int read = input.read(block, filled, block.length - filled);
+                    if (read < 0) {
+                        break;
+                    }
+                    filled += read;
+
+                    int lineEnd = lastLineBreak(block, filled);
+                    if (filled == block.length && lineEnd >= 0) {
+                        blocks.put(ByteBuffer.wrap(block, 0, lineEnd + 1).slice());
+                        byte[] next = new byte[Math.max(blockBytes, filled - lineEnd - 1)];
+                        filled -= lineEnd + 1;
+                        System.arraycopy(block, lineEnd + 1, next, 0, filled);
+                        block = next;
+                    }
+                }
+                if (filled > 0) {
+                    blocks.put(ByteBuffer.wrap(block, 0, filled).slice());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                try {
+                    blocks.put(END);
+                } catch (InterruptedException e) {
+                    // closed
+                }
+            }
+        }
+
+        private static int lastLineBreak(byte[] block, int length) {
+            for (int i = length - 1; i >= 0; i--) {
+                if (block[i] == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        protected ByteBuffer readBlock() throws IOException {
+            if (finished) {
+                return null;
+            }
+            ByteBuffer block;
+            try {
+                block = blocks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while decompressing");
+            }
+            if (block == END) {
+                finished = true;
+                Throwable cause = failure;
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                } else if (cause != null) {
+                    throw new IOException("Decompression failed", cause);
+                }
+                return null;
+            }
+            return block;
+        }
+
+        @Override
+        public void close() throws IOException {
+            thread.interrupt();
+            input.close();
+        }
+    }
+}
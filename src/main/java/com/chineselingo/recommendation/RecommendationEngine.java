@@ -3,12 +3,6 @@ package com.chineselingo.recommendation;
 import com.chineselingo.graph.GraphManager;
 import com.chineselingo.user.UserState;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
-import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
-
-import java.util.ArrayList;
-import java.util.BitSet;
-import java.util.Comparator;
-import java.util.List;
 
 /**
  * Recommendation engine for suggesting the next best character to learn.
@@ -63,6 +57,13 @@ public class RecommendationEngine {
     /**
      * Recommends the top N characters to learn based on user's known characters.
      * 
+     * Candidates are read from the user's {@link RecommendationFrontier}, which is seeded on the
+     * first call for a user and then updated as characters become known, so the cost does not
+     * grow with the number of known characters. Every user keeps their own frontier. Candidates are sorted by frequency (descending),
+     * then by character ID (ascending). Without any candidate (a new user, or one whose known
+     * characters have no learnable compounds) the most frequent unknown characters are
+     * recommended instead.
+     * 
      * @param userState the user's current learning state
      * @param n the number of recommendations to return
      * @return list of recommended character IDs (may be less than n if fewer candidates available)
@@ -75,105 +76,33 @@ public class RecommendationEngine {
             throw new IllegalArgumentException("n must be positive");
         }
 
-        // Collect all learnable candidates
-        IntOpenHashSet candidates = new IntOpenHashSet();
-        
-        // Get known characters once to avoid multiple clones
-        BitSet knownChars = userState.getKnownChars();
-        
-        // Iterate through known characters and find compounds that contain them
-        for (int knownCharId = knownChars.nextSetBit(0); 
-             knownCharId >= 0; 
-             knownCharId = knownChars.nextSetBit(knownCharId + 1)) {
-            
-            IntArrayList compounds = graphManager.getCompoundsForComponent(knownCharId);
-            if (compounds != null) {
-                for (int compound : compounds) {
-                    // Skip if already known
-                    if (userState.isKnown(compound)) {
-                        continue;
-                    }
-                    
-                    // Check if compound meets mode requirements
-                    if (isLearnable(compound, userState)) {
-                        candidates.add(compound);
-                    }
-                }
-            }
-        }
-
-        // Convert to list and sort by frequency (descending) then by charId (ascending)
-        List<CharFrequency> candidateList = new ArrayList<>();
-        for (int candidateId : candidates) {
-            int frequency = graphManager.getFrequency(candidateId);
-            candidateList.add(new CharFrequency(candidateId, frequency));
-        }
-
-        if(candidateList.isEmpty()) {
-            int candidateId= graphManager.getMostFrequent();
-            int frequency = graphManager.getFrequency(candidateId);
-            candidateList.add(new CharFrequency(candidateId, frequency));
-        }
-
-        candidateList.sort(Comparator
-            .<CharFrequency>comparingInt(cf -> cf.frequency)
-            .reversed()
-            .thenComparingInt(cf -> cf.charId));
-
-        // Return top N
-        IntArrayList result = new IntArrayList();
-        int limit = Math.min(n, candidateList.size());
-        for (int i = 0; i < limit; i++) {
-            result.add(candidateList.get(i).charId);
+        IntArrayList result = frontier(userState).top(n);
+        if (result.isEmpty()) {
+            return mostFrequentUnknown(userState, n);
         }
-        
         return result;
     }
 
     /**
-     * Checks if a compound character is learnable based on the current mode.
-     * 
-     * @param compoundId the compound character ID
-     * @param userState the user's current learning state
-     * @return true if the compound is learnable
+     * Walks the characters in frequency rank order and takes the first {@code n} unknown ones.
      */
-    private boolean isLearnable(int compoundId, UserState userState) {
-        IntArrayList components = graphManager.getComponentsForCompound(compoundId);
-        
-        // If no components defined, not learnable through this mechanism
-        if (components == null || components.isEmpty()) {
-            return false;
-        }
-
-        if (mode == RecommendationMode.STRICT) {
-            // All components must be known
-            for (int componentId : components) {
-                if (!userState.isKnown(componentId)) {
-                    return false;
-                }
-            }
-            return true;
-        } else { // LENIENT
-            // At least one component must be known
-            for (int componentId : components) {
-                if (userState.isKnown(componentId)) {
-                    return true;
-                }
+    private IntArrayList mostFrequentUnknown(UserState userState, int n) {
+        int rankedCount = graphManager.getRankedCount();
+        IntArrayList result = new IntArrayList(Math.min(n, rankedCount));
+        for (int rank = 0; rank < rankedCount && result.size() < n; rank++) {
+            int charId = graphManager.getCharByRank(rank);
+            if (!userState.isKnown(charId)) {
+                result.add(charId);
             }
-            return false;
         }
+        return result;
     }
 
     /**
-     * Helper class for sorting characters by frequency and ID.
+     * Gets the frontier of a user for this engine's data version. A frontier dropped when the data
+     * was reloaded is seeded again.
      */
-    private static class CharFrequency {
-        final int charId;
-        final int frequency;
-
-        CharFrequency(int charId, int frequency) {
-            this.charId = charId;
-            this.frequency = frequency;
-        }
+    private synchronized RecommendationFrontier frontier(UserState userState) {
+        return RecommendationFrontier.of(graphManager, mode, userState);
     }
 }
@@ -0,0 +1,176 @@
+package com.chineselingo.recommendation;
+
+import com.chineselingo.data.StaticData;
+import com.chineselingo.graph.GraphManager;
+import com.chineselingo.recommendation.RecommendationEngine.RecommendationMode;
+import com.chineselingo.user.UserState;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntBidirectionalIterator;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.ints.IntRBTreeSet;
+
+import java.util.BitSet;
+
+/**
+ * Per-user set of learnable characters (the frontier), kept in recommendation order.
+ *
+ * The frontier is seeded once by walking the compounds of every known character. Afterwards it
+ * follows the user state as a {@link UserState.KnownListener}: a newly known character leaves the
+ * frontier and only its own compounds are checked for becoming learnable. This relies on the
+ * component graph being symmetric (a compound lists a component exactly when the component lists
+ * the compound), which holds for graphs parsed from IDS data. Known characters never become unknown,
+ * so no other character can enter or leave.
+ *
+ * Candidates are ordered by descending frequency, then ascending character ID, which is the
+ * precomputed {@link GraphManager#getFrequencyRank(int) frequency rank}; the tree holds ranks, so
+ * the best candidate is found in O(log n) and the top N are its first N entries. Methods are
+ * synchronized, so the frontier may be read on another thread than the one marking characters.
+ */
+public class RecommendationFrontier implements UserState.KnownListener {
+    private final GraphManager graphManager;
+    // Adjacency lists are read in place; GraphManager would copy one per call
+    private final StaticData staticData;
+    private final RecommendationMode mode;
+    private final UserState state;
+    private final IntRBTreeSet candidates = new IntRBTreeSet();
+
+    private RecommendationFrontier(GraphManager graphManager, RecommendationMode mode, UserState state) {
+        this.graphManager = graphManager;
+        this.staticData = graphManager.getStaticData();
+        this.mode = mode;
+        this.state = state;
+        BitSet knownChars = state.getKnownChars();
+        for (int knownCharId = knownChars.nextSetBit(0);
+             knownCharId >= 0;
+             knownCharId = knownChars.nextSetBit(knownCharId + 1)) {
+            addCompounds(knownCharId);
+        }
+    }
+
+    /**
+     * Seeds the frontier of a user and keeps it current as characters become known.
+     *
+     * @param graphManager the component graph
+     * @param mode how many components of a compound must be known
+     * @param state the user's learning state
+     * @return the attached frontier
+     */
+    public static RecommendationFrontier attach(GraphManager graphManager, RecommendationMode mode, UserState state) {
+        RecommendationFrontier frontier = new RecommendationFrontier(graphManager, mode, state);
+        state.addKnownListener(frontier);
+        return frontier;
+    }
+
+    /**
+     * Finds the frontier of a user for a graph and mode, seeding and attaching it on first use.
+     * The frontier is registered on the user state and belongs to one data version: it is seeded
+     * again only after {@link UserState#remapIds(int[])} or {@link UserState#clearKnownListeners()}
+     * dropped it, which happens whenever the data is reloaded.
+     *
+     * @param graphManager the component graph
+     * @param mode how many components of a compound must be known
+     * @param state the user's learning state
+     * @return the attached frontier
+     */
+    static RecommendationFrontier of(GraphManager graphManager, RecommendationMode mode, UserState state) {
+        RecommendationFrontier frontier = state.findKnownListener(RecommendationFrontier.class,
+                candidate -> candidate.graphManager == graphManager && candidate.mode == mode);
+        return frontier != null ? frontier : attach(graphManager, mode, state);
+    }
+
+    /**
+     * Stops following the user state.
+     */
+    public void detach() {
+        state.removeKnownListener(this);
+    }
+
+    /**
+     * @return true while the frontier follows its user state; a remapped state drops its listeners
+     */
+    public boolean isAttached() {
+        return state.hasKnownListener(this);
+    }
+
+    @Override
+    public synchronized void onMarkedKnown(int charId) {
+        candidates.remove(graphManager.getFrequencyRank(charId));
+        addCompounds(charId);
+    }
+
+    /**
+     * Adds the learnable, unknown compounds of a known character.
+     */
+    private void addCompounds(int knownCharId) {
+        IntList compounds = staticData.getCompoundsContaining(knownCharId);
+        if (compounds == null) {
+            return;
+        }
+        for (int i = 0; i < compounds.size(); i++) {
+            int compound = compounds.getInt(i);
+            if (!state.isKnown(compound) && isLearnable(compound)) {
+                candidates.add(graphManager.getFrequencyRank(compound));
+            }
+        }
+    }
+
+    /**
+     * Checks if a compound character is learnable based on the current mode.
+     *
+     * @param compoundId the compound character ID
+     * @return true if the compound is learnable
+     */
+    private boolean isLearnable(int compoundId) {
+        IntList components = staticData.getComponents(compoundId);
+
+        // If no components defined, not learnable through this mechanism
+        if (components == null || components.isEmpty()) {
+            return false;
+        }
+
+        if (mode == RecommendationMode.STRICT) {
+            // All components must be known
+            for (int i = 0; i < components.size(); i++) {
+                if (!state.isKnown(components.getInt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        } else { // LENIENT
+            // At least one component must be known
+            for (int i = 0; i < components.size(); i++) {
+                if (state.isKnown(components.getInt(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @return the best candidate, or -1 if the frontier is empty
+     */
+    public synchronized int first() {
+        return candidates.isEmpty() ? -1 : graphManager.getCharByRank(candidates.firstInt());
+    }
+
+    /**
+     * @param n maximum number of candidates
+     * @return the best {@code n} candidates, best first
+     */
+    public synchronized IntArrayList top(int n) {
+        IntArrayList result = new IntArrayList(Math.min(n, candidates.size()));
+        IntBidirectionalIterator ranks = candidates.iterator();
+        while (result.size() < n && ranks.hasNext()) {
+            result.add(graphManager.getCharByRank(ranks.nextInt()));
+        }
+        return result;
+    }
+
+    /**
+     * @return number of learnable characters
+     */
+    public synchronized int size() {
+        return candidates.size();
+    }
+}
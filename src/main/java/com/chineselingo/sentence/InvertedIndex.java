@@ -1,14 +1,34 @@
 package com.chineselingo.sentence;
 
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MappeableContainerPointer;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Inverted index mapping character IDs to sentence IDs using RoaringBitmap.
  * Enables efficient lookup of all sentences containing a specific character.
+ *
+ * The index is built with {@link #addEntry(int, int)} and then sealed: every bitmap is
+ * serialized in Roaring's portable format into one buffer, indexed by a charId -> offset
+ * directory, and served as {@link ImmutableRoaringBitmap} views of that buffer. A snapshot stores
+ * the directory and buffer as written, so {@link #readFrom(ByteBuffer)} only slices the
+ * memory-mapped file; nothing is deserialized and JVMs mapping the same snapshot share its pages.
+ *
+ * Sealing happens on the first lookup, or explicitly with {@link #seal()}; entries cannot be
+ * added afterwards. A sealed index is safe for concurrent readers. Large indexes are built with
+ * {@link InvertedIndexBuilder} rather than one {@link #addEntry(int, int)} per posting.
  */
 public class InvertedIndex {
-    private final Int2ObjectOpenHashMap<RoaringBitmap> charToSentences;
+    private static final ImmutableRoaringBitmap EMPTY = view(new RoaringBitmap());
+
+    private Int2ObjectOpenHashMap<RoaringBitmap> charToSentences;
+    private volatile Sealed sealed;
 
     /**
      * Creates an empty InvertedIndex.
@@ -17,13 +37,21 @@ public class InvertedIndex {
         this.charToSentences = new Int2ObjectOpenHashMap<>();
     }
 
+    private InvertedIndex(Sealed sealed) {
+        this.sealed = sealed;
+    }
+
     /**
      * Adds a (charId, sentenceId) pair to the index.
-     * 
+     *
      * @param charId the character ID
      * @param sentenceId the sentence ID containing this character
+     * @throws IllegalStateException if the index is already sealed
      */
     public void addEntry(int charId, int sentenceId) {
+        if (sealed != null) {
+            throw new IllegalStateException("Inverted index is sealed");
+        }
         RoaringBitmap bitmap = charToSentences.get(charId);
         if (bitmap == null) {
             bitmap = new RoaringBitmap();
@@ -34,21 +62,283 @@ public class InvertedIndex {
 
     /**
      * Gets all sentence IDs containing a specific character.
-     * 
+     *
      * @param charId the character ID to look up
-     * @return RoaringBitmap of sentence IDs, or empty bitmap if character not found
+     * @return read-only bitmap of sentence IDs, or an empty bitmap if character not found
      */
-    public RoaringBitmap getSentencesForChar(int charId) {
-        RoaringBitmap bitmap = charToSentences.get(charId);
-        return bitmap != null ? bitmap : new RoaringBitmap();
+    public ImmutableRoaringBitmap getSentencesForChar(int charId) {
+        Sealed index = sealed();
+        int slot = index.find(charId);
+        return slot < 0 ? EMPTY : index.views[slot];
+    }
+
+    /**
+     * @param slot position in ascending character order, below {@link #size()}
+     * @return the character ID at that position
+     */
+    int charIdAt(int slot) {
+        return sealed().charIds[slot];
+    }
+
+    /**
+     * @param slot position in ascending character order, below {@link #size()}
+     * @return the sentences of the character at that position
+     */
+    ImmutableRoaringBitmap sentencesAt(int slot) {
+        return sealed().views[slot];
     }
 
     /**
      * Returns the number of unique characters indexed.
-     * 
+     *
      * @return count of indexed characters
      */
     public int size() {
-        return charToSentences.size();
+        Sealed index = sealed;
+        return index != null ? index.charIds.length : charToSentences.size();
+    }
+
+    /**
+     * Seals the index once it is complete, see {@link InvertedIndex}. Later calls have no effect.
+     * Loading calls this so the first lookup does not pay for it.
+     */
+    public void seal() {
+        sealed();
+    }
+
+    /**
+     * Merges bulk-built bitmaps into the index and seals it.
+     *
+     * @param charIds character IDs
+     * @param bitmaps sentences of {@code charIds[i]}; taken over by the index
+     * @throws IllegalStateException if the index is already sealed
+     */
+    synchronized void seal(int[] charIds, RoaringBitmap[] bitmaps) {
+        if (sealed != null) {
+            throw new IllegalStateException("Inverted index is sealed");
+        }
+        for (int i = 0; i < charIds.length; i++) {
+            RoaringBitmap existing = charToSentences.get(charIds[i]);
+            if (existing != null) {
+                existing.or(bitmaps[i]);
+            } else {
+                charToSentences.put(charIds[i], bitmaps[i]);
+            }
+        }
+        sealed = Sealed.of(charToSentences);
+        charToSentences = null;
+    }
+
+    /**
+     * Computes the size and container make-up of the sealed index.
+     *
+     * @return the statistics
+     */
+    public Stats getStats() {
+        Sealed index = sealed();
+        long postings = 0;
+        int arrays = 0;
+        int bitmaps = 0;
+        int runs = 0;
+        for (ImmutableRoaringBitmap view : index.views) {
+            postings += view.getLongCardinality();
+            MappeableContainerPointer containers = view.getContainerPointer();
+            for (; containers.hasContainer(); containers.advance()) {
+                if (containers.isRunContainer()) {
+                    runs++;
+                } else if (containers.isBitmapContainer()) {
+                    bitmaps++;
+                } else {
+                    arrays++;
+                }
+            }
+        }
+        return new Stats(index.charIds.length, postings, index.data.capacity(), arrays, bitmaps, runs);
+    }
+
+    /**
+     * Serializes all bitmaps into the immutable form used for lookups, unless already done.
+     *
+     * @return the sealed tables
+     */
+    private Sealed sealed() {
+        Sealed index = sealed;
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            if (sealed == null) {
+                sealed = Sealed.of(charToSentences);
+                charToSentences = null;
+            }
+            return sealed;
+        }
+    }
+
+    /**
+     * Writes the sealed index: count, the sorted character IDs, their bitmap offsets (count + 1,
+     * relative to the bitmap data) and the bitmap data in Roaring's portable format.
+     *
+     * @param out the output to write to
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        Sealed index = sealed();
+        out.writeInt(index.charIds.length);
+        for (int charId : index.charIds) {
+            out.writeInt(charId);
+        }
+        for (int offset : index.offsets) {
+            out.writeInt(offset);
+        }
+        ByteBuffer data = index.data;
+        if (data.hasArray()) {
+            out.write(data.array(), data.arrayOffset(), data.capacity());
+        } else {
+            byte[] chunk = new byte[Math.min(data.capacity(), 1 << 16)];
+            for (int offset = 0; offset < data.capacity(); offset += chunk.length) {
+                int length = Math.min(chunk.length, data.capacity() - offset);
+                data.get(offset, chunk, 0, length);
+                out.write(chunk, 0, length);
+            }
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #writeTo(DataOutput)}, advancing the buffer past it.
+     * The bitmaps remain views of {@code buffer}, which must stay unchanged while the index is used.
+     *
+     * @param buffer the buffer positioned at the start of the index
+     * @return the restored, sealed index
+     */
+    public static InvertedIndex readFrom(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        int[] charIds = readInts(buffer, count);
+        int[] offsets = readInts(buffer, count + 1);
+        int length = offsets[count];
+        ByteBuffer data = buffer.slice(buffer.position(), length).asReadOnlyBuffer();
+        buffer.position(buffer.position() + length);
+        return new InvertedIndex(new Sealed(charIds, offsets, data));
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    private static ImmutableRoaringBitmap view(RoaringBitmap bitmap) {
+        ByteBuffer data = ByteBuffer.allocate(bitmap.serializedSizeInBytes());
+        bitmap.serialize(data);
+        return new ImmutableRoaringBitmap(data.flip());
+    }
+
+    /**
+     * Size and container make-up of a sealed index.
+     */
+    public static final class Stats {
+        private final int characters;
+        private final long postings;
+        private final long bytes;
+        private final int arrayContainers;
+        private final int bitmapContainers;
+        private final int runContainers;
+
+        Stats(int characters, long postings, long bytes, int arrayContainers, int bitmapContainers,
+              int runContainers) {
+            this.characters = characters;
+            this.postings = postings;
+            this.bytes = bytes;
+            this.arrayContainers = arrayContainers;
+            this.bitmapContainers = bitmapContainers;
+            this.runContainers = runContainers;
+        }
+
+        /**
+         * @return number of indexed characters
+         */
+        public int getCharacters() {
+            return characters;
+        }
+
+        /**
+         * @return total number of (character, sentence) pairs
+         */
+        public long getPostings() {
+            return postings;
+        }
+
+        /**
+         * @return serialized size of all bitmaps, as held in memory or in the mapped snapshot
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        public int getArrayContainers() {
+            return arrayContainers;
+        }
+
+        public int getBitmapContainers() {
+            return bitmapContainers;
+        }
+
+        public int getRunContainers() {
+            return runContainers;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d characters, %d postings, %d KB (%.2f bytes/posting), "
+                            + "containers: %d array, %d bitmap, %d run",
+                    characters, postings, bytes >> 10, postings == 0 ? 0.0 : (double) bytes / postings,
+                    arrayContainers, bitmapContainers, runContainers);
+        }
+    }
+
+    /**
+     * Immutable form: sorted character IDs, the bitmap of charIds[i] at
+     * [offsets[i], offsets[i + 1]) of data, and a view per bitmap.
+     */
+    private static final class Sealed {
+        final int[] charIds;
+        final int[] offsets;
+        final ByteBuffer data;
+        final ImmutableRoaringBitmap[] views;
+
+        Sealed(int[] charIds, int[] offsets, ByteBuffer data) {
+            if (offsets.length != charIds.length + 1 || offsets[charIds.length] != data.capacity()) {
+                throw new IllegalArgumentException("Inverted index directory does not match its data");
+            }
+            this.charIds = charIds;
+            this.offsets = offsets;
+            this.data = data;
+            this.views = new ImmutableRoaringBitmap[charIds.length];
+            for (int i = 0; i < charIds.length; i++) {
+                views[i] = new ImmutableRoaringBitmap(data.slice(offsets[i], offsets[i + 1] - offsets[i]));
+            }
+        }
+
+        static Sealed of(Int2ObjectOpenHashMap<RoaringBitmap> charToSentences) {
+            int[] charIds = charToSentences.keySet().toIntArray();
+            IntArrays.quickSort(charIds);
+            int[] offsets = new int[charIds.length + 1];
+            for (int i = 0; i < charIds.length; i++) {
+                RoaringBitmap bitmap = charToSentences.get(charIds[i]);
+                bitmap.runOptimize();
+                offsets[i + 1] = Math.addExact(offsets[i], bitmap.serializedSizeInBytes());
+            }
+            ByteBuffer data = ByteBuffer.allocate(offsets[charIds.length]);
+            for (int charId : charIds) {
+                charToSentences.get(charId).serialize(data);
+            }
+            return new Sealed(charIds, offsets, data.clear());
+        }
+
+        int find(int charId) {
+            int slot = IntArrays.binarySearch(charIds, charId);
+            return slot >= 0 ? slot : -1;
+        }
     }
 }
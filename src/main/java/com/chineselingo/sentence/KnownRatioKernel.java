@@ -0,0 +1,123 @@
+package com.chineselingo.sentence;
+
+import com.chineselingo.user.UserState;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Counts the known and total characters of stored sentences without data-dependent branches.
+ *
+ * The user's known characters are copied once into a {@code long[]} of bits followed by one zero
+ * word. Tokens are read in place from the {@link SentenceStore} token column; each costs a mask
+ * for {@link SentenceParser#UNKNOWN_ID}, a clamped word load, a shift and a compare-free target
+ * test, all folded into two sums, so mispredicted branches do not dominate when millions of
+ * sentences are scored. Character IDs beyond the copied bits read the zero word and count as
+ * unknown.
+ *
+ * {@link #create} returns the SIMD {@link VectorKnownRatioKernel} when the
+ * {@code jdk.incubator.vector} module is loaded ({@code --add-modules jdk.incubator.vector}) and
+ * not disabled with {@code -D}{@value #VECTOR_PROPERTY}{@code =false}; this class is the scalar
+ * fallback.
+ *
+ * The kernel reflects the known characters at creation; it is immutable and may be shared
+ * between threads.
+ */
+class KnownRatioKernel {
+    /** System property that disables the vector kernel when set to {@code false}. */
+    static final String VECTOR_PROPERTY = "chineselingo.vectorKernel";
+
+    private static final boolean VECTOR_AVAILABLE =
+            ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+                    && !"false".equalsIgnoreCase(System.getProperty(VECTOR_PROPERTY));
+
+    final long[] knownWords;
+    final int limit;
+    final int targetCharId;
+
+    /**
+     * Creates the scalar kernel.
+     *
+     * @param state the user's learning state
+     * @param targetCharId character counted as known, or {@link SentenceParser#UNKNOWN_ID} for none
+     */
+    KnownRatioKernel(UserState state, int targetCharId) {
+        long[] words = state.getKnownChars().toLongArray();
+        this.knownWords = Arrays.copyOf(words, words.length + 1);
+        this.limit = words.length * Long.SIZE;
+        this.targetCharId = targetCharId;
+    }
+
+    /**
+     * Creates the fastest kernel available in this JVM.
+     *
+     * @param state the user's learning state
+     * @param targetCharId character counted as known, or {@link SentenceParser#UNKNOWN_ID} for none
+     * @return the vector kernel if available, else the scalar one
+     */
+    static KnownRatioKernel create(UserState state, int targetCharId) {
+        return VECTOR_AVAILABLE
+                ? VectorKnownRatioKernel.create(state, targetCharId)
+                : new KnownRatioKernel(state, targetCharId);
+    }
+
+    /**
+     * @return true if {@link #create} returns the vector kernel
+     */
+    static boolean isVectorAvailable() {
+        return VECTOR_AVAILABLE;
+    }
+
+    /**
+     * Scores one sentence.
+     *
+     * @param store the store holding the sentence
+     * @param sentenceId the sentence ID, must exist
+     * @return known characters (the target included) in the high 32 bits, characters other than
+     *         {@link SentenceParser#UNKNOWN_ID} in the low 32 bits
+     */
+    long score(SentenceStore store, int sentenceId) {
+        return score(store.tokenColumn(), store.tokenWidth() == Integer.BYTES,
+                store.tokenStart(sentenceId), store.tokenStart(sentenceId + 1));
+    }
+
+    /**
+     * Scores the tokens [from, to) of a token column.
+     */
+    final long score(ByteBuffer column, boolean wide, int from, int to) {
+        long score = 0;
+        if (wide) {
+            for (int i = from; i < to; i++) {
+                score += count(column.getInt(i * Integer.BYTES));
+            }
+        } else {
+            for (int i = from; i < to; i++) {
+                int token = column.getChar(i * Character.BYTES);
+                // 0xFFFF is the narrow UNKNOWN_ID
+                score += count(token | -((token + 1) >>> 16));
+            }
+        }
+        return score;
+    }
+
+    /**
+     * @return the score of a single token
+     */
+    private long count(int charId) {
+        // 1 for a character, 0 for UNKNOWN_ID (the only negative token)
+        int valid = ~charId >>> 31;
+        int bit = Math.min(charId & -valid, limit);
+        int difference = charId ^ targetCharId;
+        int isTarget = ((difference - 1) & ~difference) >>> 31;
+        int known = ((int) (knownWords[bit >>> 6] >>> bit) & 1 | isTarget) & valid;
+        return ((long) known << 32) | valid;
+    }
+
+    static int known(long score) {
+        return (int) (score >>> 32);
+    }
+
+    static int total(long score) {
+        return (int) score;
+    }
+}
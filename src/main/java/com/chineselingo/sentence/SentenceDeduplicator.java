@@ -0,0 +1,281 @@
+package com.chineselingo.sentence;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+
+/**
+ * Drops near-duplicate sentences while a {@link SentenceStore} is filled, keeping the first
+ * sentence of each cluster as its representative.
+ *
+ * Sentences are compared as sets of shingles: the character bigrams of the sentence with a begin
+ * and an end marker added, so a sentence of n characters has n + 1 shingles.
+ * {@link SentenceParser#UNKNOWN_ID} tokens such as punctuation are skipped, so sentences that
+ * differ only in punctuation are identical. Character order matters: 我爱你 and 你爱我 share no
+ * shingle. One extra particle in a sentence of five characters gives a Jaccard similarity of 5/8,
+ * while replacing one of its characters gives 4/8.
+ *
+ * A similar sentence is only dropped if every character it contains also occurs in the
+ * representative, since a sentence introducing a character teaches something its representative
+ * cannot: 我不是学生 is kept after 我是学生 at any similarity.
+ *
+ * Each sentence gets a MinHash signature of {@value #HASHES} values, split into {@value #BANDS}
+ * bands of {@value #ROWS} rows (locality-sensitive hashing). A sentence sharing any band with a
+ * representative is a candidate; candidates are confirmed by their exact Jaccard similarity
+ * against the shingles of the representative's stored tokens, and by the character check above,
+ * so no sentence is dropped on a hash collision. At the default similarity of 0.6 a true duplicate shares a band with probability
+ * above 97%.
+ *
+ * Not thread-safe; sentences must be offered in the order they are added to the store.
+ */
+public class SentenceDeduplicator {
+    /** Similarity from which sentences count as duplicates by default. */
+    public static final double DEFAULT_SIMILARITY = 0.6;
+
+    private static final int HASHES = 48;
+    private static final int ROWS = 3;
+    private static final int BANDS = HASHES / ROWS;
+    private static final long[] SEEDS = new long[HASHES];
+    /** Shingle markers for the sentence boundaries; never valid character IDs. */
+    private static final int BEGIN = -2;
+    private static final int END = -3;
+
+    static {
+        for (int i = 0; i < HASHES; i++) {
+            SEEDS[i] = mix(0x9E3779B97F4A7C15L * (i + 1));
+        }
+    }
+
+    private final double similarity;
+    private final Long2IntOpenHashMap[] bands = new Long2IntOpenHashMap[BANDS];
+    private final int[] signature = new int[HASHES];
+    private final long[] keys = new long[BANDS];
+    private final IntOpenHashSet clusters = new IntOpenHashSet();
+    private long[] candidate = new long[32];
+    private long[] representative = new long[32];
+    private int[] tokens = new int[32];
+    private int[] candidateCharacters = new int[32];
+    private int[] representativeCharacters = new int[32];
+    private int examined;
+    private int removed;
+
+    /**
+     * Creates a deduplicator with {@link #DEFAULT_SIMILARITY}.
+     */
+    public SentenceDeduplicator() {
+        this(DEFAULT_SIMILARITY);
+    }
+
+    /**
+     * @param similarity Jaccard similarity of the shingles (0 exclusive to 1.0) from which sentences
+     *                   are duplicates
+     */
+    public SentenceDeduplicator(double similarity) {
+        if (!(similarity > 0.0 && similarity <= 1.0)) {
+            throw new IllegalArgumentException("Similarity must be in (0, 1]: " + similarity);
+        }
+        this.similarity = similarity;
+        for (int band = 0; band < BANDS; band++) {
+            bands[band] = new Long2IntOpenHashMap();
+            bands[band].defaultReturnValue(-1);
+        }
+    }
+
+    /**
+     * Decides whether a sentence is kept. A kept sentence becomes a representative under the ID
+     * {@code store.size()}, so the caller must add it to the store next.
+     *
+     * @param store the store holding every sentence kept so far
+     * @param tokens array holding the sentence's character IDs
+     * @param from first token of the sentence
+     * @param to exclusive end of the sentence's tokens
+     * @return true if the sentence should be added, false if it duplicates a kept sentence
+     */
+    public boolean accept(SentenceStore store, int[] tokens, int from, int to) {
+        examined++;
+        if (candidate.length < to - from + 1) {
+            candidate = new long[to - from + 1];
+        }
+        int size = shingles(tokens, from, to, candidate);
+        if (size == 0) {
+            return true;
+        }
+        for (int i = 0; i < HASHES; i++) {
+            long min = Long.MAX_VALUE;
+            for (int s = 0; s < size; s++) {
+                min = Math.min(min, mix(candidate[s] ^ SEEDS[i]));
+            }
+            signature[i] = (int) (min >>> 32);
+        }
+
+        for (int band = 0; band < BANDS; band++) {
+            keys[band] = bandKey(band);
+            int representativeId = bands[band].get(keys[band]);
+            if (representativeId >= 0 && isDuplicate(store, representativeId, size)) {
+                removed++;
+                clusters.add(representativeId);
+                return false;
+            }
+        }
+        int sentenceId = store.size();
+        for (int band = 0; band < BANDS; band++) {
+            bands[band].putIfAbsent(keys[band], sentenceId);
+        }
+        return true;
+    }
+
+    /**
+     * Collects the sorted distinct shingles of a sentence, each a pair of adjacent character IDs
+     * packed into a {@code long}, with the boundary markers {@link #BEGIN} and {@link #END}.
+     *
+     * @param shingles array of at least {@code to - from + 1} entries
+     * @return number of distinct shingles, 0 if the sentence has no characters
+     */
+    private static int shingles(int[] tokens, int from, int to, long[] shingles) {
+        int size = 0;
+        int previous = BEGIN;
+        for (int i = from; i < to; i++) {
+            if (tokens[i] != SentenceParser.UNKNOWN_ID) {
+                shingles[size++] = shingle(previous, tokens[i]);
+                previous = tokens[i];
+            }
+        }
+        if (size == 0) {
+            return 0;
+        }
+        shingles[size++] = shingle(previous, END);
+        return unique(shingles, size);
+    }
+
+    private static long shingle(int first, int second) {
+        return (long) first << 32 | (second & 0xFFFFFFFFL);
+    }
+
+    private boolean isDuplicate(SentenceStore store, int representativeId, int size) {
+        int length = store.length(representativeId);
+        if (tokens.length < length) {
+            tokens = new int[length];
+        }
+        if (representative.length < length + 1) {
+            representative = new long[length + 1];
+        }
+        int other = shingles(tokens, 0, store.copyTokens(representativeId, tokens), representative);
+
+        int shared = 0;
+        for (int i = 0, j = 0; i < size && j < other; ) {
+            if (candidate[i] == representative[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (candidate[i] < representative[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        if (shared < similarity * (size + other - shared)) {
+            return false;
+        }
+
+        if (candidateCharacters.length < size) {
+            candidateCharacters = new int[size];
+        }
+        if (representativeCharacters.length < other) {
+            representativeCharacters = new int[other];
+        }
+        int candidateCount = characters(candidate, size, candidateCharacters);
+        int representativeCount = characters(representative, other, representativeCharacters);
+        for (int i = 0, j = 0; i < candidateCount; i++) {
+            while (j < representativeCount && representativeCharacters[j] < candidateCharacters[i]) {
+                j++;
+            }
+            if (j == representativeCount || representativeCharacters[j] != candidateCharacters[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collects the sorted distinct characters of a sentence: the second character of each shingle
+     * other than the end shingle.
+     *
+     * @return number of distinct characters
+     */
+    private static int characters(long[] shingles, int size, int[] characters) {
+        int count = 0;
+        for (int s = 0; s < size; s++) {
+            int second = (int) shingles[s];
+            if (second != END) {
+                characters[count++] = second;
+            }
+        }
+        IntArrays.quickSort(characters, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || characters[i] != characters[distinct - 1]) {
+                characters[distinct++] = characters[i];
+            }
+        }
+        return distinct;
+    }
+
+    private static int unique(long[] values, int count) {
+        LongArrays.quickSort(values, 0, count);
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (size == 0 || values[i] != values[size - 1]) {
+                values[size++] = values[i];
+            }
+        }
+        return size;
+    }
+
+    private long bandKey(int band) {
+        long key = band;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+            key = key * 0x9E3779B97F4A7C15L + signature[row];
+        }
+        return key;
+    }
+
+    /**
+     * MurmurHash3 64-bit finalizer.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB93FE53B97CBL;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * @return number of sentences offered
+     */
+    public int getExamined() {
+        return examined;
+    }
+
+    /**
+     * @return number of sentences dropped as near-duplicates
+     */
+    public int getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return number of kept sentences that at least one dropped sentence duplicated
+     */
+    public int getClusters() {
+        return clusters.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("removed %d of %d sentences (%.1f%%) in %d clusters",
+                removed, examined, examined == 0 ? 0.0 : 100.0 * removed / examined, clusters.size());
+    }
+}
@@ -1,23 +1,68 @@
 package com.chineselingo.sentence;
 
 import com.chineselingo.user.UserState;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
-import org.roaringbitmap.RoaringBitmap;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.buffer.BufferFastAggregation;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MappeableContainerPointer;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Filters and ranks sentences for "i+1" learning.
  * 
  * An i+1 sentence contains exactly one unknown target character,
  * with all other characters being known to the user.
+ *
+ * Every search has a paged variant taking an offset and a limit. Ranked candidates go through a
+ * bounded heap of {@code offset + limit} entries (see {@link TopSentences}), so a page of a
+ * character with tens of thousands of sentences neither sorts nor boxes all of them.
+ *
+ * Strict searches (threshold 1.0) can also be answered with bitmap algebra: the target's postings
+ * minus the sentences holding another unknown character. {@link #plan} picks between that and
+ * scanning the tokens of every candidate; both give the same results.
+ *
+ * A filter created with a {@link ForkJoinPool} scans targets with very many sentences in
+ * parallel: the postings are split into ranges of whole Roaring containers (blocks of 65536
+ * sentence IDs), each range fills its own top-K heap, and the heaps are merged. The page is
+ * identical to a serial scan.
+ *
+ * If the store is {@link SentenceStore#isLengthOrdered() length-ordered}, postings are already
+ * iterated in ranking order, so every search stops as soon as its page is complete.
  */
 public class SentenceFilter {
+    /**
+     * How a search selects its sentences.
+     */
+    public enum Plan {
+        /** Tokens of every sentence containing the target are checked. */
+        SCAN,
+        /** Sentences are selected with bitmap operations on the user's unknown-sentence bitmaps. */
+        BITMAP
+    }
+
+    /** Estimated cost of one bitmap operation while building the unknown-sentence bitmaps, in tokens. */
+    private static final int BITMAP_OP_COST = 64;
+
+    /** Fewest candidate sentences worth scanning in parallel. */
+    private static final int MIN_PARALLEL_CANDIDATES = 1 << 15;
+    /** Ranges per pool thread, so uneven ranges still balance. */
+    private static final int RANGES_PER_THREAD = 4;
+    /** Exclusive end of the sentence ID range covered by a bitmap. */
+    private static final long ID_LIMIT = 1L << 32;
+
     private final SentenceStore store;
     private final InvertedIndex index;
     private final double defaultThreshold;
+    private final ForkJoinPool pool;
+    private final int minParallelCandidates;
 
     /**
      * Creates a SentenceFilter with default threshold of 0.90.
@@ -37,9 +82,28 @@ public class SentenceFilter {
      * @param defaultThreshold the default known character threshold (0.0 to 1.0)
      */
     public SentenceFilter(SentenceStore store, InvertedIndex index, double defaultThreshold) {
+        this(store, index, defaultThreshold, null);
+    }
+
+    /**
+     * Creates a SentenceFilter that scans targets with many sentences in parallel.
+     *
+     * @param store the sentence store
+     * @param index the inverted index
+     * @param defaultThreshold the default known character threshold (0.0 to 1.0)
+     * @param pool pool for range tasks, or null to scan on the calling thread
+     */
+    public SentenceFilter(SentenceStore store, InvertedIndex index, double defaultThreshold, ForkJoinPool pool) {
+        this(store, index, defaultThreshold, pool, MIN_PARALLEL_CANDIDATES);
+    }
+
+    SentenceFilter(SentenceStore store, InvertedIndex index, double defaultThreshold, ForkJoinPool pool,
+                   int minParallelCandidates) {
         this.store = store;
         this.index = index;
         this.defaultThreshold = defaultThreshold;
+        this.pool = pool;
+        this.minParallelCandidates = minParallelCandidates;
     }
 
     /**
@@ -70,69 +134,303 @@ public class SentenceFilter {
      * @return list of sentence IDs sorted by ranking
      */
     public List<Integer> findIPlusOneSentences(int targetCharId, UserState state, double threshold) {
-        // Get all sentences containing the target character
-        RoaringBitmap candidateSentences = index.getSentencesForChar(targetCharId);
-        
-        List<SentenceCandidate> candidates = new ArrayList<>();
-        
-        // Evaluate each candidate sentence
-        for (int sentenceId : candidateSentences) {
-            int[] tokens = store.tokens(sentenceId);
-            if (tokens == null) {
-                continue;
+        return findIPlusOneSentences(targetCharId, state, threshold, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds one page of i+1 sentences.
+     *
+     * @param targetCharId the character to learn
+     * @param state the user's learning state
+     * @param threshold the minimum proportion of known characters (0.0 to 1.0)
+     * @param offset number of best-ranked sentences to skip
+     * @param limit maximum number of sentences to return
+     * @return sentence IDs sorted by ranking, at most {@code limit}
+     */
+    public IntList findIPlusOneSentences(int targetCharId, UserState state, double threshold,
+                                         int offset, int limit) {
+        TopSentences top = new TopSentences(offset, limit);
+        if (top.isEmpty()) {
+            return new IntArrayList();
+        }
+        if (plan(targetCharId, state, threshold) == Plan.BITMAP) {
+            offerAll(top, unknownSentences(state).strictIPlusOne(targetCharId));
+            return top.toList();
+        }
+
+        ImmutableRoaringBitmap candidates = index.getSentencesForChar(targetCharId);
+        KnownRatioKernel kernel = KnownRatioKernel.create(state, targetCharId);
+        if (pool != null && candidates.getCardinality() >= minParallelCandidates) {
+            long[] bounds = containerRanges(candidates, pool.getParallelism() * RANGES_PER_THREAD);
+            int capacity = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+            top.merge(pool.invoke(new ScanRanges(candidates, bounds, 0, bounds.length - 1,
+                    kernel, threshold, capacity)));
+        } else {
+            scan(top, candidates, 0, ID_LIMIT, kernel, threshold);
+        }
+        return top.toList();
+    }
+
+    /**
+     * Evaluates the candidates in [from, to) and offers those meeting the threshold.
+     * A character counts as known if the user knows it or it is the target character;
+     * {@link SentenceParser#UNKNOWN_ID} tokens (punctuation, etc.) are not counted.
+     */
+    private void scan(TopSentences top, ImmutableRoaringBitmap candidates, int from, long to,
+                      KnownRatioKernel kernel, double threshold) {
+        boolean ordered = store.isLengthOrdered();
+        PeekableIntIterator sentenceIds = candidates.getIntIterator();
+        sentenceIds.advanceIfNeeded(from);
+        while (sentenceIds.hasNext() && Integer.toUnsignedLong(sentenceIds.peekNext()) < to
+                && !(ordered && top.isFull())) {
+            int sentenceId = sentenceIds.next();
+            long score = kernel.score(store, sentenceId);
+            int totalChars = KnownRatioKernel.total(score);
+            if (totalChars == 0) {
+                continue; // Skip empty sentences
+            }
+
+            double knownRatio = (double) KnownRatioKernel.known(score) / totalChars;
+            if (knownRatio >= threshold) {
+                top.offer(totalChars, sentenceId);
+            }
+        }
+    }
+
+    /**
+     * Splits a bitmap into at most about {@code rangeCount} ranges of whole containers with
+     * similar numbers of sentences.
+     *
+     * @return ascending boundaries; range i is [bounds[i], bounds[i + 1])
+     */
+    static long[] containerRanges(ImmutableRoaringBitmap candidates, int rangeCount) {
+        long perRange = Math.max(1, (candidates.getLongCardinality() + rangeCount - 1) / Math.max(1, rangeCount));
+        LongArrayList bounds = new LongArrayList();
+        bounds.add(0L);
+        long inRange = 0;
+        MappeableContainerPointer containers = candidates.getContainerPointer();
+        for (; containers.hasContainer(); containers.advance()) {
+            inRange += containers.getCardinality();
+            if (inRange >= perRange) {
+                bounds.add((long) (containers.key() + 1) << 16);
+                inRange = 0;
+            }
+        }
+        if (bounds.getLong(bounds.size() - 1) < ID_LIMIT) {
+            bounds.add(ID_LIMIT);
+        }
+        return bounds.toLongArray();
+    }
+
+    /**
+     * Scans ranges [bounds[from], bounds[to]) of the candidates, each range into its own heap.
+     */
+    private final class ScanRanges extends RecursiveTask<TopSentences> {
+        private final ImmutableRoaringBitmap candidates;
+        private final long[] bounds;
+        private final int from;
+        private final int to;
+        private final KnownRatioKernel kernel;
+        private final double threshold;
+        private final int capacity;
+
+        ScanRanges(ImmutableRoaringBitmap candidates, long[] bounds, int from, int to,
+                   KnownRatioKernel kernel, double threshold, int capacity) {
+            this.candidates = candidates;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+            this.kernel = kernel;
+            this.threshold = threshold;
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected TopSentences compute() {
+            if (to - from == 1) {
+                TopSentences top = new TopSentences(0, capacity);
+                scan(top, candidates, (int) bounds[from], bounds[to], kernel, threshold);
+                return top;
+            }
+            int mid = (from + to) >>> 1;
+            ScanRanges right = new ScanRanges(candidates, bounds, mid, to, kernel, threshold, capacity);
+            right.fork();
+            TopSentences top = new ScanRanges(candidates, bounds, from, mid, kernel, threshold, capacity).compute();
+            top.merge(right.join());
+            return top;
+        }
+    }
+
+    /**
+     * Chooses how {@link #findIPlusOneSentences(int, UserState, double, int, int)} evaluates a search.
+     *
+     * Only strict searches (threshold exactly 1.0) can use bitmap algebra. Each user keeps their own
+     * unknown-sentence bitmaps; once built, they are always used, since learning a character only
+     * updates the sentences containing it. Otherwise scanning costs about one step per token of the target's sentences,
+     * and building costs {@value #BITMAP_OP_COST} per unknown indexed character, so a user who knows
+     * few characters keeps scanning until a target with many sentences makes the build pay off.
+     *
+     * @param targetCharId the character to learn
+     * @param state the user's learning state
+     * @param threshold the minimum proportion of known characters (0.0 to 1.0)
+     * @return the plan
+     */
+    public Plan plan(int targetCharId, UserState state, double threshold) {
+        if (threshold != 1.0) {
+            return Plan.SCAN;
+        }
+        synchronized (this) {
+            UnknownSentences sentences = UnknownSentences.find(state, index);
+            if (sentences != null && sentences.isBuilt()) {
+                return Plan.BITMAP;
+            }
+        }
+        long averageLength = store.size() == 0 ? 1 : Math.max(1, store.tokenCount() / store.size());
+        long scanCost = index.getSentencesForChar(targetCharId).getLongCardinality() * averageLength;
+        long buildCost = (long) Math.max(0, index.size() - state.getKnownCount()) * BITMAP_OP_COST;
+        return buildCost <= scanCost ? Plan.BITMAP : Plan.SCAN;
+    }
+
+    /**
+     * @return the unknown-sentence bitmaps of a user
+     */
+    private synchronized UnknownSentences unknownSentences(UserState state) {
+        return UnknownSentences.of(state, store, index);
+    }
+
+    /**
+     * Offers every sentence of a bitmap, ranked by its number of characters.
+     */
+    private void offerAll(TopSentences top, ImmutableRoaringBitmap sentences) {
+        boolean ordered = store.isLengthOrdered();
+        PeekableIntIterator sentenceIds = sentences.getIntIterator();
+        while (sentenceIds.hasNext() && !(ordered && top.isFull())) {
+            int sentenceId = sentenceIds.next();
+            int length = store.length(sentenceId);
+            int totalChars = 0;
+            for (int t = 0; t < length; t++) {
+                if (store.token(sentenceId, t) != SentenceParser.UNKNOWN_ID) {
+                    totalChars++;
+                }
+            }
+            top.offer(totalChars, sentenceId);
+        }
+    }
+
+    /**
+     * Finds a page of i+1 sentences for each of several target characters in one pass.
+     *
+     * The postings of all targets are combined into one bitmap and every sentence in it is
+     * tokenized once; the sentence is then offered to each target it contains and qualifies for.
+     * Each target gets the same page as a separate
+     * {@link #findIPlusOneSentences(int, UserState, double, int, int)} call with offset 0.
+     *
+     * @param targetCharIds the characters to learn; duplicates are allowed
+     * @param state the user's learning state
+     * @param threshold the minimum proportion of known characters (0.0 to 1.0)
+     * @param limit maximum number of sentences per target
+     * @return one ranked list of sentence IDs per entry of {@code targetCharIds}, in the same order
+     */
+    public IntList[] findIPlusOneSentences(int[] targetCharIds, UserState state, double threshold, int limit) {
+        Int2IntOpenHashMap targetSlots = new Int2IntOpenHashMap(targetCharIds.length);
+        targetSlots.defaultReturnValue(-1);
+        IntArrayList slotTargets = new IntArrayList();
+        List<ImmutableRoaringBitmap> postings = new ArrayList<>();
+        for (int targetCharId : targetCharIds) {
+            if (targetSlots.get(targetCharId) < 0) {
+                targetSlots.put(targetCharId, slotTargets.size());
+                slotTargets.add(targetCharId);
+                postings.add(index.getSentencesForChar(targetCharId));
             }
-            
+        }
+        int targetCount = slotTargets.size();
+        TopSentences[] tops = new TopSentences[targetCount];
+        for (int slot = 0; slot < targetCount; slot++) {
+            tops[slot] = new TopSentences(0, limit);
+        }
+
+        // Occurrences of each target in the current sentence, reset through the touched slots
+        int[] occurrences = new int[targetCount];
+        int[] touched = new int[targetCount];
+        boolean ordered = store.isLengthOrdered();
+        int fullTargets = 0;
+        PeekableIntIterator sentenceIds = BufferFastAggregation.or(postings.iterator()).getIntIterator();
+        while (sentenceIds.hasNext() && !(ordered && fullTargets == targetCount)) {
+            int sentenceId = sentenceIds.next();
+            int length = store.length(sentenceId);
             int totalChars = 0;
             int knownChars = 0;
-            
-            for (int charId : tokens) {
-                // Skip UNKNOWN_ID (punctuation, etc.)
+            int touchedCount = 0;
+            for (int t = 0; t < length; t++) {
+                int charId = store.token(sentenceId, t);
                 if (charId == SentenceParser.UNKNOWN_ID) {
                     continue;
                 }
-                
                 totalChars++;
-                
-                // Count as known if in user's known set OR is the target character
-                if (state.isKnown(charId) || charId == targetCharId) {
+                if (state.isKnown(charId)) {
                     knownChars++;
                 }
+                int slot = targetSlots.get(charId);
+                if (slot >= 0 && occurrences[slot]++ == 0) {
+                    touched[touchedCount++] = slot;
+                }
             }
-            
-            // Calculate known ratio
-            if (totalChars == 0) {
-                continue; // Skip empty sentences
-            }
-            
-            double knownRatio = (double) knownChars / totalChars;
-            
-            // Accept if ratio meets threshold
-            if (knownRatio >= threshold) {
-                candidates.add(new SentenceCandidate(sentenceId, totalChars));
+
+            for (int i = 0; i < touchedCount; i++) {
+                int slot = touched[i];
+                // An unknown target's own occurrences count as known, as in the single-target search
+                int known = state.isKnown(slotTargets.getInt(slot)) ? knownChars : knownChars + occurrences[slot];
+                if ((double) known / totalChars >= threshold) {
+                    boolean wasFull = tops[slot].isFull();
+                    tops[slot].offer(totalChars, sentenceId);
+                    if (!wasFull && tops[slot].isFull()) {
+                        fullTargets++;
+                    }
+                }
+                occurrences[slot] = 0;
             }
         }
-        
-        // Sort by length (shorter first), then by sentenceId (ascending)
-        candidates.sort(Comparator
-            .comparingInt((SentenceCandidate c) -> c.length)
-            .thenComparingInt(c -> c.sentenceId));
-        
-        // Extract sentence IDs
-        List<Integer> result = new ArrayList<>(candidates.size());
-        for (SentenceCandidate candidate : candidates) {
-            result.add(candidate.sentenceId);
+
+        IntList[] results = new IntList[targetCharIds.length];
+        for (int i = 0; i < targetCharIds.length; i++) {
+            results[i] = tops[targetSlots.get(targetCharIds[i])].toList();
         }
-        
-        return result;
+        return results;
     }
 
-    private static class SentenceCandidate {
-        final int sentenceId;
-        final int length;
+    /**
+     * Finds i+k sentences for a target character from a user's precomputed unknown counts.
+     *
+     * Unlike the threshold search this does not inspect any tokens to select sentences: it
+     * intersects the bucket of sentences with exactly {@code unknowns} unknown characters with
+     * the target's postings. Results are ranked like {@link #findIPlusOneSentences}.
+     *
+     * @param targetCharId the character to learn
+     * @param counts the user's unknown counts over this filter's store and index
+     * @param unknowns number of unknown characters, 0 to {@link SentenceUnknownCounts#MAX_BUCKET}
+     * @return list of sentence IDs sorted by ranking
+     */
+    public List<Integer> findIPlusKSentences(int targetCharId, SentenceUnknownCounts counts, int unknowns) {
+        return findIPlusKSentences(targetCharId, counts, unknowns, 0, Integer.MAX_VALUE);
+    }
 
-        SentenceCandidate(int sentenceId, int length) {
-            this.sentenceId = sentenceId;
-            this.length = length;
+    /**
+     * Finds one page of i+k sentences, see {@link #findIPlusKSentences(int, SentenceUnknownCounts, int)}.
+     *
+     * @param targetCharId the character to learn
+     * @param counts the user's unknown counts over this filter's store and index
+     * @param unknowns number of unknown characters, 0 to {@link SentenceUnknownCounts#MAX_BUCKET}
+     * @param offset number of best-ranked sentences to skip
+     * @param limit maximum number of sentences to return
+     * @return sentence IDs sorted by ranking, at most {@code limit}
+     */
+    public IntList findIPlusKSentences(int targetCharId, SentenceUnknownCounts counts, int unknowns,
+                                       int offset, int limit) {
+        TopSentences top = new TopSentences(offset, limit);
+        if (top.isEmpty()) {
+            return new IntArrayList();
         }
+        offerAll(top, counts.findSentences(targetCharId, unknowns));
+        return top.toList();
     }
 }
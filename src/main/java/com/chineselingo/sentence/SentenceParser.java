@@ -1,15 +1,19 @@
 package com.chineselingo.sentence;
 
 import com.chineselingo.data.CharIdMapper;
+import com.chineselingo.parser.ThroughputCounter;
+import com.chineselingo.parser.Utf8LineScanner;
+import com.chineselingo.parser.Utf8Source;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Parser for Tatoeba-style sentence files.
@@ -24,6 +28,16 @@ import java.time.Instant;
  * Tokenization:
  * - Maps each character to its ID via CharIdMapper
  * - Unknown characters are mapped to a sentinel UNKNOWN_ID (-1)
+ * 
+ * Large files can be tokenized in parallel: the memory-mapped file is split into
+ * newline-aligned byte ranges that are parsed as fork-join tasks and merged in order.
+ * Compressed files are read as a stream of blocks inflated on a separate thread (see
+ * {@link Utf8Source}); each block is split and tokenized the same way while the next
+ * block is being decompressed.
+ * 
+ * A parser created with {@code orderByLength} assigns sentence IDs in ascending order of
+ * character count instead of file order (see {@link SentenceStore#addAllByLength(SentenceStore)});
+ * the ID from the file's first column is kept as the {@link SentenceStore#sourceId(int) source ID}.
  */
 public class SentenceParser {
     private static final Logger logger = LoggerFactory.getLogger(SentenceParser.class);
@@ -38,9 +52,59 @@ public class SentenceParser {
     private static final int MIN_LENGTH = 2;
     private static final int MAX_LENGTH = 25;
 
+    /** Smallest byte range worth handing to a separate fork-join task. */
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    /** Chunks per pool thread, so uneven chunks still balance. */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final int minChunkBytes;
+    private final boolean orderByLength;
+    private final ThroughputCounter throughput = new ThroughputCounter();
+
+    /**
+     * Creates a parser that reads the whole file on the calling thread.
+     */
+    public SentenceParser() {
+        this(null);
+    }
+
+    /**
+     * Creates a parser that splits large files into newline-aligned byte ranges and
+     * tokenizes them in parallel on the given pool.
+     * 
+     * @param pool pool for chunk tasks, or null to parse on the calling thread
+     */
+    public SentenceParser(ForkJoinPool pool) {
+        this(pool, false);
+    }
+
+    /**
+     * Creates a parser that can assign sentence IDs in order of length.
+     * 
+     * @param pool pool for chunk tasks, or null to parse on the calling thread
+     * @param orderByLength whether sentence IDs ascend in character count rather than file order
+     */
+    public SentenceParser(ForkJoinPool pool, boolean orderByLength) {
+        this(pool, MIN_CHUNK_BYTES, orderByLength);
+    }
+
+    SentenceParser(ForkJoinPool pool, int minChunkBytes) {
+        this(pool, minChunkBytes, false);
+    }
+
+    private SentenceParser(ForkJoinPool pool, int minChunkBytes, boolean orderByLength) {
+        this.pool = pool;
+        this.minChunkBytes = minChunkBytes;
+        this.orderByLength = orderByLength;
+    }
+
     /**
      * Parses a Tatoeba-style sentence file and populates store and index.
      * 
+     * In parallel mode each chunk is tokenized independently and the results are merged
+     * in file order, so sentence IDs are identical to a serial parse.
+     * 
      * @param filePath path to the sentence file
      * @param charIdMapper mapper to convert characters to IDs
      * @param store sentence store to populate
@@ -49,127 +113,315 @@ public class SentenceParser {
      */
     public void parse(Path filePath, CharIdMapper charIdMapper, 
                      SentenceStore store, InvertedIndex index) throws IOException {
+        parse(filePath, charIdMapper, store, index, null);
+    }
+
+    /**
+     * Parses a sentence file, dropping sentences that the deduplicator rejects before they
+     * reach the store or the index.
+     *
+     * @param filePath path to the sentence file
+     * @param charIdMapper mapper to convert characters to IDs
+     * @param store sentence store to populate
+     * @param index inverted index to populate
+     * @param deduplicator near-duplicate filter, or null to keep every sentence
+     * @throws IOException if file reading fails
+     */
+    public void parse(Path filePath, CharIdMapper charIdMapper, SentenceStore store, InvertedIndex index,
+                      SentenceDeduplicator deduplicator) throws IOException {
         logger.info("Parsing sentence file: {}. Start:{}", filePath, Instant.now().toString());
+        long startNanos = System.nanoTime();
+
         int lineCount = 0;
         int acceptedCount = 0;
         int filteredByLang = 0;
         int filteredByLength = 0;
+        int chunkCount = 0;
+        InvertedIndexBuilder indexBuilder = new InvertedIndexBuilder();
+        // Sentences are collected in file order and reordered once the file is complete
+        SentenceStore target = !orderByLength ? store : store.isOffHeap() ? SentenceStore.offHeap() : new SentenceStore();
+        int firstSentenceId = store.size();
 
-        try (BufferedReader reader = Files.newBufferedReader(filePath)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                lineCount++;
-                
-                // Skip empty lines
-                if (line.trim().isEmpty()) {
-                    continue;
-                }
+        try (Utf8Source source = Utf8Source.open(filePath)) {
+            ByteBuffer block;
+            while ((block = source.nextBlock()) != null) {
+                ChunkResult[] chunks = parseBlock(block, charIdMapper);
+                chunkCount += chunks.length;
 
-                try {
-                    ParseResult result = parseLine(line, charIdMapper);
-                    
-                    if (result == null) {
-                        continue; // Invalid format
-                    }
-                    
-                    if (!result.isMandarinChinese) {
-                        filteredByLang++;
-                        continue;
-                    }
-                    
-                    if (!result.isValidLength) {
-                        filteredByLength++;
-                        continue;
-                    }
-                    
-                    // Add to store and index
-                    int sentenceId = store.addSentence(result.text, result.tokens);
-                    
-                    // Build inverted index
-                    for (int i = 0; i < result.tokens.size(); i++) {
-                        int charId = result.tokens.getInt(i);
-                        if (charId != UNKNOWN_ID) {
-                            index.addEntry(charId, sentenceId);
+                // Merge in file order so sentence IDs match the serial path
+                for (ChunkResult chunk : chunks) {
+                    int[] tokens = chunk.tokens.elements();
+                    int accepted = chunk.tokenEnds.size();
+                    for (int i = 0; i < accepted; i++) {
+                        int tokensFrom = i == 0 ? 0 : chunk.tokenEnds.getInt(i - 1);
+                        int tokensTo = chunk.tokenEnds.getInt(i);
+                        if (deduplicator != null && !deduplicator.accept(target, tokens, tokensFrom, tokensTo)) {
+                            continue;
+                        }
+                        int sentenceId = target.addSentence(block, chunk.textBounds.getInt(2 * i),
+                                chunk.textBounds.getInt(2 * i + 1), tokens, tokensFrom, tokensTo,
+                                chunk.sourceIds.getInt(i));
+
+                        if (!orderByLength) {
+                            indexBuilder.addSentence(sentenceId, tokens, tokensFrom, tokensTo);
                         }
                     }
-                    
-                    acceptedCount++;
-                } catch (Exception e) {
-                    logger.warn("Failed to parse line {}: {}", lineCount, line, e);
+                    lineCount += chunk.lineCount;
+                    acceptedCount += accepted;
+                    filteredByLang += chunk.filteredByLang;
+                    filteredByLength += chunk.filteredByLength;
                 }
             }
+            if (orderByLength) {
+                store.addAllByLength(target);
+                int[] tokens = new int[MAX_LENGTH];
+                for (int sentenceId = firstSentenceId; sentenceId < store.size(); sentenceId++) {
+                    indexBuilder.addSentence(sentenceId, tokens, 0, store.copyTokens(sentenceId, tokens));
+                }
+            }
+            store.trim();
+            indexBuilder.buildInto(index);
+            throughput.record(source.getBytesRead(), lineCount, System.nanoTime() - startNanos);
         }
 
-        logger.info("Parsed {} sentences from {} lines. End:{}", acceptedCount, lineCount, Instant.now().toString());
+        logger.info("Parsed {} sentences from {} lines in {} chunk(s). End:{}", acceptedCount, lineCount,
+                chunkCount, Instant.now().toString());
         logger.info("  Filtered by language: {}", filteredByLang);
         logger.info("  Filtered by length: {}", filteredByLength);
+        if (deduplicator != null) {
+            logger.info("  Near-duplicates: {}", deduplicator);
+        }
+        logger.info("  Index: {}", index.getStats());
+    }
+
+    /**
+     * @return cumulative parsing throughput of this parser
+     */
+    public ThroughputCounter getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * Tokenizes one block of complete lines, in parallel chunks if a pool is configured.
+     */
+    private ChunkResult[] parseBlock(ByteBuffer buffer, CharIdMapper charIdMapper) {
+        int[] bounds = pool == null
+                ? new int[]{0, buffer.limit()}
+                : chunkBounds(buffer, pool.getParallelism() * CHUNKS_PER_THREAD);
+        ChunkResult[] chunks = new ChunkResult[bounds.length - 1];
+        if (chunks.length == 1) {
+            chunks[0] = parseChunk(buffer, bounds[0], bounds[1], charIdMapper);
+        } else {
+            pool.invoke(new ParseChunks(buffer, bounds, 0, chunks.length, chunks, charIdMapper));
+        }
+        return chunks;
+    }
+
+    /**
+     * Splits the buffer into at most {@code chunkCount} ranges that each start at a line start.
+     * 
+     * @return ascending boundaries; chunk i is [bounds[i], bounds[i + 1])
+     */
+    int[] chunkBounds(ByteBuffer buffer, int chunkCount) {
+        int size = buffer.limit();
+        long chunkSize = Math.max(minChunkBytes, (size + (long) chunkCount - 1) / Math.max(1, chunkCount));
+
+        IntArrayList bounds = new IntArrayList();
+        bounds.add(0);
+        long next = chunkSize;
+        while (next < size) {
+            int lineBreak = (int) next;
+            while (lineBreak < size && buffer.get(lineBreak) != '\n') {
+                lineBreak++;
+            }
+            if (lineBreak + 1 >= size) {
+                break;
+            }
+            bounds.add(lineBreak + 1);
+            next = lineBreak + 1 + chunkSize;
+        }
+        bounds.add(size);
+        return bounds.toIntArray();
+    }
+
+    /**
+     * Parses and tokenizes the lines of one byte range.
+     *
+     * Fields, the language code and the codepoints are read directly from the UTF-8 bytes and
+     * resolved against the mapper's primitive lookup into a reused token buffer. Accepted
+     * sentences are recorded as a text byte range plus tokens appended to the chunk's packed
+     * token list, so no line allocates objects of its own.
+     */
+    private ChunkResult parseChunk(ByteBuffer buffer, int from, int to, CharIdMapper charIdMapper) {
+        ChunkResult chunk = new ChunkResult();
+        Utf8LineScanner scanner = new Utf8LineScanner(buffer.duplicate().position(from).limit(to));
+        int[] tokenBuffer = new int[MAX_LENGTH];
+        while (scanner.nextLine()) {
+            chunk.lineCount++;
+            int lineStart = scanner.lineStart();
+            int lineEnd = scanner.lineEnd();
+
+            // Skip empty lines
+            if (scanner.trimStart(lineStart, lineEnd) == lineEnd) {
+                continue;
+            }
+
+            try {
+                int textStart = textStart(scanner, lineStart, lineEnd);
+                if (textStart < 0) {
+                    continue; // Invalid format
+                }
+
+                if (!isMandarinChinese(scanner, lineStart, textStart - 1)) {
+                    chunk.filteredByLang++;
+                    continue;
+                }
+
+                textStart = scanner.trimStart(textStart, lineEnd);
+                int textEnd = scanner.trimEnd(textStart, lineEnd);
+                int codepointCount = tokenize(scanner, textStart, textEnd, charIdMapper, tokenBuffer);
+                if (codepointCount < MIN_LENGTH || codepointCount > MAX_LENGTH) {
+                    chunk.filteredByLength++;
+                    continue;
+                }
+
+                chunk.textBounds.add(textStart);
+                chunk.textBounds.add(textEnd);
+                chunk.sourceIds.add(sourceId(scanner, lineStart, textStart));
+                chunk.tokens.addElements(chunk.tokens.size(), tokenBuffer, 0, codepointCount);
+                chunk.tokenEnds.add(chunk.tokens.size());
+            } catch (Exception e) {
+                logger.warn("Failed to parse line at byte {}: {}", lineStart, scanner.currentLine(), e);
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Locates the text field of a {@code sentenceId, lang, text} line. Fields are tab-separated
+     * (trailing empty fields ignored, as with {@link String#split(String)}), or failing that
+     * comma-separated with the text taking the rest of the line.
+     *
+     * @return start of the text field, or -1 if the line has no three fields
+     */
+    private static int textStart(Utf8LineScanner scanner, int lineStart, int lineEnd) {
+        int end = lineEnd;
+        while (end > lineStart && scanner.byteAt(end - 1) == '\t') {
+            end--;
+        }
+        int firstTab = scanner.indexOf((byte) '\t', lineStart, end);
+        int secondTab = firstTab < 0 ? -1 : scanner.indexOf((byte) '\t', firstTab + 1, end);
+        if (secondTab >= 0 && scanner.indexOf((byte) '\t', secondTab + 1, end) < 0) {
+            return secondTab + 1;
+        }
+        int firstComma = scanner.indexOf((byte) ',', lineStart, lineEnd);
+        int secondComma = firstComma < 0 ? -1 : scanner.indexOf((byte) ',', firstComma + 1, lineEnd);
+        return secondComma < 0 ? -1 : secondComma + 1;
     }
 
-    private ParseResult parseLine(String line, CharIdMapper charIdMapper) {
-        // Try tab-separated first
-        String[] parts = line.split("\t");
-        
-        // If not 3 parts, try comma-separated
-        if (parts.length != 3) {
-            parts = line.split(",", 3);
+    /**
+     * Reads the sentence ID from the first field of a line.
+     *
+     * @param textStart start of the text field, after both separators
+     * @return the ID, or -1 if the field is not a non-negative int
+     */
+    private static int sourceId(Utf8LineScanner scanner, int lineStart, int textStart) {
+        int separator = textStart - 1;
+        while (separator > lineStart && scanner.byteAt(separator) != '\t' && scanner.byteAt(separator) != ',') {
+            separator--;
+        }
+        int idEnd = scanner.indexOf(scanner.byteAt(separator), lineStart, separator);
+        if (idEnd < 0) {
+            return -1;
         }
-        
-        if (parts.length != 3) {
-            return null; // Invalid format
+        int idStart = scanner.trimStart(lineStart, idEnd);
+        long id = scanner.parseInt(idStart, scanner.trimEnd(idStart, idEnd));
+        return id >= 0 && id <= Integer.MAX_VALUE ? (int) id : -1;
+    }
+
+    /**
+     * @param separator index of the separator that ends the language field
+     */
+    private static boolean isMandarinChinese(Utf8LineScanner scanner, int lineStart, int separator) {
+        byte delimiter = scanner.byteAt(separator);
+        int langStart = scanner.indexOf(delimiter, lineStart, separator) + 1;
+        langStart = scanner.trimStart(langStart, separator);
+        int langEnd = scanner.trimEnd(langStart, separator);
+        if (langEnd - langStart != MANDARIN_LANG_CODE.length()) {
+            return false;
         }
-        
-        String sentenceIdStr = parts[0].trim();
-        String lang = parts[1].trim();
-        String text = parts[2].trim();
-        
-        // Check language
-        boolean isMandarinChinese = MANDARIN_LANG_CODE.equals(lang);
-        
-        // Count codepoints for length validation
-        int codepointCount = text.codePointCount(0, text.length());
-        boolean isValidLength = codepointCount >= MIN_LENGTH && codepointCount <= MAX_LENGTH;
-        
-        // Tokenize the text
-        IntArrayList tokens = tokenizeText(text, charIdMapper);
-        
-        ParseResult result = new ParseResult();
-        result.text = text;
-        result.tokens = tokens;
-        result.isMandarinChinese = isMandarinChinese;
-        result.isValidLength = isValidLength;
-        
-        return result;
-    }
-
-    private IntArrayList tokenizeText(String text, CharIdMapper charIdMapper) {
-        IntArrayList tokens = new IntArrayList();
-        
-        // Iterate over codepoints
-        for (int i = 0; i < text.length(); ) {
-            int codepoint = text.codePointAt(i);
-            String charStr = new String(Character.toChars(codepoint));
-            
-            // Check if this character exists in the mapper
-            // If not, it's likely punctuation or unknown, map to UNKNOWN_ID
-            Integer existingId = charIdMapper.getReadOnlyCharToIdMap().get(charStr);
-            
-            if (existingId != null) {
-                tokens.add(existingId);
-            } else {
-                // Map unknown characters to UNKNOWN_ID
-                tokens.add(UNKNOWN_ID);
+        for (int i = 0; i < MANDARIN_LANG_CODE.length(); i++) {
+            if (scanner.byteAt(langStart + i) != MANDARIN_LANG_CODE.charAt(i)) {
+                return false;
             }
-            
-            i += Character.charCount(codepoint);
         }
-        
-        return tokens;
+        return true;
     }
 
-    private static class ParseResult {
-        String text;
-        IntArrayList tokens;
-        boolean isMandarinChinese;
-        boolean isValidLength;
+    /**
+     * Maps each codepoint of [from, to) to its character ID; unknown characters become
+     * {@link #UNKNOWN_ID}. Tokens beyond the buffer capacity are counted but not stored.
+     *
+     * @return number of codepoints in the range
+     */
+    private static int tokenize(Utf8LineScanner scanner, int from, int to,
+                                CharIdMapper charIdMapper, int[] tokens) {
+        int count = 0;
+        for (int i = from; i < to; i += scanner.codePointLength(i)) {
+            if (count < tokens.length) {
+                int charId = charIdMapper.findId(scanner.codePointAt(i, to));
+                tokens[count] = charId >= 0 ? charId : UNKNOWN_ID;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Fork-join task that parses chunks [from, to) by recursive halving.
+     */
+    private final class ParseChunks extends RecursiveAction {
+        private final ByteBuffer buffer;
+        private final int[] bounds;
+        private final int from;
+        private final int to;
+        private final ChunkResult[] results;
+        private final CharIdMapper charIdMapper;
+
+        ParseChunks(ByteBuffer buffer, int[] bounds, int from, int to,
+                    ChunkResult[] results, CharIdMapper charIdMapper) {
+            this.buffer = buffer;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+            this.charIdMapper = charIdMapper;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                results[from] = parseChunk(buffer, bounds[from], bounds[from + 1], charIdMapper);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ParseChunks(buffer, bounds, from, mid, results, charIdMapper),
+                      new ParseChunks(buffer, bounds, mid, to, results, charIdMapper));
+        }
+    }
+
+    /**
+     * Accepted sentences and counters of one chunk, in file order.
+     * Sentence i has text bytes [textBounds[2i], textBounds[2i + 1]) of the block,
+     * tokens [tokenEnds[i - 1], tokenEnds[i]) of the packed token list and source ID sourceIds[i].
+     */
+    private static class ChunkResult {
+        final IntArrayList textBounds = new IntArrayList();
+        final IntArrayList sourceIds = new IntArrayList();
+        final IntArrayList tokens = new IntArrayList();
+        final IntArrayList tokenEnds = new IntArrayList();
+        int lineCount;
+        int filteredByLang;
+        int filteredByLength;
     }
 }
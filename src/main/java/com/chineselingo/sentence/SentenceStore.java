@@ -1,66 +1,559 @@
 package com.chineselingo.sentence;
 
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Memory-efficient storage for sentences with tokenized character arrays.
- * Each sentence is stored with its original text and tokenized character IDs.
+ *
+ * Sentence IDs are dense from 0, so the store is columnar: the tokens of all sentences are packed
+ * into one column and the UTF-8 texts into one byte arena, each indexed by an offsets column.
+ * Tokens are kept 16 bits wide while every character ID fits ({@link SentenceParser#UNKNOWN_ID}
+ * is stored as {@code 0xFFFF}); the first larger ID widens the token column to ints.
+ *
+ * Columns are {@link ByteBuffer}s. A heap store backs them with byte arrays; an
+ * {@link #offHeap() off-heap} store uses direct buffers, or slices of a memory-mapped snapshot
+ * when read with {@link #readFrom(ByteBuffer, boolean)}, so the corpus neither counts against
+ * the heap nor adds to the work of the garbage collector. Direct buffers are limited by
+ * {@code -XX:MaxDirectMemorySize}, which defaults to the maximum heap size.
+ *
+ * {@link #tokens(int)} and {@link #text(int)} copy; {@link #length(int)}, {@link #token(int, int)}
+ * and {@link #textBytes(int)} read the columns in place.
+ *
+ * Each sentence also records the ID it has in its source file ({@link #sourceId(int)}). The store
+ * tracks whether its IDs ascend in character count ({@link #isLengthOrdered()}); a store filled
+ * with {@link #addAllByLength(SentenceStore)} is, so sentence IDs in ascending order are already
+ * ranked shortest first and searches can stop at the first page of matches.
  */
 public class SentenceStore {
-    private final Int2ObjectOpenHashMap<String> texts;
-    private final Int2ObjectOpenHashMap<int[]> tokens;
-    private int nextId;
+    private static final int NARROW_UNKNOWN = 0xFFFF;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final boolean offHeap;
+
+    // Tokens of sentence s are [tokenStart[s], tokenStart[s + 1]) of the token column
+    private Column tokens;
+    private int tokenWidth = Character.BYTES;
+    private Column tokenStart;
+
+    // UTF-8 text of sentence s is [textStart[s], textStart[s + 1]) of the text arena
+    private Column textArena;
+    private Column textStart;
+
+    private Column sourceIds;
+    // Whether character counts never decrease with the sentence ID, and the last sentence's count
+    private boolean lengthOrdered = true;
+    private int lastCharCount;
+
+    private int size;
 
     /**
      * Creates an empty SentenceStore.
      */
     public SentenceStore() {
-        this.texts = new Int2ObjectOpenHashMap<>();
-        this.tokens = new Int2ObjectOpenHashMap<>();
-        this.nextId = 0;
+        this(false);
+    }
+
+    private SentenceStore(boolean offHeap) {
+        this.offHeap = offHeap;
+        this.tokens = new Column(offHeap, INITIAL_CAPACITY * Character.BYTES);
+        this.tokenStart = new Column(offHeap, (INITIAL_CAPACITY + 1) * Integer.BYTES);
+        this.textArena = new Column(offHeap, INITIAL_CAPACITY * 8);
+        this.textStart = new Column(offHeap, (INITIAL_CAPACITY + 1) * Integer.BYTES);
+        this.sourceIds = new Column(offHeap, INITIAL_CAPACITY * Integer.BYTES);
+        tokenStart.appendInt(0);
+        textStart.appendInt(0);
+    }
+
+    /**
+     * Creates an empty store whose columns live outside the Java heap.
+     *
+     * @return the store
+     */
+    public static SentenceStore offHeap() {
+        return new SentenceStore(true);
+    }
+
+    /**
+     * @return true if the columns are held outside the Java heap
+     */
+    public boolean isOffHeap() {
+        return offHeap;
     }
 
     /**
      * Adds a sentence to the store.
-     * 
+     *
      * @param text the original sentence text
      * @param tokenList the tokenized character IDs as IntArrayList
      * @return the assigned sentence ID
      */
     public int addSentence(String text, IntArrayList tokenList) {
-        int sentenceId = nextId++;
-        texts.put(sentenceId, text);
-        tokens.put(sentenceId, tokenList.toIntArray());
-        return sentenceId;
+        return addSentence(text, tokenList.elements(), 0, tokenList.size());
+    }
+
+    /**
+     * Adds a sentence to the store.
+     *
+     * @param text the original sentence text
+     * @param tokenArray the tokenized character IDs
+     * @return the assigned sentence ID
+     */
+    public int addSentence(String text, int[] tokenArray) {
+        return addSentence(text, tokenArray, 0, tokenArray.length);
+    }
+
+    private int addSentence(String text, int[] tokenArray, int from, int to) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        return addSentence(ByteBuffer.wrap(utf8), 0, utf8.length, tokenArray, from, to, -1);
+    }
+
+    /**
+     * Adds a sentence whose UTF-8 text is copied straight from a buffer, e.g. a mapped file.
+     *
+     * @param utf8 buffer holding the text
+     * @param textFrom start of the text in the buffer
+     * @param textTo exclusive end of the text in the buffer
+     * @param tokenArray array holding the tokenized character IDs
+     * @param tokensFrom first token in the array
+     * @param tokensTo exclusive end of the tokens in the array
+     * @param sourceId ID of the sentence in its source file, or -1 if unknown
+     * @return the assigned sentence ID
+     */
+    int addSentence(ByteBuffer utf8, int textFrom, int textTo, int[] tokenArray, int tokensFrom, int tokensTo,
+                    int sourceId) {
+        if (tokenWidth == Character.BYTES && !fitsNarrow(tokenArray, tokensFrom, tokensTo)) {
+            widen();
+        }
+        tokens.reserve((long) (tokensTo - tokensFrom) * tokenWidth);
+        textArena.reserve(textTo - textFrom);
+        tokenStart.reserve(Integer.BYTES);
+        textStart.reserve(Integer.BYTES);
+        sourceIds.reserve(Integer.BYTES);
+
+        int charCount = 0;
+        for (int i = tokensFrom; i < tokensTo; i++) {
+            if (tokenArray[i] != SentenceParser.UNKNOWN_ID) {
+                charCount++;
+            }
+            if (tokenWidth == Character.BYTES) {
+                tokens.appendChar((char) tokenArray[i]);
+            } else {
+                tokens.appendInt(tokenArray[i]);
+            }
+        }
+        textArena.append(utf8, textFrom, textTo - textFrom);
+        tokenStart.appendInt(tokens.used / tokenWidth);
+        textStart.appendInt(textArena.used);
+        sourceIds.appendInt(sourceId);
+        lengthOrdered &= charCount >= lastCharCount;
+        lastCharCount = charCount;
+        return size++;
+    }
+
+    private static boolean fitsNarrow(int[] tokenArray, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int token = tokenArray[i];
+            if (token < SentenceParser.UNKNOWN_ID || token >= NARROW_UNKNOWN) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void widen() {
+        int count = tokens.used / Character.BYTES;
+        Column wide = new Column(offHeap, Math.max(INITIAL_CAPACITY, count) * Integer.BYTES);
+        wide.reserve((long) count * Integer.BYTES);
+        for (int i = 0; i < count; i++) {
+            wide.appendInt(widen(tokens.buffer.getChar(i * Character.BYTES)));
+        }
+        tokens = wide;
+        tokenWidth = Integer.BYTES;
+    }
+
+    private static int widen(char token) {
+        return token == NARROW_UNKNOWN ? SentenceParser.UNKNOWN_ID : token;
+    }
+
+    /**
+     * Appends every sentence of another store, ordered by ascending character count
+     * ({@link SentenceParser#UNKNOWN_ID} tokens not counted) and by source store ID within the same
+     * count. Source IDs are carried over. Appending to an empty store yields a
+     * {@link #isLengthOrdered() length-ordered} store.
+     *
+     * @param source the store to copy from
+     */
+    public void addAllByLength(SentenceStore source) {
+        int[] tokenBuffer = new int[16];
+        int[] charCounts = new int[source.size];
+        int maxCount = 0;
+        for (int sentenceId = 0; sentenceId < source.size; sentenceId++) {
+            int length = source.length(sentenceId);
+            for (int t = 0; t < length; t++) {
+                if (source.token(sentenceId, t) != SentenceParser.UNKNOWN_ID) {
+                    charCounts[sentenceId]++;
+                }
+            }
+            maxCount = Math.max(maxCount, charCounts[sentenceId]);
+        }
+
+        // Counting sort by character count; stable, so equal counts keep their order
+        int[] start = new int[maxCount + 2];
+        for (int count : charCounts) {
+            start[count + 1]++;
+        }
+        for (int count = 0; count <= maxCount; count++) {
+            start[count + 1] += start[count];
+        }
+        int[] order = new int[source.size];
+        for (int sentenceId = 0; sentenceId < source.size; sentenceId++) {
+            order[start[charCounts[sentenceId]]++] = sentenceId;
+        }
+
+        for (int sentenceId : order) {
+            int length = source.length(sentenceId);
+            if (tokenBuffer.length < length) {
+                tokenBuffer = new int[length];
+            }
+            source.copyTokens(sentenceId, tokenBuffer);
+            int textFrom = source.textStart.getInt(sentenceId);
+            addSentence(source.textArena.buffer, textFrom, source.textStart.getInt(sentenceId + 1),
+                    tokenBuffer, 0, length, source.sourceId(sentenceId));
+        }
+    }
+
+    /**
+     * Releases unused capacity once loading is complete. Sentences can still be added afterwards.
+     */
+    public void trim() {
+        tokens.trim();
+        tokenStart.trim();
+        textArena.trim();
+        textStart.trim();
+        sourceIds.trim();
     }
 
     /**
      * Gets the original text for a sentence.
-     * 
+     *
      * @param sentenceId the sentence ID
      * @return the original text, or null if not found
      */
     public String text(int sentenceId) {
-        return texts.get(sentenceId);
+        if (!contains(sentenceId)) {
+            return null;
+        }
+        int start = textStart.getInt(sentenceId);
+        int length = textStart.getInt(sentenceId + 1) - start;
+        ByteBuffer arena = textArena.buffer;
+        if (arena.hasArray()) {
+            return new String(arena.array(), arena.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        arena.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the UTF-8 text of a sentence without copying it.
+     *
+     * @param sentenceId the sentence ID
+     * @return a read-only view of the text bytes, or null if not found
+     */
+    public ByteBuffer textBytes(int sentenceId) {
+        if (!contains(sentenceId)) {
+            return null;
+        }
+        int start = textStart.getInt(sentenceId);
+        return textArena.buffer.slice(start, textStart.getInt(sentenceId + 1) - start).asReadOnlyBuffer();
     }
 
     /**
      * Gets the tokenized character IDs for a sentence.
-     * 
+     *
      * @param sentenceId the sentence ID
      * @return array of character IDs, or null if not found
      */
     public int[] tokens(int sentenceId) {
-        return tokens.get(sentenceId);
+        if (!contains(sentenceId)) {
+            return null;
+        }
+        int[] result = new int[length(sentenceId)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = token(sentenceId, i);
+        }
+        return result;
+    }
+
+    /**
+     * @param sentenceId the sentence ID
+     * @return number of tokens of the sentence, or 0 if not found
+     */
+    public int length(int sentenceId) {
+        return contains(sentenceId) ? tokenStart.getInt(sentenceId + 1) - tokenStart.getInt(sentenceId) : 0;
+    }
+
+    /**
+     * Reads one token in place.
+     *
+     * @param sentenceId the sentence ID
+     * @param index token position, below {@link #length(int)}
+     * @return the character ID, or {@link SentenceParser#UNKNOWN_ID}
+     */
+    public int token(int sentenceId, int index) {
+        int position = (tokenStart.getInt(sentenceId) + index) * tokenWidth;
+        return tokenWidth == Integer.BYTES
+                ? tokens.buffer.getInt(position)
+                : widen(tokens.buffer.getChar(position));
+    }
+
+    /**
+     * @return the token column, {@link #tokenWidth()} bytes per token; read-only use
+     */
+    ByteBuffer tokenColumn() {
+        return tokens.buffer;
+    }
+
+    /**
+     * @param sentenceId a sentence ID, or {@link #size()} for the end of the last sentence
+     * @return index of the sentence's first token in the {@link #tokenColumn() token column}
+     */
+    int tokenStart(int sentenceId) {
+        return tokenStart.getInt(sentenceId);
+    }
+
+    /**
+     * Copies the tokens of a sentence into a reused array.
+     *
+     * @param sentenceId the sentence ID, must exist
+     * @param destination array of at least {@link #length(int)} elements
+     * @return the number of tokens copied
+     */
+    int copyTokens(int sentenceId, int[] destination) {
+        int start = tokenStart.getInt(sentenceId);
+        int length = tokenStart.getInt(sentenceId + 1) - start;
+        ByteBuffer column = tokens.buffer;
+        if (tokenWidth == Integer.BYTES) {
+            for (int i = 0; i < length; i++) {
+                destination[i] = column.getInt((start + i) * Integer.BYTES);
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                destination[i] = widen(column.getChar((start + i) * Character.BYTES));
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @param sentenceId the sentence ID
+     * @return ID of the sentence in its source file, or -1 if not recorded or not found
+     */
+    public int sourceId(int sentenceId) {
+        return contains(sentenceId) ? sourceIds.getInt(sentenceId) : -1;
+    }
+
+    /**
+     * @return true if sentence IDs ascend in character count, i.e. ID order is ranking order
+     */
+    public boolean isLengthOrdered() {
+        return lengthOrdered;
+    }
+
+    private boolean contains(int sentenceId) {
+        return sentenceId >= 0 && sentenceId < size;
+    }
+
+    /**
+     * @return bytes per stored token: 2 while all character IDs fit in 16 bits, else 4
+     */
+    public int tokenWidth() {
+        return tokenWidth;
+    }
+
+    /**
+     * @return total number of tokens of all sentences
+     */
+    public int tokenCount() {
+        return tokens.used / tokenWidth;
+    }
+
+    /**
+     * @return total size of the UTF-8 text arena
+     */
+    public int textByteCount() {
+        return textArena.used;
     }
 
     /**
      * Returns the total number of sentences stored.
-     * 
+     *
      * @return count of sentences
      */
     public int size() {
-        return texts.size();
+        return size;
+    }
+
+    /**
+     * Writes the columns.
+     * Format: count, token width, length-ordered flag, token offsets, tokens, text offsets,
+     * text arena, source IDs.
+     *
+     * @param out the output to write to
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        out.writeByte(tokenWidth);
+        out.writeBoolean(lengthOrdered);
+        tokenStart.writeTo(out);
+        tokens.writeTo(out);
+        textStart.writeTo(out);
+        textArena.writeTo(out);
+        sourceIds.writeTo(out);
+    }
+
+    /**
+     * Reads a store written by {@link #writeTo(DataOutput)} onto the heap, advancing the buffer past it.
+     *
+     * @param buffer the buffer positioned at the start of the store
+     * @return the restored store with identical sentence IDs
+     */
+    public static SentenceStore readFrom(ByteBuffer buffer) {
+        return readFrom(buffer, false);
+    }
+
+    /**
+     * Reads a store written by {@link #writeTo(DataOutput)}, advancing the buffer past it.
+     *
+     * An off-heap store keeps slices of {@code buffer} as its columns instead of copying them,
+     * so the buffer (typically a mapped snapshot) must stay unchanged while the store is used.
+     *
+     * @param buffer the buffer positioned at the start of the store
+     * @param offHeap whether to keep the columns off the heap
+     * @return the restored store with identical sentence IDs
+     */
+    public static SentenceStore readFrom(ByteBuffer buffer, boolean offHeap) {
+        SentenceStore store = new SentenceStore(offHeap);
+        store.size = buffer.getInt();
+        store.tokenWidth = buffer.get();
+        if (store.tokenWidth != Character.BYTES && store.tokenWidth != Integer.BYTES) {
+            throw new IllegalArgumentException("Invalid token width " + store.tokenWidth);
+        }
+        store.lengthOrdered = buffer.get() != 0;
+        store.tokenStart = Column.read(buffer, (store.size + 1) * Integer.BYTES, offHeap);
+        store.tokens = Column.read(buffer, store.tokenStart.getInt(store.size) * store.tokenWidth, offHeap);
+        store.textStart = Column.read(buffer, (store.size + 1) * Integer.BYTES, offHeap);
+        store.textArena = Column.read(buffer, store.textStart.getInt(store.size), offHeap);
+        store.sourceIds = Column.read(buffer, store.size * Integer.BYTES, offHeap);
+        if (store.size > 0) {
+            int last = store.size - 1;
+            for (int t = 0; t < store.length(last); t++) {
+                if (store.token(last, t) != SentenceParser.UNKNOWN_ID) {
+                    store.lastCharCount++;
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Append-only byte column over a heap or direct buffer, grown by copying.
+     * A column may also be a read-only view of existing bytes; it is copied on the first append.
+     */
+    private static final class Column {
+        private final boolean direct;
+        private ByteBuffer buffer;
+        private int used;
+
+        Column(boolean direct, int capacity) {
+            this.direct = direct;
+            this.buffer = allocate(direct, capacity);
+        }
+
+        private Column(boolean direct, ByteBuffer view) {
+            this.direct = direct;
+            this.buffer = view;
+            this.used = view.capacity();
+        }
+
+        /**
+         * Takes the next {@code length} bytes of {@code source} as a column.
+         */
+        static Column read(ByteBuffer source, int length, boolean direct) {
+            ByteBuffer view = source.slice(source.position(), length);
+            source.position(source.position() + length);
+            if (direct) {
+                return new Column(true, view.asReadOnlyBuffer());
+            }
+            Column column = new Column(false, length);
+            column.append(view, 0, length);
+            return column;
+        }
+
+        private static ByteBuffer allocate(boolean direct, int capacity) {
+            return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        }
+
+        void reserve(long bytes) {
+            long required = used + bytes;
+            if (required > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Sentence store column is full: " + used + " bytes");
+            }
+            if (required > buffer.capacity() || buffer.isReadOnly()) {
+                long grown = Math.max((long) buffer.capacity() + (buffer.capacity() >> 1), required);
+                resize((int) Math.min(grown, Integer.MAX_VALUE - 8));
+            }
+        }
+
+        private void resize(int capacity) {
+            ByteBuffer resized = allocate(direct, capacity);
+            resized.put(0, buffer, 0, used);
+            buffer = resized;
+        }
+
+        void trim() {
+            if (used < buffer.capacity() && !buffer.isReadOnly()) {
+                resize(used);
+            }
+        }
+
+        void appendChar(char value) {
+            buffer.putChar(used, value);
+            used += Character.BYTES;
+        }
+
+        void appendInt(int value) {
+            reserve(Integer.BYTES);
+            buffer.putInt(used, value);
+            used += Integer.BYTES;
+        }
+
+        void append(ByteBuffer source, int from, int length) {
+            buffer.put(used, source, from, length);
+            used += length;
+        }
+
+        int getInt(int index) {
+            return buffer.getInt(index * Integer.BYTES);
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            if (buffer.hasArray()) {
+                out.write(buffer.array(), buffer.arrayOffset(), used);
+                return;
+            }
+            byte[] chunk = new byte[Math.min(used, 1 << 16)];
+            for (int offset = 0; offset < used; offset += chunk.length) {
+                int length = Math.min(chunk.length, used - offset);
+                buffer.get(offset, chunk, 0, length);
+                out.write(chunk, 0, length);
+            }
+        }
     }
 }
@@ -0,0 +1,158 @@
+package com.chineselingo.sentence;
+
+import com.chineselingo.user.UserState;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+/**
+ * Per-user count of distinct unknown characters in every sentence, with the sentences that have
+ * 0, 1 or 2 unknown characters kept in bitmaps (the i+0, i+1 and i+2 buckets).
+ *
+ * The counts are computed once from the user's known characters and then maintained as a
+ * {@link UserState.KnownListener}: when a character becomes known, only the sentences in its
+ * {@link InvertedIndex} postings are decremented and moved between buckets. Finding the i+k
+ * sentences for a target character is then a single bitmap intersection instead of a rescan
+ * of every candidate's tokens.
+ *
+ * Tokens equal to {@link SentenceParser#UNKNOWN_ID} (punctuation) are not counted. Counts are
+ * stored in one byte per sentence; a sentence with more than 126 distinct unknown characters
+ * stays saturated and never enters a bucket. Like {@link UserState}, this class is not
+ * thread-safe, and it is detached automatically when the user state is remapped.
+ */
+public class SentenceUnknownCounts implements UserState.KnownListener {
+    /** Largest number of unknown characters tracked in a bucket. */
+    public static final int MAX_BUCKET = 2;
+
+    private static final int SATURATED = Byte.MAX_VALUE;
+
+    private final InvertedIndex index;
+    private final UserState state;
+    private final byte[] unknownCounts;
+    private final MutableRoaringBitmap[] buckets = new MutableRoaringBitmap[MAX_BUCKET + 1];
+
+    private SentenceUnknownCounts(SentenceStore store, InvertedIndex index, UserState state) {
+        this.index = index;
+        this.state = state;
+        this.unknownCounts = new byte[store.size()];
+        for (int k = 0; k <= MAX_BUCKET; k++) {
+            buckets[k] = new MutableRoaringBitmap();
+        }
+
+        int[] unknown = new int[16];
+        for (int sentenceId = 0; sentenceId < unknownCounts.length; sentenceId++) {
+            int length = store.length(sentenceId);
+            if (unknown.length < length) {
+                unknown = new int[length];
+            }
+            int unknownTokens = 0;
+            for (int t = 0; t < length; t++) {
+                int charId = store.token(sentenceId, t);
+                if (charId != SentenceParser.UNKNOWN_ID && !state.isKnown(charId)) {
+                    unknown[unknownTokens++] = charId;
+                }
+            }
+            int distinct = countDistinct(unknown, unknownTokens);
+            unknownCounts[sentenceId] = (byte) Math.min(distinct, SATURATED);
+            if (distinct <= MAX_BUCKET) {
+                buckets[distinct].add(sentenceId);
+            }
+        }
+        for (MutableRoaringBitmap bucket : buckets) {
+            bucket.runOptimize();
+        }
+    }
+
+    /**
+     * Computes the counts for a user and keeps them current as characters become known.
+     *
+     * @param store the sentence store
+     * @param index the inverted index of the same sentences
+     * @param state the user's learning state
+     * @return the attached counts
+     */
+    public static SentenceUnknownCounts attach(SentenceStore store, InvertedIndex index, UserState state) {
+        SentenceUnknownCounts counts = new SentenceUnknownCounts(store, index, state);
+        state.addKnownListener(counts);
+        return counts;
+    }
+
+    /**
+     * Stops following the user state.
+     */
+    public void detach() {
+        state.removeKnownListener(this);
+    }
+
+    private static int countDistinct(int[] values, int count) {
+        if (count <= 1) {
+            return count;
+        }
+        IntArrays.quickSort(values, 0, count);
+        int distinct = 1;
+        for (int i = 1; i < count; i++) {
+            if (values[i] != values[i - 1]) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+    @Override
+    public void onMarkedKnown(int charId) {
+        PeekableIntIterator sentences = index.getSentencesForChar(charId).getIntIterator();
+        while (sentences.hasNext()) {
+            int sentenceId = sentences.next();
+            if (sentenceId >= unknownCounts.length) {
+                continue;
+            }
+            int previous = unknownCounts[sentenceId];
+            if (previous == SATURATED || previous == 0) {
+                continue;
+            }
+            unknownCounts[sentenceId] = (byte) (previous - 1);
+            if (previous <= MAX_BUCKET) {
+                buckets[previous].remove(sentenceId);
+            }
+            if (previous - 1 <= MAX_BUCKET) {
+                buckets[previous - 1].add(sentenceId);
+            }
+        }
+    }
+
+    /**
+     * Finds the sentences that contain a character and have exactly {@code unknowns} distinct
+     * unknown characters (the target included if it is unknown).
+     *
+     * @param targetCharId the character the sentences must contain
+     * @param unknowns number of unknown characters, 0 to {@link #MAX_BUCKET}
+     * @return a new bitmap of sentence IDs owned by the caller
+     */
+    public MutableRoaringBitmap findSentences(int targetCharId, int unknowns) {
+        return ImmutableRoaringBitmap.and(bucket(unknowns), index.getSentencesForChar(targetCharId));
+    }
+
+    /**
+     * @param unknowns number of unknown characters, 0 to {@link #MAX_BUCKET}
+     * @return number of sentences with exactly that many unknown characters
+     */
+    public int countSentences(int unknowns) {
+        return bucket(unknowns).getCardinality();
+    }
+
+    /**
+     * @param sentenceId the sentence ID
+     * @return distinct unknown characters in the sentence, at most 127
+     */
+    public int getUnknownCount(int sentenceId) {
+        return unknownCounts[sentenceId];
+    }
+
+    private MutableRoaringBitmap bucket(int unknowns) {
+        if (unknowns < 0 || unknowns > MAX_BUCKET) {
+            throw new IllegalArgumentException("Unknown count must be between 0 and " + MAX_BUCKET + ": " + unknowns);
+        }
+        return buckets[unknowns];
+    }
+}
@@ -0,0 +1,122 @@
+package com.chineselingo.sentence;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+
+/**
+ * Bounded selection of the best-ranked sentences for one result page.
+ *
+ * Sentences rank by length, then by ID, packed into one {@code long} key. The best
+ * {@code offset + limit} keys are kept in a max-heap whose root is the worst key kept, so each
+ * further candidate costs one comparison and at most one O(log K) sift. The heap array grows on
+ * demand, so an unlimited page costs no more than the candidates actually offered.
+ */
+final class TopSentences {
+    private final int offset;
+    private final int capacity;
+    private long[] heap = new long[16];
+    private int size;
+
+    /**
+     * @param offset number of best-ranked sentences to skip
+     * @param limit maximum number of sentences on the page
+     */
+    TopSentences(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        this.offset = offset;
+        this.capacity = (int) Math.min((long) offset + limit, Integer.MAX_VALUE - 8);
+    }
+
+    /**
+     * @return true if the page cannot hold any sentence
+     */
+    boolean isEmpty() {
+        return capacity == offset;
+    }
+
+    /**
+     * @return true once the page and the skipped sentences before it are all taken; when
+     *         candidates are offered in ranking order, no later candidate can enter
+     */
+    boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Offers a candidate.
+     *
+     * @param length ranking length, shorter is better
+     * @param sentenceId the sentence ID, lower wins ties
+     */
+    void offer(int length, int sentenceId) {
+        offer(((long) length << 32) | (sentenceId & 0xFFFFFFFFL));
+    }
+
+    /**
+     * Offers every sentence kept by another selection, e.g. one filled by a parallel task.
+     *
+     * @param other selection whose sentences are offered; its offset is ignored
+     */
+    void merge(TopSentences other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.heap[i]);
+        }
+    }
+
+    private void offer(long key) {
+        if (size < capacity) {
+            if (size == heap.length) {
+                heap = LongArrays.grow(heap, Math.min(capacity, size + (size >> 1) + 1));
+            }
+            heap[size] = key;
+            siftUp(size++);
+        } else if (size > 0 && key < heap[0]) {
+            heap[0] = key;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * @return the sentence IDs of the page, best first
+     */
+    IntArrayList toList() {
+        LongArrays.radixSort(heap, 0, size);
+        IntArrayList result = new IntArrayList(Math.max(0, size - offset));
+        for (int i = offset; i < size; i++) {
+            result.add((int) heap[i]);
+        }
+        return result;
+    }
+
+    private void siftUp(int position) {
+        long key = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (heap[parent] >= key) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = key;
+    }
+
+    private void siftDown(int position) {
+        long key = heap[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (key >= heap[child]) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = key;
+    }
+}
@@ -0,0 +1,124 @@
+package com.chineselingo.sentence;
+
+import com.chineselingo.user.UserState;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+/**
+ * Per-user bitmaps of the sentences containing at least one and at least two distinct unknown
+ * characters, used to answer strict i+1 queries with bitmap algebra:
+ * the sentences containing an unknown target whose only unknown character is the target are
+ * {@code postings(target) ANDNOT atLeastTwo}; for a known target they are
+ * {@code postings(target) ANDNOT atLeastOne}.
+ *
+ * Both bitmaps are built on first use with two bitmap operations per unknown indexed character.
+ * When a character becomes known afterwards, only the sentences in its postings are re-examined
+ * and moved out of the bitmaps they no longer belong to, as in {@link SentenceUnknownCounts}.
+ * The bitmaps are registered on the user state and found again with {@link #of}, so every user
+ * keeps their own until the state is remapped.
+ */
+final class UnknownSentences implements UserState.KnownListener {
+    private final UserState state;
+    private final SentenceStore store;
+    private final InvertedIndex index;
+    private MutableRoaringBitmap atLeastOne;
+    private MutableRoaringBitmap atLeastTwo;
+
+    private UnknownSentences(UserState state, SentenceStore store, InvertedIndex index) {
+        this.state = state;
+        this.store = store;
+        this.index = index;
+        state.addKnownListener(this);
+    }
+
+    /**
+     * @return the bitmaps of a user over a store and its index, registered on the state on first use
+     */
+    static UnknownSentences of(UserState state, SentenceStore store, InvertedIndex index) {
+        UnknownSentences sentences = find(state, index);
+        return sentences != null ? sentences : new UnknownSentences(state, store, index);
+    }
+
+    /**
+     * @return the bitmaps of a user over an index, or null if none are registered
+     */
+    static UnknownSentences find(UserState state, InvertedIndex index) {
+        return state.findKnownListener(UnknownSentences.class, sentences -> sentences.index == index);
+    }
+
+    /**
+     * @return true if the bitmaps are built and match the user's current known characters
+     */
+    synchronized boolean isBuilt() {
+        return atLeastOne != null;
+    }
+
+    @Override
+    public synchronized void onMarkedKnown(int charId) {
+        if (!isBuilt()) {
+            return;
+        }
+        PeekableIntIterator sentences = index.getSentencesForChar(charId).getIntIterator();
+        while (sentences.hasNext()) {
+            int sentenceId = sentences.next();
+            if (!atLeastOne.contains(sentenceId)) {
+                continue;
+            }
+            int unknowns = countUnknown(sentenceId);
+            if (unknowns < 2) {
+                atLeastTwo.remove(sentenceId);
+            }
+            if (unknowns < 1) {
+                atLeastOne.remove(sentenceId);
+            }
+        }
+    }
+
+    /**
+     * @return distinct unknown characters in a sentence, counting at most 2
+     */
+    private int countUnknown(int sentenceId) {
+        int first = SentenceParser.UNKNOWN_ID;
+        int length = store.length(sentenceId);
+        for (int t = 0; t < length; t++) {
+            int charId = store.token(sentenceId, t);
+            if (charId == SentenceParser.UNKNOWN_ID || state.isKnown(charId)) {
+                continue;
+            }
+            if (first == SentenceParser.UNKNOWN_ID) {
+                first = charId;
+            } else if (charId != first) {
+                return 2;
+            }
+        }
+        return first == SentenceParser.UNKNOWN_ID ? 0 : 1;
+    }
+
+    /**
+     * @return sentences containing the target whose other characters are all known
+     */
+    synchronized MutableRoaringBitmap strictIPlusOne(int targetCharId) {
+        if (!isBuilt()) {
+            build();
+        }
+        ImmutableRoaringBitmap postings = index.getSentencesForChar(targetCharId);
+        return ImmutableRoaringBitmap.andNot(postings, state.isKnown(targetCharId) ? atLeastOne : atLeastTwo);
+    }
+
+    private void build() {
+        MutableRoaringBitmap one = new MutableRoaringBitmap();
+        MutableRoaringBitmap two = new MutableRoaringBitmap();
+        for (int slot = 0; slot < index.size(); slot++) {
+            if (!state.isKnown(index.charIdAt(slot))) {
+                ImmutableRoaringBitmap postings = index.sentencesAt(slot);
+                two.or(ImmutableRoaringBitmap.and(one, postings));
+                one.or(postings);
+            }
+        }
+        one.runOptimize();
+        two.runOptimize();
+        atLeastOne = one;
+        atLeastTwo = two;
+    }
+}
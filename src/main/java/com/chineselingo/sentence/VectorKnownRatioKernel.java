@@ -0,0 +1,89 @@
+package com.chineselingo.sentence;
+
+import com.chineselingo.user.UserState;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * {@link KnownRatioKernel} scoring {@link #LANES} tokens per step with the incubating Vector API.
+ *
+ * Each step loads a vector of tokens straight from the token column (narrow columns are loaded
+ * as shorts and zero-extended), clamps them to bit indexes, gathers the 32-bit words of the known
+ * bits, and adds the selected bits, with the target forced to 1 and {@link SentenceParser#UNKNOWN_ID}
+ * lanes masked out. Sentences shorter than one vector, and the tail of longer ones, are scored by
+ * the scalar kernel.
+ *
+ * Only loaded by {@link KnownRatioKernel#create} once the {@code jdk.incubator.vector} module is
+ * known to be present; written against the JDK 17 incubator API.
+ */
+final class VectorKnownRatioKernel extends KnownRatioKernel {
+    // At most 256 bits: with 512-bit species, C2 in JDK 17.0.9 crashes compiling the lane masks below
+    private static final VectorSpecies<Integer> INTS =
+            IntVector.SPECIES_PREFERRED.vectorBitSize() > 256 ? IntVector.SPECIES_256 : IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Short> SHORTS =
+            VectorSpecies.of(short.class, VectorShape.forBitSize(INTS.vectorBitSize() / 2));
+    private static final int LANES = INTS.length();
+
+    // Known bits as 32-bit words, followed by one zero word
+    private final int[] knownInts;
+
+    private VectorKnownRatioKernel(UserState state, int targetCharId) {
+        super(state, targetCharId);
+        knownInts = new int[knownWords.length * 2];
+        for (int word = 0; word < knownWords.length; word++) {
+            knownInts[2 * word] = (int) knownWords[word];
+            knownInts[2 * word + 1] = (int) (knownWords[word] >>> 32);
+        }
+    }
+
+    static KnownRatioKernel create(UserState state, int targetCharId) {
+        return new VectorKnownRatioKernel(state, targetCharId);
+    }
+
+    @Override
+    long score(SentenceStore store, int sentenceId) {
+        ByteBuffer column = store.tokenColumn();
+        boolean wide = store.tokenWidth() == Integer.BYTES;
+        int from = store.tokenStart(sentenceId);
+        int to = store.tokenStart(sentenceId + 1);
+        if (to - from < LANES) {
+            return score(column, wide, from, to);
+        }
+
+        ByteOrder order = column.order();
+        int[] wordIndexes = new int[LANES];
+        IntVector knownSum = IntVector.zero(INTS);
+        int total = 0;
+        int i = from;
+        for (; i <= to - LANES; i += LANES) {
+            IntVector charIds;
+            if (wide) {
+                charIds = IntVector.fromByteBuffer(INTS, column, i * Integer.BYTES, order);
+            } else {
+                IntVector signed = (IntVector) ShortVector.fromByteBuffer(SHORTS, column, i * Character.BYTES, order)
+                        .convertShape(VectorOperators.S2I, INTS, 0);
+                // 0xFFFF is the narrow UNKNOWN_ID and sign-extends to -1; other tokens are unsigned
+                charIds = signed.and(0xFFFF).blend(SentenceParser.UNKNOWN_ID, signed.compare(VectorOperators.EQ, -1));
+            }
+            VectorMask<Integer> valid = charIds.compare(VectorOperators.GE, 0);
+            IntVector bits = charIds.max(0).min(limit);
+            bits.lanewise(VectorOperators.LSHR, 5).intoArray(wordIndexes, 0);
+            IntVector known = IntVector.fromArray(INTS, knownInts, 0, wordIndexes, 0)
+                    .lanewise(VectorOperators.LSHR, bits)
+                    .and(1)
+                    .blend(1, charIds.compare(VectorOperators.EQ, targetCharId))
+                    .blend(0, valid.not());
+            knownSum = knownSum.add(known);
+            total += valid.trueCount();
+        }
+        long score = ((long) knownSum.reduceLanes(VectorOperators.ADD) << 32) | total;
+        return score + score(column, wide, i, to);
+    }
+}
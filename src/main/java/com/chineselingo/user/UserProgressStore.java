@@ -71,8 +71,11 @@ public final class UserProgressStore {
                 if (ch == null || ch.isBlank()) {
                     continue;
                 }
-                int id = charIdMapper.getId(ch);
-                userState.markKnown(id);
+                // A frozen mapper cannot add characters; skip ones missing from the data
+                int id = charIdMapper.isFrozen() ? charIdMapper.findId(ch) : charIdMapper.getId(ch);
+                if (id >= 0) {
+                    userState.markKnown(id);
+                }
             }
         }
 
@@ -1,8 +1,12 @@
 package com.chineselingo.user;
 
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * Represents a user's learning state and progress.
@@ -11,6 +15,7 @@ import java.util.BitSet;
 public class UserState {
     private final BitSet knownChars;
     private final Int2ObjectOpenHashMap<ReviewHistory> reviewHistory;
+    private final List<KnownListener> knownListeners = new ArrayList<>();
 
     /**
      * Creates a new empty UserState.
@@ -40,12 +45,104 @@ public class UserState {
         return knownChars.get(charId);
     }
 
+    /**
+     * @return number of known characters
+     */
+    public int getKnownCount() {
+        return knownChars.cardinality();
+    }
+
     /**
      * Marks a character as known by the user.
+     * Listeners are notified if the character was not known before.
      * @param charId the character ID to mark as known
      */
     public void markKnown(int charId) {
+        if (knownChars.get(charId)) {
+            return;
+        }
         knownChars.set(charId);
+        for (KnownListener listener : knownListeners) {
+            listener.onMarkedKnown(charId);
+        }
+    }
+
+    /**
+     * Registers a listener for newly known characters.
+     * @param listener the listener
+     */
+    public void addKnownListener(KnownListener listener) {
+        knownListeners.add(listener);
+    }
+
+    /**
+     * @param listener a listener registered with {@link #addKnownListener(KnownListener)}
+     */
+    public void removeKnownListener(KnownListener listener) {
+        knownListeners.remove(listener);
+    }
+
+    /**
+     * @param listener a listener
+     * @return true if the listener is registered, i.e. was added and neither removed nor dropped by
+     *         {@link #remapIds(int[])}
+     */
+    public boolean hasKnownListener(KnownListener listener) {
+        return knownListeners.contains(listener);
+    }
+
+    /**
+     * Removes every known-character listener. Called when the static data they were built from is
+     * replaced, so the previous data version is no longer referenced through this state.
+     */
+    public void clearKnownListeners() {
+        knownListeners.clear();
+    }
+
+    /**
+     * Finds a registered listener, so that a per-user structure kept current by its listener is
+     * shared for as long as the user state exists instead of being rebuilt.
+     *
+     * @param type the listener class
+     * @param filter selects among the listeners of that class
+     * @return the first matching registered listener, or null
+     */
+    public <T extends KnownListener> T findKnownListener(Class<T> type, Predicate<? super T> filter) {
+        for (KnownListener listener : knownListeners) {
+            if (type.isInstance(listener) && filter.test(type.cast(listener))) {
+                return type.cast(listener);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Rewrites all character IDs after the static data was reloaded with a different ID assignment.
+     * Characters that no longer exist (translated to a negative ID) are dropped.
+     * Known-character listeners are removed as well, since they refer to the previous data.
+     *
+     * @param oldToNew table mapping each old character ID (index) to its new ID, or -1
+     */
+    public void remapIds(int[] oldToNew) {
+        BitSet remapped = new BitSet();
+        for (int charId = knownChars.nextSetBit(0); charId >= 0; charId = knownChars.nextSetBit(charId + 1)) {
+            if (charId < oldToNew.length && oldToNew[charId] >= 0) {
+                remapped.set(oldToNew[charId]);
+            }
+        }
+        knownChars.clear();
+        knownChars.or(remapped);
+
+        Int2ObjectOpenHashMap<ReviewHistory> remappedHistory = new Int2ObjectOpenHashMap<>(reviewHistory.size());
+        for (Int2ObjectMap.Entry<ReviewHistory> entry : reviewHistory.int2ObjectEntrySet()) {
+            int charId = entry.getIntKey();
+            if (charId < oldToNew.length && oldToNew[charId] >= 0) {
+                remappedHistory.put(oldToNew[charId], entry.getValue());
+            }
+        }
+        reviewHistory.clear();
+        reviewHistory.putAll(remappedHistory);
+        clearKnownListeners();
     }
 
     /**
@@ -90,6 +187,17 @@ public class UserState {
     public Int2ObjectOpenHashMap<ReviewHistory> getReviewHistoryMap() {
         return reviewHistory;
     }
+    /**
+     * Receives characters that become known, e.g. to keep derived per-user structures current.
+     */
+    @FunctionalInterface
+    public interface KnownListener {
+        /**
+         * @param charId the character that was just marked known
+         */
+        void onMarkedKnown(int charId);
+    }
+
     /**
      * Container for per-character review statistics.
      */
@@ -0,0 +1,254 @@
+package com.chineselingo.word;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Immutable dictionary of multi-character words keyed by character IDs.
+ *
+ * Words are looked up through an array-backed trie: nodes are numbered breadth-first, so the
+ * children of a node are one contiguous run of node numbers sorted by character ID and are
+ * found by binary search. Word texts, readings and definitions are kept as UTF-8 in a single
+ * byte arena and decoded on request. A postings index lists, for every character ID, the
+ * words containing it ordered by descending word frequency.
+ *
+ * All structures are flat primitive arrays, so memory grows with the total length of the
+ * entries rather than with the number of objects.
+ */
+public final class WordDictionary {
+    /** Dictionary without any words. */
+    public static final WordDictionary EMPTY = new WordDictionary(
+            new int[]{0, 0}, new int[]{-1}, new int[]{-1},
+            new int[]{0}, new int[0], new int[0],
+            new int[]{0}, new byte[0],
+            new int[]{0}, new int[0]);
+
+    static final int TEXT = 0;
+    static final int PINYIN = 1;
+    static final int DEFINITION = 2;
+    static final int FIELDS = 3;
+
+    // Trie: children of node n are nodes [childStart[n], childStart[n + 1])
+    private final int[] childStart;
+    private final int[] label;
+    private final int[] nodeWord;
+
+    // Words: simplified character IDs, frequency and UTF-8 fields
+    private final int[] charStart;
+    private final int[] chars;
+    private final int[] frequency;
+    private final int[] fieldStart;
+    private final byte[] fields;
+
+    // Postings: words containing character c are postings[postingStart[c], postingStart[c + 1])
+    private final int[] postingStart;
+    private final int[] postings;
+
+    WordDictionary(int[] childStart, int[] label, int[] nodeWord,
+                   int[] charStart, int[] chars, int[] frequency,
+                   int[] fieldStart, byte[] fields,
+                   int[] postingStart, int[] postings) {
+        this.childStart = childStart;
+        this.label = label;
+        this.nodeWord = nodeWord;
+        this.charStart = charStart;
+        this.chars = chars;
+        this.frequency = frequency;
+        this.fieldStart = fieldStart;
+        this.fields = fields;
+        this.postingStart = postingStart;
+        this.postings = postings;
+    }
+
+    /**
+     * @return number of words
+     */
+    public int size() {
+        return frequency.length;
+    }
+
+    /**
+     * Finds the word spelled by the given character IDs (simplified or traditional).
+     *
+     * @param charIds character IDs of the word
+     * @return the word index, or -1 if the sequence is not a word
+     */
+    public int find(int... charIds) {
+        return find(charIds, 0, charIds.length);
+    }
+
+    /**
+     * Finds the word spelled by {@code charIds[from, to)}.
+     *
+     * @return the word index, or -1 if the sequence is not a word
+     */
+    public int find(int[] charIds, int from, int to) {
+        int node = 0;
+        for (int i = from; i < to && node >= 0; i++) {
+            node = child(node, charIds[i]);
+        }
+        return node < 0 ? -1 : nodeWord[node];
+    }
+
+    /**
+     * Finds the longest word starting at {@code charIds[from]}, e.g. for greedy segmentation.
+     *
+     * @return the length of the longest matching word, or 0 if no word starts there
+     */
+    public int longestMatch(int[] charIds, int from) {
+        int node = 0;
+        int longest = 0;
+        for (int i = from; i < charIds.length; i++) {
+            node = child(node, charIds[i]);
+            if (node < 0) {
+                break;
+            }
+            if (nodeWord[node] >= 0) {
+                longest = i - from + 1;
+            }
+        }
+        return longest;
+    }
+
+    private int child(int node, int charId) {
+        int low = childStart[node];
+        int high = childStart[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midLabel = label[mid];
+            if (midLabel < charId) {
+                low = mid + 1;
+            } else if (midLabel > charId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the simplified form of the word
+     */
+    public String getText(int word) {
+        return field(word, TEXT);
+    }
+
+    /**
+     * @return the pinyin reading, e.g. {@code sen1 lin2}
+     */
+    public String getPinyin(int word) {
+        return field(word, PINYIN);
+    }
+
+    /**
+     * @return the CEDICT definition, e.g. {@code /forest/}
+     */
+    public String getDefinition(int word) {
+        return field(word, DEFINITION);
+    }
+
+    private String field(int word, int field) {
+        int index = word * FIELDS + field;
+        return new String(fields, fieldStart[index], fieldStart[index + 1] - fieldStart[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the word frequency, or 0 if unknown
+     */
+    public int getFrequency(int word) {
+        return frequency[word];
+    }
+
+    /**
+     * @return character IDs of the simplified form
+     */
+    public int[] getChars(int word) {
+        return Arrays.copyOfRange(chars, charStart[word], charStart[word + 1]);
+    }
+
+    /**
+     * @return number of words containing the character
+     */
+    public int getWordCount(int charId) {
+        if (charId < 0 || charId + 1 >= postingStart.length) {
+            return 0;
+        }
+        return postingStart[charId + 1] - postingStart[charId];
+    }
+
+    /**
+     * Gets the most frequent words containing a character.
+     *
+     * @param charId the character ID
+     * @param limit maximum number of words to return
+     * @return word indexes, most frequent first
+     */
+    public int[] getWordsForChar(int charId, int limit) {
+        int count = Math.min(limit, getWordCount(charId));
+        if (count <= 0) {
+            return new int[0];
+        }
+        int start = postingStart[charId];
+        return Arrays.copyOfRange(postings, start, start + count);
+    }
+
+    /**
+     * Writes the dictionary arrays.
+     *
+     * @param out the output to write to
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        writeInts(out, childStart);
+        writeInts(out, label);
+        writeInts(out, nodeWord);
+        writeInts(out, charStart);
+        writeInts(out, chars);
+        writeInts(out, frequency);
+        writeInts(out, fieldStart);
+        out.writeInt(fields.length);
+        out.write(fields);
+        writeInts(out, postingStart);
+        writeInts(out, postings);
+    }
+
+    /**
+     * Reads a dictionary written by {@link #writeTo(DataOutput)}, advancing the buffer past it.
+     *
+     * @param buffer the buffer positioned at the start of the dictionary
+     * @return the restored dictionary
+     */
+    public static WordDictionary readFrom(ByteBuffer buffer) {
+        int[] childStart = readInts(buffer);
+        int[] label = readInts(buffer);
+        int[] nodeWord = readInts(buffer);
+        int[] charStart = readInts(buffer);
+        int[] chars = readInts(buffer);
+        int[] frequency = readInts(buffer);
+        int[] fieldStart = readInts(buffer);
+        byte[] fields = new byte[buffer.getInt()];
+        buffer.get(fields);
+        int[] postingStart = readInts(buffer);
+        int[] postings = readInts(buffer);
+        return new WordDictionary(childStart, label, nodeWord, charStart, chars, frequency,
+                fieldStart, fields, postingStart, postings);
+    }
+
+    private static void writeInts(DataOutput out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer) {
+        int[] values = new int[buffer.getInt()];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Integer.BYTES);
+        return values;
+    }
+}
@@ -0,0 +1,247 @@
+package com.chineselingo.word;
+
+import com.chineselingo.data.CharIdMapper;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects multi-character dictionary entries while parsing and compiles them into a
+ * {@link WordDictionary}.
+ *
+ * Entries are kept as text until {@link #build} so that character IDs can be resolved against
+ * the final, merged {@link CharIdMapper}. Entries sharing a simplified form (different
+ * readings of one word) are merged into a single word.
+ */
+public class WordDictionaryBuilder {
+    private static final Logger logger = LoggerFactory.getLogger(WordDictionaryBuilder.class);
+
+    private final List<String[]> entries = new ArrayList<>();
+
+    /**
+     * Adds one dictionary entry.
+     *
+     * @param simplified simplified form
+     * @param traditional traditional form
+     * @param pinyin reading
+     * @param definition CEDICT definition
+     */
+    public void add(String simplified, String traditional, String pinyin, String definition) {
+        entries.add(new String[]{simplified, traditional, pinyin, definition});
+    }
+
+    /**
+     * @return number of entries added
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Compiles the collected entries.
+     * Words containing a character unknown to the mapper are skipped.
+     *
+     * @param charIdMapper the complete character mapper
+     * @param wordFrequencies word text -> frequency; words without an entry get frequency 0
+     * @return the dictionary
+     */
+    public WordDictionary build(CharIdMapper charIdMapper, Object2IntMap<String> wordFrequencies) {
+        Object2IntOpenHashMap<String> wordIndex = new Object2IntOpenHashMap<>(entries.size());
+        wordIndex.defaultReturnValue(-1);
+        List<int[]> simplifiedIds = new ArrayList<>();
+        List<int[]> traditionalIds = new ArrayList<>();
+        List<String[]> words = new ArrayList<>();
+        int skipped = 0;
+
+        for (String[] entry : entries) {
+            int existing = wordIndex.getInt(entry[0]);
+            if (existing >= 0) {
+                // Another reading of the same word
+                String[] word = words.get(existing);
+                word[2] = word[2] + " / " + entry[2];
+                word[3] = word[3] + " [" + entry[2] + "] " + entry[3];
+                continue;
+            }
+            int[] simplified = toIds(entry[0], charIdMapper);
+            int[] traditional = toIds(entry[1], charIdMapper);
+            if (simplified == null) {
+                skipped++;
+                continue;
+            }
+            wordIndex.put(entry[0], words.size());
+            simplifiedIds.add(simplified);
+            traditionalIds.add(traditional);
+            words.add(entry.clone());
+        }
+
+        int wordCount = words.size();
+        int[] charStart = new int[wordCount + 1];
+        IntArrayList chars = new IntArrayList();
+        int[] frequency = new int[wordCount];
+        int[] fieldStart = new int[wordCount * WordDictionary.FIELDS + 1];
+        ByteArrayOutputStream fields = new ByteArrayOutputStream();
+        TrieBuilder trie = new TrieBuilder();
+
+        for (int word = 0; word < wordCount; word++) {
+            String[] entry = words.get(word);
+            int[] simplified = simplifiedIds.get(word);
+            chars.addElements(chars.size(), simplified);
+            charStart[word + 1] = chars.size();
+            frequency[word] = wordFrequencies.getOrDefault(entry[0], 0);
+
+            appendField(fields, fieldStart, word * WordDictionary.FIELDS + WordDictionary.TEXT, entry[0]);
+            appendField(fields, fieldStart, word * WordDictionary.FIELDS + WordDictionary.PINYIN, entry[2]);
+            appendField(fields, fieldStart, word * WordDictionary.FIELDS + WordDictionary.DEFINITION, entry[3]);
+
+            trie.insert(simplified, word);
+            if (traditionalIds.get(word) != null) {
+                trie.insert(traditionalIds.get(word), word);
+            }
+        }
+
+        int[][] postingsIndex = buildPostings(charIdMapper.size(), simplifiedIds, traditionalIds, frequency);
+        int[][] trieArrays = trie.compile();
+
+        logger.info("Built word dictionary: {} words, {} trie nodes, {} skipped", wordCount,
+                trieArrays[1].length, skipped);
+        return new WordDictionary(trieArrays[0], trieArrays[1], trieArrays[2],
+                charStart, chars.toIntArray(), frequency,
+                fieldStart, fields.toByteArray(),
+                postingsIndex[0], postingsIndex[1]);
+    }
+
+    private static int[] toIds(String text, CharIdMapper charIdMapper) {
+        int[] ids = text.codePoints().toArray();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = charIdMapper.findId(ids[i]);
+            if (ids[i] < 0) {
+                return null;
+            }
+        }
+        return ids;
+    }
+
+    private static void appendField(ByteArrayOutputStream fields, int[] fieldStart, int index, String value) {
+        fields.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        fieldStart[index + 1] = fields.size();
+    }
+
+    /**
+     * Builds the character -> words postings, each list sorted by descending frequency.
+     *
+     * @return {postingStart, postings}
+     */
+    private static int[][] buildPostings(int charLimit, List<int[]> simplifiedIds, List<int[]> traditionalIds,
+                                         int[] frequency) {
+        int wordCount = simplifiedIds.size();
+        int[] postingStart = new int[charLimit + 1];
+        int[][] wordChars = new int[wordCount][];
+        IntOpenHashSet distinct = new IntOpenHashSet();
+        for (int word = 0; word < wordCount; word++) {
+            distinct.clear();
+            addAll(distinct, simplifiedIds.get(word));
+            addAll(distinct, traditionalIds.get(word));
+            wordChars[word] = distinct.toIntArray();
+            for (int charId : wordChars[word]) {
+                postingStart[charId + 1]++;
+            }
+        }
+        for (int c = 0; c < charLimit; c++) {
+            postingStart[c + 1] += postingStart[c];
+        }
+
+        int[] fill = Arrays.copyOf(postingStart, charLimit);
+        int[] postings = new int[postingStart[charLimit]];
+        for (int word = 0; word < wordCount; word++) {
+            for (int charId : wordChars[word]) {
+                postings[fill[charId]++] = word;
+            }
+        }
+        for (int c = 0; c < charLimit; c++) {
+            IntArrays.quickSort(postings, postingStart[c], postingStart[c + 1], (a, b) ->
+                    frequency[a] != frequency[b] ? Integer.compare(frequency[b], frequency[a]) : Integer.compare(a, b));
+        }
+        return new int[][]{postingStart, postings};
+    }
+
+    private static void addAll(IntOpenHashSet set, int[] values) {
+        if (values != null) {
+            for (int value : values) {
+                set.add(value);
+            }
+        }
+    }
+
+    /**
+     * Pointer-based trie used only while building; compiled into breadth-first arrays.
+     */
+    private static final class TrieBuilder {
+        private final List<Int2IntOpenHashMap> children = new ArrayList<>();
+        private final IntArrayList words = new IntArrayList();
+
+        TrieBuilder() {
+            newNode();
+        }
+
+        private int newNode() {
+            Int2IntOpenHashMap nodeChildren = new Int2IntOpenHashMap(2);
+            nodeChildren.defaultReturnValue(-1);
+            children.add(nodeChildren);
+            words.add(-1);
+            return children.size() - 1;
+        }
+
+        void insert(int[] key, int word) {
+            int node = 0;
+            for (int charId : key) {
+                int next = children.get(node).get(charId);
+                if (next < 0) {
+                    next = newNode();
+                    children.get(node).put(charId, next);
+                }
+                node = next;
+            }
+            // First entry wins when a traditional form equals another word's simplified form
+            if (words.getInt(node) < 0) {
+                words.set(node, word);
+            }
+        }
+
+        /**
+         * @return {childStart, label, nodeWord} with nodes in breadth-first order
+         */
+        int[][] compile() {
+            int nodeCount = children.size();
+            int[] childStart = new int[nodeCount + 1];
+            int[] label = new int[nodeCount];
+            int[] nodeWord = new int[nodeCount];
+            int[] order = new int[nodeCount];
+            label[0] = -1;
+            int size = 1;
+            for (int i = 0; i < nodeCount; i++) {
+                int node = order[i];
+                nodeWord[i] = words.getInt(node);
+                childStart[i] = size;
+                int[] labels = children.get(node).keySet().toIntArray();
+                IntArrays.quickSort(labels);
+                for (int childLabel : labels) {
+                    label[size] = childLabel;
+                    order[size++] = children.get(node).get(childLabel);
+                }
+            }
+            childStart[nodeCount] = size;
+            return new int[][]{childStart, label, nodeWord};
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.chineselingo.app;
+
+import com.chineselingo.data.DataManager;
+import com.chineselingo.recommendation.RecommendationFrontier;
+import com.chineselingo.user.UserState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataReloaderTest {
+
+    private Path copyFixtures(Path tempDir) throws IOException, URISyntaxException {
+        Path fixturesDir = Paths.get(getClass().getResource("/fixtures").toURI());
+        Path dataDir = tempDir.resolve("data");
+        Files.createDirectories(dataDir);
+        for (String name : new String[]{"cedict_ts.u8", "subtlex.txt", "ids.txt", "sentences.tsv"}) {
+            Files.copy(fixturesDir.resolve(name), dataDir.resolve(name));
+        }
+        return dataDir;
+    }
+
+    @Test
+    void testRequestReloadPublishesNewVersion(@TempDir Path tempDir) throws Exception {
+        Path dataDir = copyFixtures(tempDir);
+        DataManager dataManager = new DataManager(dataDir);
+        LoadedData initial = LoadedData.of(dataManager.loadData());
+
+        BlockingQueue<LoadedData> published = new LinkedBlockingQueue<>();
+        try (DataReloader reloader = new DataReloader(dataManager, published::add, Duration.ofMillis(10))) {
+            // A new entry at the top of CEDICT shifts every character ID
+            Files.writeString(dataDir.resolve("cedict_ts.u8"),
+                    "人 人 [ren2] /person/\n" + Files.readString(dataDir.resolve("cedict_ts.u8")));
+            reloader.requestReload();
+
+            LoadedData fresh = published.poll(10, TimeUnit.SECONDS);
+            assertNotNull(fresh, "Reloaded data should be published");
+            assertNotSame(initial.getStaticData(), fresh.getStaticData());
+            assertEquals(initial.getDefinitions().size() + 1, fresh.getDefinitions().size());
+
+            int[] translation = initial.idTranslationTo(fresh);
+            assertNotNull(translation, "IDs changed, so a translation table is expected");
+            int oldWood = initial.getCharIdMapper().findId("木");
+            assertEquals(fresh.getCharIdMapper().findId("木"), translation[oldWood]);
+        }
+    }
+
+    @Test
+    void testWatcherReloadsOnSourceChange(@TempDir Path tempDir) throws Exception {
+        Path dataDir = copyFixtures(tempDir);
+        DataManager dataManager = new DataManager(dataDir);
+
+        BlockingQueue<LoadedData> published = new LinkedBlockingQueue<>();
+        try (DataReloader reloader = new DataReloader(dataManager, published::add, Duration.ofMillis(50))) {
+            reloader.start();
+
+            Files.writeString(dataDir.resolve("unrelated.txt"), "ignored");
+            Files.writeString(dataDir.resolve("subtlex.txt"),
+                    Files.readString(dataDir.resolve("subtlex.txt")) + "人\t5000\n");
+
+            LoadedData fresh = published.poll(20, TimeUnit.SECONDS);
+            assertNotNull(fresh, "Changing a source file should trigger a reload");
+            assertEquals(5000, fresh.getStaticData().getFrequency(fresh.getCharIdMapper().findId("人")));
+        }
+    }
+
+    @Test
+    void testIdenticalIdsNeedNoTranslation(@TempDir Path tempDir) throws Exception {
+        Path dataDir = copyFixtures(tempDir);
+        DataManager dataManager = new DataManager(dataDir);
+
+        LoadedData first = LoadedData.of(dataManager.loadData());
+        LoadedData second = LoadedData.of(dataManager.loadData());
+
+        assertNull(first.idTranslationTo(second));
+    }
+
+    @Test
+    void testReloadWithIdenticalIdsDetachesUserStructures(@TempDir Path tempDir) throws Exception {
+        Path dataDir = copyFixtures(tempDir);
+        DataManager dataManager = new DataManager(dataDir);
+        LoadedData first = LoadedData.of(dataManager.loadData());
+        LoadedData second = LoadedData.of(dataManager.loadData());
+
+        UserState state = new UserState();
+        state.markKnown(first.getCharIdMapper().findId("木"));
+        first.getRecommendationEngine().recommendNext(state);
+        RecommendationFrontier frontier = state.findKnownListener(RecommendationFrontier.class, f -> true);
+        assertNotNull(frontier);
+
+        assertNull(AppContext.moveUserState(state, first, second));
+        assertFalse(frontier.isAttached(), "The previous version's frontier should be detached");
+        assertTrue(state.isKnown(second.getCharIdMapper().findId("木")));
+
+        second.getRecommendationEngine().recommendNext(state);
+        second.getRecommendationEngine().recommendNext(state);
+        RecommendationFrontier fresh = state.findKnownListener(RecommendationFrontier.class, f -> true);
+        assertNotSame(frontier, fresh);
+        assertNull(state.findKnownListener(RecommendationFrontier.class, f -> f != fresh), "Only one frontier is attached");
+    }
+}
@@ -0,0 +1,74 @@
+package com.chineselingo.data;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CharIdMapperTest {
+
+    private static final String EXTENSION_B = "𠂉";
+
+    @Test
+    void testIdsAreStableAcrossFreeze() {
+        CharIdMapper mapper = new CharIdMapper();
+        assertEquals(0, mapper.getId("林"));
+        assertEquals(1, mapper.getId(EXTENSION_B));
+        assertEquals(2, mapper.getId('木'));
+        assertEquals(0, mapper.getId("林"), "Existing characters keep their ID");
+
+        assertSame(mapper, mapper.freeze());
+        assertTrue(mapper.isFrozen());
+        assertEquals(3, mapper.size());
+        assertEquals(0, mapper.getId("林"));
+        assertEquals(1, mapper.getId(0x20089));
+        assertEquals(2, mapper.findId('木'));
+        assertEquals(EXTENSION_B, mapper.getChar(1));
+        assertEquals(0x20089, mapper.getCodePoint(1));
+        assertNull(mapper.getChar(3));
+        assertEquals(-1, mapper.getCodePoint(-1));
+    }
+
+    @Test
+    void testFrozenMapperRejectsNewCharacters() {
+        CharIdMapper mapper = new CharIdMapper();
+        mapper.getId("林");
+        mapper.freeze();
+
+        assertEquals(-1, mapper.findId("森"));
+        assertEquals(-1, mapper.findId("森林"), "Multi-character strings are never mapped");
+        assertEquals(-1, mapper.findId(Character.MAX_CODE_POINT + 1));
+        assertThrows(IllegalStateException.class, () -> mapper.getId("森"));
+        assertEquals(1, mapper.size());
+    }
+
+    @Test
+    void testFreezeRejectsMultiCodepointKeys() {
+        CharIdMapper mapper = new CharIdMapper();
+        mapper.getId("森林");
+        assertThrows(IllegalStateException.class, mapper::freeze);
+    }
+
+    @Test
+    void testFrozenFromCodePoints() {
+        CharIdMapper mapper = CharIdMapper.frozen(new int[]{'林', 0x20089});
+        assertTrue(mapper.isFrozen());
+        assertEquals(1, mapper.findId(EXTENSION_B));
+        assertEquals("林", mapper.getReadOnlyIdToCharMap().get(0));
+        assertEquals(1, mapper.getReadOnlyCharToIdMap().get(EXTENSION_B));
+
+        assertThrows(IllegalArgumentException.class, () -> CharIdMapper.frozen(new int[]{'林', '林'}));
+    }
+
+    @Test
+    void testMergeIntoFrozenMapper() {
+        CharIdMapper target = new CharIdMapper();
+        target.getId("林");
+        target.getId("木");
+        target.freeze();
+        CharIdMapper source = new CharIdMapper();
+        source.getId("木");
+        source.getId("林");
+
+        assertArrayEquals(new int[]{1, 0}, target.mergeFrom(source));
+    }
+}
@@ -1,5 +1,6 @@
 package com.chineselingo.data;
 
+import com.chineselingo.word.WordDictionary;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -8,6 +9,9 @@ import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -71,6 +75,23 @@ class DataManagerTest {
         assertTrue(woodCompounds.contains(forestId), "林 should contain 木 as a component");
     }
 
+    @Test
+    void testCharacterIdsFollowSourceOrder() throws IOException, URISyntaxException {
+        Path fixturesDir = Paths.get(getClass().getResource("/fixtures").toURI());
+
+        // IDs are assigned as if CEDICT, SUBTLEX and IDS were parsed one after another,
+        // even though the sources are parsed concurrently
+        for (int run = 0; run < 5; run++) {
+            CharIdMapper mapper = new DataManager(fixturesDir).loadData().getCharIdMapper();
+            assertEquals(0, mapper.getId("林"));
+            assertEquals(1, mapper.getId("木"));
+            assertEquals(2, mapper.getId("森"));
+            assertEquals(3, mapper.getId("的"));
+            assertEquals(4, mapper.getId("一"));
+            assertEquals(5, mapper.getId("是"), "First SUBTLEX-only character follows CEDICT characters");
+        }
+    }
+
     @Test
     void testLoadDataFromNonExistentDirectory(@TempDir Path tempDir) {
         Path nonExistent = tempDir.resolve("nonexistent");
@@ -79,4 +100,89 @@ class DataManagerTest {
         assertThrows(IOException.class, () -> dataManager.loadData(), 
                     "Should throw IOException for non-existent directory");
     }
+
+    @Test
+    void testLoadCompressedSources(@TempDir Path tempDir) throws IOException, URISyntaxException {
+        Path fixturesDir = Paths.get(getClass().getResource("/fixtures").toURI());
+        StaticData plain = new DataManager(fixturesDir).loadData();
+
+        try (GZIPOutputStream out = new GZIPOutputStream(Files.newOutputStream(tempDir.resolve("cedict_ts.u8.gz")))) {
+            Files.copy(fixturesDir.resolve("cedict_ts.u8"), out);
+        }
+        try (GZIPOutputStream out = new GZIPOutputStream(Files.newOutputStream(tempDir.resolve("subtlex.txt.gz")))) {
+            Files.copy(fixturesDir.resolve("subtlex.txt"), out);
+        }
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(tempDir.resolve("sentences.tsv.zip")))) {
+            out.putNextEntry(new ZipEntry("sentences.tsv"));
+            Files.copy(fixturesDir.resolve("sentences.tsv"), out);
+            out.closeEntry();
+        }
+        Files.copy(fixturesDir.resolve("ids.txt"), tempDir.resolve("ids.txt"));
+
+        StaticData compressed = new DataManager(tempDir).loadData();
+
+        assertEquals(plain.getCharIdMapper().size(), compressed.getCharIdMapper().size());
+        assertEquals(plain.getDefinitions(), compressed.getDefinitions());
+        assertEquals(plain.getFrequencies(), compressed.getFrequencies());
+        assertEquals(plain.getSentenceStore().size(), compressed.getSentenceStore().size());
+        for (int id = 0; id < plain.getSentenceStore().size(); id++) {
+            assertEquals(plain.getSentenceStore().text(id), compressed.getSentenceStore().text(id));
+        }
+    }
+
+    @Test
+    void testCompressedNamesAreSourceFiles() {
+        assertTrue(DataManager.isSourceFileName("cedict_ts.u8"));
+        assertTrue(DataManager.isSourceFileName("cedict_ts.u8.gz"));
+        assertTrue(DataManager.isSourceFileName("sentences.tsv.zip"));
+        assertFalse(DataManager.isSourceFileName("notes.txt.gz"));
+    }
+
+    @Test
+    void testWordsAreLoaded() throws IOException, URISyntaxException {
+        Path fixturesDir = Paths.get(getClass().getResource("/fixtures").toURI());
+        StaticData data = new DataManager(fixturesDir).loadData();
+
+        WordDictionary words = data.getWordDictionary();
+        CharIdMapper mapper = data.getCharIdMapper();
+        assertEquals(2, words.size());
+
+        // 森林 has a SUBTLEX word frequency, 林木 has none
+        int[] forestWords = words.getWordsForChar(mapper.getId("林"), 10);
+        assertEquals(2, forestWords.length);
+        assertEquals("森林", words.getText(forestWords[0]));
+        assertEquals(20000, words.getFrequency(forestWords[0]));
+        assertEquals("林木", words.getText(forestWords[1]));
+    }
+
+    @Test
+    void testLoadReport(@TempDir Path tempDir) throws IOException, URISyntaxException {
+        Path fixturesDir = Paths.get(getClass().getResource("/fixtures").toURI());
+        DataManager dataManager = new DataManager(fixturesDir, tempDir.resolve("data.snapshot"));
+        assertNull(dataManager.getLastLoadReport());
+
+        dataManager.loadData();
+        LoadReport parsed = dataManager.getLastLoadReport();
+        assertFalse(parsed.isFromSnapshot());
+        for (String name : new String[]{LoadReport.CEDICT, LoadReport.SUBTLEX, LoadReport.IDS,
+                LoadReport.MERGE, LoadReport.SENTENCES}) {
+            assertNotNull(parsed.getPhase(name), "Missing phase " + name);
+            assertTrue(parsed.getPhase(name).getWallNanos() > 0);
+        }
+
+        LoadReport.Phase cedict = parsed.getPhase(LoadReport.CEDICT);
+        assertEquals(Files.size(fixturesDir.resolve("cedict_ts.u8")), cedict.getBytesRead());
+        assertTrue(cedict.getLines() >= 9);
+        assertTrue(cedict.getLinesPerSecond() > 0);
+        assertEquals(5, cedict.getSizes().get("definitions").longValue());
+        assertEquals(11L, parsed.getPhase(LoadReport.SENTENCES).getLines());
+        assertEquals(2, parsed.getPhase(LoadReport.MERGE).getSizes().get("words").longValue());
+        assertTrue(parsed.toString().contains("subtlex"));
+
+        dataManager.loadData();
+        LoadReport cached = dataManager.getLastLoadReport();
+        assertTrue(cached.isFromSnapshot());
+        assertEquals(1, cached.getPhases().size());
+        assertEquals(LoadReport.SNAPSHOT, cached.getPhases().get(0).getName());
+    }
 }
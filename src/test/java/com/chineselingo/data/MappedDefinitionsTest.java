@@ -0,0 +1,70 @@
+package com.chineselingo.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedDefinitionsTest {
+
+    @Test
+    void testLazyDefinitionsMatchHeapDefinitions() throws IOException, URISyntaxException {
+        Path fixturesDir = Paths.get(getClass().getResource("/fixtures").toURI());
+        StaticData heap = new DataManager(fixturesDir).loadData();
+        StaticData lazy = new DataManager(fixturesDir, null, LoadOptions.defaults().lazyDefinitions(true)).loadData();
+
+        assertNull(heap.getMappedDefinitions());
+        assertNotNull(lazy.getMappedDefinitions(), "Lazy mode should use mapped definitions");
+        assertEquals(heap.getDefinitionCount(), lazy.getDefinitionCount());
+        for (int id = 0; id < heap.getCharIdMapper().size(); id++) {
+            assertEquals(heap.getDefinition(id), lazy.getDefinition(id), "Definition of ID " + id);
+        }
+        assertEquals(heap.getDefinitions(), lazy.getDefinitions());
+        assertNull(lazy.getDefinition(-1));
+        assertNull(lazy.getDefinition(heap.getCharIdMapper().size()));
+    }
+
+    @Test
+    void testCachedDefinitionIsReused(@TempDir Path tempDir) throws IOException {
+        Path dictionary = tempDir.resolve("dict.txt");
+        Files.writeString(dictionary, "ab/cd");
+        long[] locations = MappedDefinitions.emptyLocations(3);
+        locations[0] = MappedDefinitions.location(0, 2);
+        locations[2] = MappedDefinitions.location(3, 2);
+
+        MappedDefinitions definitions = MappedDefinitions.open(dictionary, locations, 1);
+        assertEquals(2, definitions.size());
+        assertFalse(definitions.contains(1));
+
+        String first = definitions.get(0);
+        assertEquals("ab", first);
+        assertSame(first, definitions.get(0), "A cached definition should not be decoded again");
+        assertEquals("cd", definitions.get(2));
+        assertNotSame(first, definitions.get(0), "Evicted definitions are decoded again");
+        assertNull(definitions.get(1));
+    }
+
+    @Test
+    void testLazySnapshotRoundTrip(@TempDir Path tempDir) throws IOException, URISyntaxException {
+        Path fixturesDir = Paths.get(getClass().getResource("/fixtures").toURI());
+        Path snapshot = tempDir.resolve("data.snapshot");
+        LoadOptions options = LoadOptions.defaults().lazyDefinitions(true);
+
+        StaticData parsed = new DataManager(fixturesDir, snapshot, options).loadData();
+        StaticData cached = new DataManager(fixturesDir, snapshot, options).loadData();
+
+        assertNotNull(cached.getMappedDefinitions(), "Snapshot should keep definitions lazy");
+        assertEquals(parsed.getDefinitions(), cached.getDefinitions());
+
+        // Heap mode does not reuse a lazy snapshot
+        StaticData heap = new DataManager(fixturesDir, snapshot).loadData();
+        assertNull(heap.getMappedDefinitions());
+        assertEquals(parsed.getDefinitions(), heap.getDefinitions());
+    }
+}
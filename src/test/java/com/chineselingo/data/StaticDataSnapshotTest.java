@@ -0,0 +1,170 @@
+package com.chineselingo.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticDataSnapshotTest {
+
+    @Test
+    void testRoundTrip(@TempDir Path tempDir) throws IOException, URISyntaxException {
+        Path fixturesDir = Paths.get(getClass().getResource("/fixtures").toURI());
+        StaticData original = new DataManager(fixturesDir).loadData();
+
+        Path snapshot = tempDir.resolve("data.snapshot");
+        List<StaticDataSnapshot.SourceFingerprint> sources =
+                StaticDataSnapshot.fingerprint(fixturesDir.resolve("cedict_ts.u8"));
+        StaticDataSnapshot.write(snapshot, original, sources);
+
+        StaticData restored = StaticDataSnapshot.read(snapshot, sources);
+        assertNotNull(restored, "Snapshot should be readable with matching sources");
+
+        CharIdMapper mapper = original.getCharIdMapper();
+        assertEquals(mapper.size(), restored.getCharIdMapper().size());
+        for (int id = 0; id < mapper.size(); id++) {
+            assertEquals(mapper.getChar(id), restored.getCharIdMapper().getChar(id));
+        }
+        assertEquals(original.getDefinitions(), restored.getDefinitions());
+        assertEquals(original.getFrequencies(), restored.getFrequencies());
+        assertEquals(original.getComponentToCompounds(), restored.getComponentToCompounds());
+        assertEquals(original.getCompoundToComponents(), restored.getCompoundToComponents());
+        assertEquals(original.getRankedCount(), restored.getRankedCount());
+        for (int rank = 0; rank < original.getRankedCount(); rank++) {
+            assertEquals(original.getCharByRank(rank), restored.getCharByRank(rank));
+            assertEquals(rank, restored.getFrequencyRank(restored.getCharByRank(rank)));
+        }
+
+        assertEquals(original.getSentenceStore().size(), restored.getSentenceStore().size());
+        for (int id = 0; id < original.getSentenceStore().size(); id++) {
+            assertEquals(original.getSentenceStore().text(id), restored.getSentenceStore().text(id));
+            assertArrayEquals(original.getSentenceStore().tokens(id), restored.getSentenceStore().tokens(id));
+        }
+
+        assertEquals(original.getWordDictionary().size(), restored.getWordDictionary().size());
+        assertEquals(original.getWordDictionary().find(mapper.getId("森"), mapper.getId("林")),
+                restored.getWordDictionary().find(mapper.getId("森"), mapper.getId("林")));
+
+        assertEquals(original.getSentenceIndex().size(), restored.getSentenceIndex().size());
+        int woodId = mapper.getId("木");
+        assertEquals(original.getSentenceIndex().getSentencesForChar(woodId),
+                restored.getSentenceIndex().getSentencesForChar(woodId));
+    }
+
+    @Test
+    void testStaleSnapshotIsIgnored(@TempDir Path tempDir) throws IOException, URISyntaxException {
+        Path fixturesDir = Paths.get(getClass().getResource("/fixtures").toURI());
+        Path dataDir = tempDir.resolve("data");
+        Files.createDirectories(dataDir);
+        for (String name : new String[]{"cedict_ts.u8", "subtlex.txt", "ids.txt", "sentences.tsv"}) {
+            Files.copy(fixturesDir.resolve(name), dataDir.resolve(name));
+        }
+        Path snapshot = tempDir.resolve("data.snapshot");
+
+        StaticData parsed = new DataManager(dataDir, snapshot).loadData();
+        assertTrue(Files.exists(snapshot), "Snapshot should be written after parsing");
+
+        List<StaticDataSnapshot.SourceFingerprint> sources = StaticDataSnapshot.fingerprint(
+                dataDir.resolve("cedict_ts.u8"), dataDir.resolve("subtlex.txt"),
+                dataDir.resolve("ids.txt"), dataDir.resolve("sentences.tsv"));
+        assertNotNull(StaticDataSnapshot.read(snapshot, sources), "Fresh snapshot should match");
+
+        StaticData cached = new DataManager(dataDir, snapshot).loadData();
+        assertEquals(parsed.getDefinitions(), cached.getDefinitions());
+
+        // Adding a new dictionary entry invalidates the snapshot
+        Files.writeString(dataDir.resolve("cedict_ts.u8"),
+                Files.readString(dataDir.resolve("cedict_ts.u8")) + "人 人 [ren2] /person/\n");
+        sources = StaticDataSnapshot.fingerprint(
+                dataDir.resolve("cedict_ts.u8"), dataDir.resolve("subtlex.txt"),
+                dataDir.resolve("ids.txt"), dataDir.resolve("sentences.tsv"));
+        assertNull(StaticDataSnapshot.read(snapshot, sources), "Snapshot should be stale after source change");
+
+        StaticData reparsed = new DataManager(dataDir, snapshot).loadData();
+        assertEquals(parsed.getDefinitions().size() + 1, reparsed.getDefinitions().size());
+    }
+
+    @Test
+    void testTouchedSourceIsHashed(@TempDir Path tempDir) throws IOException, URISyntaxException {
+        Path fixturesDir = Paths.get(getClass().getResource("/fixtures").toURI());
+        Path ids = tempDir.resolve("ids.txt");
+        Files.copy(fixturesDir.resolve("ids.txt"), ids);
+        StaticData original = new DataManager(fixturesDir).loadData();
+        Path snapshot = tempDir.resolve("data.snapshot");
+        StaticDataSnapshot.write(snapshot, original, StaticDataSnapshot.fingerprint(ids));
+
+        // Same size and content, newer mtime: hashed and still fresh
+        Files.setLastModifiedTime(ids, FileTime.fromMillis(Files.getLastModifiedTime(ids).toMillis() + 10_000));
+        StaticData restored = StaticDataSnapshot.read(snapshot, StaticDataSnapshot.fingerprint(ids));
+        assertNotNull(restored, "A touched source with unchanged content should match");
+        int woodId = original.getCharIdMapper().getId("木");
+        assertEquals(original.getCompoundsContaining(woodId), restored.getCompoundsContaining(woodId));
+        assertEquals(original.getFrequency(woodId), restored.getFrequency(woodId));
+
+        // Same size, different content, newer mtime: stale
+        byte[] content = Files.readAllBytes(ids);
+        content[content.length - 2] ^= 1;
+        Files.write(ids, content);
+        Files.setLastModifiedTime(ids, FileTime.fromMillis(Files.getLastModifiedTime(ids).toMillis() + 20_000));
+        assertNull(StaticDataSnapshot.read(snapshot, StaticDataSnapshot.fingerprint(ids)));
+    }
+
+    @Test
+    void testSentenceDeduplicationSettingInvalidatesSnapshot(@TempDir Path tempDir)
+            throws IOException, URISyntaxException {
+        Path fixturesDir = Paths.get(getClass().getResource("/fixtures").toURI());
+        Path snapshot = tempDir.resolve("data.snapshot");
+        new DataManager(fixturesDir, snapshot).loadData();
+
+        List<StaticDataSnapshot.SourceFingerprint> sources = StaticDataSnapshot.fingerprint(
+                fixturesDir.resolve("cedict_ts.u8"), fixturesDir.resolve("subtlex.txt"),
+                fixturesDir.resolve("ids.txt"), fixturesDir.resolve("sentences.tsv"));
+        assertNotNull(StaticDataSnapshot.read(snapshot, sources));
+        sources.add(StaticDataSnapshot.SourceFingerprint.setting("sentenceBigramSimilarity",
+                Double.doubleToLongBits(0.8)));
+        assertNull(StaticDataSnapshot.read(snapshot, sources), "Snapshot without deduplication should be stale");
+
+        DataManager deduplicating = new DataManager(fixturesDir, snapshot,
+                LoadOptions.defaults().deduplicateSentences(0.8));
+        StaticData parsed = deduplicating.loadData();
+        assertFalse(deduplicating.getLastLoadReport().isFromSnapshot());
+        assertNotNull(StaticDataSnapshot.read(snapshot, sources));
+        assertEquals(parsed.getSentenceStore().size(),
+                deduplicating.loadData().getSentenceStore().size());
+        assertTrue(deduplicating.getLastLoadReport().isFromSnapshot());
+    }
+
+    @Test
+    void testOffHeapSentencesReadFromMapping(@TempDir Path tempDir) throws IOException, URISyntaxException {
+        Path fixturesDir = Paths.get(getClass().getResource("/fixtures").toURI());
+        LoadOptions options = LoadOptions.defaults().offHeapSentences(true);
+        Path snapshot = tempDir.resolve("data.snapshot");
+
+        StaticData parsed = new DataManager(fixturesDir, snapshot, options).loadData();
+        assertTrue(parsed.getSentenceStore().isOffHeap());
+        assertTrue(parsed.getSentenceStore().size() > 0);
+
+        StaticData cached = new DataManager(fixturesDir, snapshot, options).loadData();
+        StaticData heap = new DataManager(fixturesDir, snapshot).loadData();
+        assertTrue(cached.getSentenceStore().isOffHeap());
+        assertFalse(heap.getSentenceStore().isOffHeap(), "Storage follows the options, not the snapshot");
+        for (int id = 0; id < parsed.getSentenceStore().size(); id++) {
+            assertEquals(parsed.getSentenceStore().text(id), cached.getSentenceStore().text(id));
+            assertArrayEquals(parsed.getSentenceStore().tokens(id), cached.getSentenceStore().tokens(id));
+            assertArrayEquals(parsed.getSentenceStore().tokens(id), heap.getSentenceStore().tokens(id));
+        }
+    }
+
+    @Test
+    void testMissingSnapshot(@TempDir Path tempDir) {
+        assertNull(StaticDataSnapshot.read(tempDir.resolve("missing.snapshot"), List.of()));
+    }
+}
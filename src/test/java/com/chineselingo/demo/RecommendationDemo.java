@@ -7,6 +7,7 @@ import com.chineselingo.recommendation.RecommendationEngine;
 import com.chineselingo.recommendation.RecommendationEngine.RecommendationMode;
 import com.chineselingo.user.UserState;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
@@ -108,7 +109,7 @@ public class RecommendationDemo {
             System.out.printf("     Definition: %s%n", definition);
             
             // Show components
-            IntArrayList components = staticData.getComponents(charId);
+            IntList components = staticData.getComponents(charId);
             if (components != null && !components.isEmpty()) {
                 System.out.print("     Components: ");
                 for (int j = 0; j < components.size(); j++) {
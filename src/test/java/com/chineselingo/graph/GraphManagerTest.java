@@ -3,6 +3,10 @@ package com.chineselingo.graph;
 import com.chineselingo.data.CharIdMapper;
 import com.chineselingo.data.DataManager;
 import com.chineselingo.data.StaticData;
+import com.chineselingo.sentence.InvertedIndex;
+import com.chineselingo.sentence.SentenceStore;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -120,6 +124,50 @@ class GraphManagerTest {
         assertEquals(0, freq, "Non-existent character should have frequency 0");
     }
 
+    @Test
+    void testFrequencyRanks() {
+        assertEquals(charIdMapper.size(), graphManager.getRankedCount());
+        for (int rank = 0; rank < graphManager.getRankedCount(); rank++) {
+            int charId = graphManager.getCharByRank(rank);
+            assertEquals(rank, graphManager.getFrequencyRank(charId));
+            if (rank > 0) {
+                int previous = graphManager.getCharByRank(rank - 1);
+                int byFrequency = Integer.compare(graphManager.getFrequency(previous), graphManager.getFrequency(charId));
+                assertTrue(byFrequency > 0 || byFrequency == 0 && previous < charId,
+                        "Ranks follow descending frequency, then ascending ID");
+            }
+        }
+        assertEquals(graphManager.getCharByRank(0), graphManager.getMostFrequent());
+        assertEquals(-1, graphManager.getFrequencyRank(999999));
+    }
+
+    @Test
+    void testCompoundsAreSortedByFrequency() {
+        int woodId = charIdMapper.getId("木");
+        IntArrayList compounds = graphManager.getCompoundsForComponent(woodId);
+        assertNotNull(compounds);
+        for (int i = 1; i < compounds.size(); i++) {
+            assertTrue(graphManager.getFrequencyRank(compounds.getInt(i - 1))
+                    < graphManager.getFrequencyRank(compounds.getInt(i)), "Compounds should be most frequent first");
+        }
+    }
+
+    @Test
+    void testConstructorSortsCopiesOfCompoundLists() {
+        Int2IntOpenHashMap frequencies = new Int2IntOpenHashMap();
+        frequencies.put(1, 10);
+        frequencies.put(2, 30);
+        frequencies.put(3, 20);
+        IntArrayList compounds = IntArrayList.wrap(new int[]{1, 2, 3});
+        Int2ObjectOpenHashMap<IntArrayList> componentToCompounds = new Int2ObjectOpenHashMap<>();
+        componentToCompounds.put(0, compounds);
+        StaticData data = new StaticData(CharIdMapper.frozen(new int[]{'a', 'b', 'c', 'd'}), new Int2ObjectOpenHashMap<>(),
+                frequencies, componentToCompounds, new Int2ObjectOpenHashMap<>(), new SentenceStore(), new InvertedIndex());
+
+        assertEquals(IntArrayList.wrap(new int[]{2, 3, 1}), data.getCompoundsContaining(0));
+        assertEquals(IntArrayList.wrap(new int[]{1, 2, 3}), compounds, "The caller's list is left as given");
+    }
+
     @Test
     void testGetStaticData() {
         StaticData staticData = graphManager.getStaticData();
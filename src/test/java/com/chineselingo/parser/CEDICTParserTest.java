@@ -1,11 +1,17 @@
 package com.chineselingo.parser;
 
 import com.chineselingo.data.CharIdMapper;
+import com.chineselingo.word.WordDictionary;
+import com.chineselingo.word.WordDictionaryBuilder;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -59,4 +65,43 @@ class CEDICTParserTest {
         // The fixture has 5 entries and 2 comment lines
         assertEquals(5, definitions.size(), "Should have parsed 5 character definitions");
     }
+
+    @Test
+    void testCrlfBomAndThroughput(@TempDir Path tempDir) throws IOException {
+        Path cedictPath = tempDir.resolve("cedict.txt");
+        String content = "\uFEFF# comment\r\n林 林 [lin2] /forest/grove/\r\n學 学 [xue2] /to learn/\r\n";
+        Files.write(cedictPath, content.getBytes(StandardCharsets.UTF_8));
+
+        CharIdMapper mapper = new CharIdMapper();
+        Int2ObjectOpenHashMap<String> definitions = new Int2ObjectOpenHashMap<>();
+
+        CEDICTParser parser = new CEDICTParser();
+        parser.parse(cedictPath, mapper, definitions);
+
+        assertEquals("/forest/grove/", definitions.get(mapper.getId("林")), "CR should not be part of the definition");
+        assertEquals("/to learn/", definitions.get(mapper.getId("学")));
+        assertEquals("/to learn/", definitions.get(mapper.getId("學")));
+        assertEquals(Files.size(cedictPath), parser.getThroughput().getBytes());
+        assertTrue(parser.getThroughput().getMegabytesPerSecond() > 0);
+    }
+
+    @Test
+    void testCollectWords() throws IOException, URISyntaxException {
+        Path cedictPath = Paths.get(getClass().getResource("/fixtures/cedict_ts.u8").toURI());
+
+        CharIdMapper mapper = new CharIdMapper();
+        Int2ObjectOpenHashMap<String> definitions = new Int2ObjectOpenHashMap<>();
+        WordDictionaryBuilder words = new WordDictionaryBuilder();
+
+        new CEDICTParser().parse(cedictPath, mapper, definitions, words);
+
+        assertEquals(5, definitions.size(), "Words should not become character definitions");
+        assertEquals(2, words.size(), "Should have collected 2 words");
+
+        WordDictionary dictionary = words.build(mapper, new Object2IntOpenHashMap<>());
+        int forest = dictionary.find(mapper.getId("森"), mapper.getId("林"));
+        assertTrue(forest >= 0, "森林 should be a word");
+        assertEquals("sen1 lin2", dictionary.getPinyin(forest));
+        assertEquals("/forest/CL:片[pian4]/", dictionary.getDefinition(forest));
+    }
 }
@@ -4,9 +4,11 @@ import com.chineselingo.data.CharIdMapper;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -69,4 +71,25 @@ class IDSParserTest {
         // All 4 entries produce compound-to-component mappings (including 一 -> 一)
         assertEquals(4, compoundToComponents.size(), "Should have parsed 4 compound decompositions");
     }
+
+    @Test
+    void testSupplementaryComponents(@TempDir Path tempDir) throws IOException {
+        Path idsPath = tempDir.resolve("ids.txt");
+        // 𠂉 (U+20089) is a supplementary-plane component
+        Files.writeString(idsPath, "U+5931 失 ⿻\uD840\uDC89夫\n");
+
+        CharIdMapper mapper = new CharIdMapper();
+        Int2ObjectOpenHashMap<IntArrayList> componentToCompounds = new Int2ObjectOpenHashMap<>();
+        Int2ObjectOpenHashMap<IntArrayList> compoundToComponents = new Int2ObjectOpenHashMap<>();
+
+        IDSParser parser = new IDSParser();
+        parser.parse(idsPath, mapper, componentToCompounds, compoundToComponents);
+
+        int compoundId = mapper.getId("失");
+        IntArrayList components = compoundToComponents.get(compoundId);
+        assertNotNull(components);
+        assertEquals(2, components.size());
+        assertEquals(mapper.getId("\uD840\uDC89"), components.getInt(0));
+        assertEquals(mapper.getId("夫"), components.getInt(1));
+    }
 }
@@ -2,10 +2,13 @@ package com.chineselingo.parser;
 
 import com.chineselingo.data.CharIdMapper;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -50,7 +53,7 @@ class SUBTLEXParserTest {
         SUBTLEXParser parser = new SUBTLEXParser();
         parser.parse(subtlexPath, mapper, frequencies);
         
-        // The fixture has 6 data rows + 1 header
+        // The fixture has 6 character rows, 1 word row + 1 header
         // Should have parsed 6 characters (header skipped)
         assertEquals(6, frequencies.size(), "Should have parsed 6 character frequencies");
         
@@ -58,4 +61,52 @@ class SUBTLEXParserTest {
         assertFalse(mapper.getReadOnlyCharToIdMap().containsKey("Character"), 
                    "Should not have parsed header as a character");
     }
+
+    @Test
+    void testCommaAndWhitespaceSeparators(@TempDir Path tempDir) throws IOException {
+        Path subtlexPath = tempDir.resolve("frequency.txt");
+        Files.writeString(subtlexPath, "的,1234\n一  987\n是\tabc\n人\n");
+
+        CharIdMapper mapper = new CharIdMapper();
+        Int2IntOpenHashMap frequencies = new Int2IntOpenHashMap();
+
+        SUBTLEXParser parser = new SUBTLEXParser();
+        parser.parse(subtlexPath, mapper, frequencies);
+
+        assertEquals(2, frequencies.size(), "Invalid and single-column lines should be skipped");
+        assertEquals(1234, frequencies.get(mapper.getId("的")));
+        assertEquals(987, frequencies.get(mapper.getId("一")));
+        assertTrue(parser.getThroughput().getBytes() > 0);
+    }
+
+    @Test
+    void testWordFrequencies() throws IOException, URISyntaxException {
+        Path subtlexPath = Paths.get(getClass().getResource("/fixtures/subtlex.txt").toURI());
+
+        CharIdMapper mapper = new CharIdMapper();
+        Int2IntOpenHashMap frequencies = new Int2IntOpenHashMap();
+        Object2IntOpenHashMap<String> wordFrequencies = new Object2IntOpenHashMap<>();
+
+        new SUBTLEXParser().parse(subtlexPath, mapper, frequencies, wordFrequencies);
+
+        assertEquals(6, frequencies.size());
+        assertEquals(1, wordFrequencies.size(), "Only the word row should be kept as a word");
+        assertEquals(20000, wordFrequencies.getInt("森林"));
+        assertFalse(mapper.getReadOnlyCharToIdMap().containsKey("森林"), "Words should not get character IDs");
+    }
+
+    @Test
+    void testSupplementaryCharacters(@TempDir Path tempDir) throws IOException {
+        Path subtlexPath = tempDir.resolve("frequency.txt");
+        // U+20089 is in CJK Extension B and takes a surrogate pair in UTF-16
+        Files.writeString(subtlexPath, "\uD840\uDC89\t42\n的\t7\n");
+
+        CharIdMapper mapper = new CharIdMapper();
+        Int2IntOpenHashMap frequencies = new Int2IntOpenHashMap();
+
+        new SUBTLEXParser().parse(subtlexPath, mapper, frequencies);
+
+        assertEquals(2, frequencies.size(), "Supplementary characters should be accepted");
+        assertEquals(42, frequencies.get(mapper.findId(0x20089)));
+    }
 }
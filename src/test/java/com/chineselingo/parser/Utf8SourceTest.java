@@ -0,0 +1,127 @@
+package com.chineselingo.parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Utf8SourceTest {
+
+    private static final String CONTENT = "林 [lin2]\n木 [mu4]\n" + "森".repeat(40) + "\n的 [de5]\n一";
+
+    @Test
+    void testPlainFileIsOneBlock(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("plain.txt");
+        Files.writeString(file, CONTENT);
+
+        try (Utf8Source source = Utf8Source.open(file)) {
+            assertEquals(List.of("林 [lin2]", "木 [mu4]", "森".repeat(40), "的 [de5]", "一"), readLines(source));
+            assertEquals(CONTENT.getBytes(StandardCharsets.UTF_8).length, source.getBytesRead());
+        }
+    }
+
+    @Test
+    void testGzipBlocksAreLineAligned(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("data.txt.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(CONTENT.getBytes(StandardCharsets.UTF_8));
+        }
+
+        // Blocks smaller than the long line force both splitting and growing
+        try (Utf8Source source = Utf8Source.open(file, 16)) {
+            assertEquals(List.of("林 [lin2]", "木 [mu4]", "森".repeat(40), "的 [de5]", "一"), readLines(source));
+            assertEquals(CONTENT.getBytes(StandardCharsets.UTF_8).length, source.getBytesRead());
+        }
+    }
+
+    @Test
+    void testTailAfterGrownBlockIsLongerThanBlockSize(@TempDir Path tempDir) throws IOException {
+        // The first line grows the block to 128 bytes; 27 bytes of the next line follow its break
+        Path file = tempDir.resolve("long.txt.gz");
+        String content = "x".repeat(100) + "\n" + "y".repeat(40) + "\n" + "z\n";
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (Utf8Source source = Utf8Source.open(file, 16)) {
+            assertEquals(List.of("x".repeat(100), "y".repeat(40), "z"), readLines(source));
+            assertEquals(content.length(), source.getBytesRead());
+        }
+    }
+
+    @Test
+    void testZipReadsFirstEntry(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("data.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file))) {
+            out.putNextEntry(new ZipEntry("dir/"));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("dir/data.txt"));
+            out.write("a\nb\n".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+
+        try (Utf8Source source = Utf8Source.open(file)) {
+            assertEquals(List.of("a", "b"), readLines(source));
+        }
+    }
+
+    @Test
+    void testCorruptGzipFails(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("broken.gz");
+        Files.write(file, new byte[]{0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, 0, 1, 2, 3});
+
+        assertThrows(IOException.class, () -> {
+            try (Utf8Source source = Utf8Source.open(file)) {
+                readLines(source);
+            }
+        });
+    }
+
+    @Test
+    void testUncheckedFailureOnDecompressThreadIsRethrown(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("data.txt.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(CONTENT.getBytes(StandardCharsets.UTF_8));
+        }
+
+        // A negative block size fails on the decompress thread; the reader must not wait forever
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            try (Utf8Source source = Utf8Source.open(file, -1)) {
+                assertThrows(NegativeArraySizeException.class, source::nextBlock);
+                assertNull(source.nextBlock());
+            }
+        });
+    }
+
+    @Test
+    void testUncompressedName() {
+        assertEquals("cedict_ts.u8", Utf8Source.uncompressedName("cedict_ts.u8.gz"));
+        assertEquals("sentences.tsv", Utf8Source.uncompressedName("sentences.tsv.ZIP"));
+        assertEquals("ids.txt", Utf8Source.uncompressedName("ids.txt"));
+    }
+
+    private static List<String> readLines(Utf8Source source) throws IOException {
+        List<String> lines = new ArrayList<>();
+        ByteBuffer block;
+        while ((block = source.nextBlock()) != null) {
+            Utf8LineScanner scanner = new Utf8LineScanner(block);
+            while (scanner.nextLine()) {
+                lines.add(scanner.currentLine());
+            }
+        }
+        return lines;
+    }
+}
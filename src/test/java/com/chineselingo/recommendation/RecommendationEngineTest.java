@@ -140,6 +140,21 @@ class RecommendationEngineTest {
         assertTrue(recommendations.size() > 0, "Should have at least 1 recommendation");
     }
 
+    @Test
+    void testColdStartRecommendsMostFrequentUnknown() {
+        UserState userState = new UserState();
+        IntArrayList recommendations = strictEngine.recommendTopN(userState, 3);
+
+        assertEquals(3, recommendations.size(), "A new user should get n recommendations");
+        for (int rank = 0; rank < 3; rank++) {
+            assertEquals(graphManager.getCharByRank(rank), recommendations.getInt(rank));
+        }
+
+        userState.markKnown(graphManager.getCharByRank(0));
+        assertEquals(graphManager.getCharByRank(1), strictEngine.recommendNext(userState),
+                "Known characters are skipped");
+    }
+
     @Test
     void testRecommendTopNThrowsOnNullUserState() {
         assertThrows(IllegalArgumentException.class, 
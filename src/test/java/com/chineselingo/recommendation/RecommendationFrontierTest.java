@@ -0,0 +1,166 @@
+package com.chineselingo.recommendation;
+
+import com.chineselingo.data.CharIdMapper;
+import com.chineselingo.data.StaticData;
+import com.chineselingo.graph.GraphManager;
+import com.chineselingo.recommendation.RecommendationEngine.RecommendationMode;
+import com.chineselingo.sentence.InvertedIndex;
+import com.chineselingo.sentence.SentenceStore;
+import com.chineselingo.user.UserState;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecommendationFrontierTest {
+
+    private static final int CHARACTERS = 300;
+
+    /**
+     * Random symmetric component graph: every character from 20 on is a compound of up to three
+     * lower characters.
+     */
+    private static GraphManager randomGraph(Random random) {
+        int[] codePoints = new int[CHARACTERS];
+        Int2IntOpenHashMap frequencies = new Int2IntOpenHashMap();
+        Int2ObjectOpenHashMap<IntArrayList> componentToCompounds = new Int2ObjectOpenHashMap<>();
+        Int2ObjectOpenHashMap<IntArrayList> compoundToComponents = new Int2ObjectOpenHashMap<>();
+        for (int charId = 0; charId < CHARACTERS; charId++) {
+            codePoints[charId] = 0x4E00 + charId;
+            frequencies.put(charId, random.nextInt(50));
+            if (charId < 20) {
+                continue;
+            }
+            IntArrayList components = new IntArrayList();
+            for (int i = 1 + random.nextInt(3); i > 0; i--) {
+                int component = random.nextInt(charId);
+                if (!components.contains(component)) {
+                    components.add(component);
+                    componentToCompounds.computeIfAbsent(component, c -> new IntArrayList()).add(charId);
+                }
+            }
+            compoundToComponents.put(charId, components);
+        }
+        return new GraphManager(new StaticData(CharIdMapper.frozen(codePoints), new Int2ObjectOpenHashMap<>(),
+                frequencies, componentToCompounds, compoundToComponents, new SentenceStore(), new InvertedIndex()));
+    }
+
+    /**
+     * The frontier computed from scratch: learnable unknown compounds of all known characters.
+     */
+    private static IntArrayList rebuild(GraphManager graph, RecommendationMode mode, UserState state) {
+        IntArrayList result = new IntArrayList();
+        for (int charId = 0; charId < CHARACTERS; charId++) {
+            IntArrayList components = graph.getComponentsForCompound(charId);
+            if (state.isKnown(charId) || components == null) {
+                continue;
+            }
+            long known = components.intStream().filter(state::isKnown).count();
+            if (mode == RecommendationMode.STRICT ? known == components.size() : known > 0) {
+                result.add(charId);
+            }
+        }
+        result.sort((a, b) -> graph.getFrequency(a) != graph.getFrequency(b)
+                ? Integer.compare(graph.getFrequency(b), graph.getFrequency(a))
+                : Integer.compare(a, b));
+        return result;
+    }
+
+    private static int mostFrequentUnknown(GraphManager graph, UserState state) {
+        return IntStream.range(0, CHARACTERS)
+                .filter(charId -> !state.isKnown(charId))
+                .boxed()
+                .min((a, b) -> graph.getFrequency(a) != graph.getFrequency(b)
+                        ? Integer.compare(graph.getFrequency(b), graph.getFrequency(a))
+                        : Integer.compare(a, b))
+                .orElse(-1);
+    }
+
+    @Test
+    void testIncrementalFrontierMatchesRebuild() {
+        Random random = new Random(13);
+        GraphManager graph = randomGraph(random);
+        for (RecommendationMode mode : RecommendationMode.values()) {
+            UserState state = new UserState();
+            for (int charId = 0; charId < 10; charId++) {
+                state.markKnown(random.nextInt(CHARACTERS));
+            }
+            RecommendationFrontier frontier = RecommendationFrontier.attach(graph, mode, state);
+            assertEquals(rebuild(graph, mode, state), frontier.top(CHARACTERS), mode + " seed");
+
+            for (int step = 0; step < 150; step++) {
+                int charId = step % 3 == 0 && frontier.size() > 0 ? frontier.first() : random.nextInt(CHARACTERS);
+                state.markKnown(charId);
+                IntArrayList expected = rebuild(graph, mode, state);
+                assertEquals(expected, frontier.top(CHARACTERS), mode + " after " + charId);
+                assertEquals(expected.isEmpty() ? -1 : expected.getInt(0), frontier.first());
+                assertEquals(expected.subList(0, Math.min(3, expected.size())), frontier.top(3));
+            }
+        }
+    }
+
+    @Test
+    void testDetachAndRemap() {
+        GraphManager graph = randomGraph(new Random(17));
+        UserState state = new UserState();
+        RecommendationFrontier frontier = RecommendationFrontier.attach(graph, RecommendationMode.LENIENT, state);
+        assertTrue(frontier.isAttached());
+        assertEquals(0, frontier.size());
+
+        frontier.detach();
+        assertFalse(frontier.isAttached());
+        state.markKnown(0);
+        assertEquals(0, frontier.size(), "A detached frontier no longer follows the state");
+
+        frontier = RecommendationFrontier.attach(graph, RecommendationMode.LENIENT, state);
+        state.remapIds(new int[]{0});
+        assertFalse(frontier.isAttached());
+    }
+
+    @Test
+    void testEngineKeepsOneFrontierPerUser() {
+        GraphManager graph = randomGraph(new Random(23));
+        RecommendationEngine engine = new RecommendationEngine(graph, RecommendationMode.LENIENT);
+        UserState first = new UserState();
+        UserState second = new UserState();
+        first.markKnown(3);
+        second.markKnown(7);
+
+        for (int round = 0; round < 3; round++) {
+            for (UserState state : new UserState[]{first, second}) {
+                IntArrayList expected = rebuild(graph, RecommendationMode.LENIENT, state);
+                assertEquals(expected.subList(0, Math.min(3, expected.size())), engine.recommendTopN(state, 3));
+                state.markKnown(engine.recommendNext(state));
+            }
+        }
+        RecommendationFrontier frontier = RecommendationFrontier.of(graph, RecommendationMode.LENIENT, first);
+        engine.recommendNext(second);
+        assertSame(frontier, RecommendationFrontier.of(graph, RecommendationMode.LENIENT, first),
+                "Another user's request does not replace the frontier");
+        assertNotSame(frontier, RecommendationFrontier.of(graph, RecommendationMode.STRICT, first));
+    }
+
+    @Test
+    void testEngineFollowsMarkedCharacters() {
+        GraphManager graph = randomGraph(new Random(19));
+        RecommendationEngine engine = new RecommendationEngine(graph, RecommendationMode.LENIENT);
+        UserState state = new UserState();
+        for (int step = 0; step < 20; step++) {
+            IntArrayList expected = rebuild(graph, RecommendationMode.LENIENT, state);
+            int next = engine.recommendNext(state);
+            assertEquals(expected.isEmpty() ? mostFrequentUnknown(graph, state) : expected.getInt(0), next);
+            state.markKnown(next);
+        }
+        state.remapIds(IntStream.range(0, CHARACTERS).toArray());
+        state.markKnown(engine.recommendNext(state));
+        IntArrayList expected = rebuild(graph, RecommendationMode.LENIENT, state);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.subList(0, Math.min(2, expected.size())), engine.recommendTopN(state, 2),
+                "Frontier is seeded again after a remap");
+    }
+}
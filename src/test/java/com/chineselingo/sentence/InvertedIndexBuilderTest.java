@@ -0,0 +1,70 @@
+package com.chineselingo.sentence;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedIndexBuilderTest {
+
+    @Test
+    void testBuildMatchesIncrementalIndex() {
+        InvertedIndex incremental = new InvertedIndex();
+        InvertedIndexBuilder builder = new InvertedIndexBuilder();
+        int[][] sentences = {{1, 2, 1}, {3, SentenceParser.UNKNOWN_ID}, {2, 5}, {}};
+        for (int sentenceId = 0; sentenceId < sentences.length; sentenceId++) {
+            for (int charId : sentences[sentenceId]) {
+                if (charId != SentenceParser.UNKNOWN_ID) {
+                    incremental.addEntry(charId, sentenceId);
+                }
+            }
+            builder.addSentence(sentenceId, sentences[sentenceId], 0, sentences[sentenceId].length);
+        }
+        assertEquals(6, builder.size(), "Unknown tokens should be skipped");
+
+        InvertedIndex built = builder.build();
+        assertEquals(0, builder.size(), "Builder should be empty after building");
+        assertEquals(incremental.size(), built.size());
+        for (int charId = 0; charId <= 5; charId++) {
+            assertEquals(incremental.getSentencesForChar(charId), built.getSentencesForChar(charId));
+        }
+        assertThrows(IllegalStateException.class, () -> built.addEntry(1, 9));
+    }
+
+    @Test
+    void testBuildIntoKeepsExistingEntries() {
+        InvertedIndex index = new InvertedIndex();
+        index.addEntry(1, 100);
+        InvertedIndexBuilder builder = new InvertedIndexBuilder();
+        builder.add(1, 5);
+        builder.add(2, 6);
+
+        builder.buildInto(index);
+
+        assertArrayEquals(new int[]{5, 100}, index.getSentencesForChar(1).toArray());
+        assertArrayEquals(new int[]{6}, index.getSentencesForChar(2).toArray());
+        assertThrows(IllegalArgumentException.class, () -> builder.add(-1, 0));
+    }
+
+    @Test
+    void testStatsReportRunContainers() {
+        InvertedIndexBuilder builder = new InvertedIndexBuilder();
+        for (int sentenceId = 0; sentenceId < 10_000; sentenceId++) {
+            builder.add(0, sentenceId);          // one long run
+            if (sentenceId % 7 == 0) {
+                builder.add(1, sentenceId);      // sparse: array container
+            }
+        }
+        for (int sentenceId = 0; sentenceId < 65_536; sentenceId += 2) {
+            builder.add(2, sentenceId);          // dense alternating: bitmap container
+        }
+
+        InvertedIndex.Stats stats = builder.build().getStats();
+        assertEquals(3, stats.getCharacters());
+        assertEquals(10_000 + 1_429 + 32_768, stats.getPostings());
+        assertEquals(1, stats.getRunContainers());
+        assertEquals(1, stats.getArrayContainers());
+        assertEquals(1, stats.getBitmapContainers());
+        assertTrue(stats.getBytes() > 0);
+        assertTrue(stats.toString().contains("1 run"));
+    }
+}
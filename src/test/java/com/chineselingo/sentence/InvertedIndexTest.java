@@ -1,7 +1,13 @@
 package com.chineselingo.sentence;
 
 import org.junit.jupiter.api.Test;
-import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -12,7 +18,7 @@ class InvertedIndexTest {
         InvertedIndex index = new InvertedIndex();
         assertEquals(0, index.size());
         
-        RoaringBitmap result = index.getSentencesForChar(999);
+        ImmutableRoaringBitmap result = index.getSentencesForChar(999);
         assertNotNull(result);
         assertTrue(result.isEmpty());
     }
@@ -25,7 +31,7 @@ class InvertedIndexTest {
         
         assertEquals(1, index.size());
         
-        RoaringBitmap result = index.getSentencesForChar(1);
+        ImmutableRoaringBitmap result = index.getSentencesForChar(1);
         assertEquals(1, result.getCardinality());
         assertTrue(result.contains(10));
     }
@@ -40,7 +46,7 @@ class InvertedIndexTest {
         
         assertEquals(1, index.size(), "Should still be 1 unique character");
         
-        RoaringBitmap result = index.getSentencesForChar(1);
+        ImmutableRoaringBitmap result = index.getSentencesForChar(1);
         assertEquals(3, result.getCardinality());
         assertTrue(result.contains(10));
         assertTrue(result.contains(20));
@@ -59,17 +65,17 @@ class InvertedIndexTest {
         
         assertEquals(3, index.size());
         
-        RoaringBitmap result1 = index.getSentencesForChar(1);
+        ImmutableRoaringBitmap result1 = index.getSentencesForChar(1);
         assertEquals(2, result1.getCardinality());
         assertTrue(result1.contains(10));
         assertTrue(result1.contains(20));
         
-        RoaringBitmap result2 = index.getSentencesForChar(2);
+        ImmutableRoaringBitmap result2 = index.getSentencesForChar(2);
         assertEquals(2, result2.getCardinality());
         assertTrue(result2.contains(10));
         assertTrue(result2.contains(30));
         
-        RoaringBitmap result3 = index.getSentencesForChar(3);
+        ImmutableRoaringBitmap result3 = index.getSentencesForChar(3);
         assertEquals(1, result3.getCardinality());
         assertTrue(result3.contains(40));
     }
@@ -79,8 +85,46 @@ class InvertedIndexTest {
         InvertedIndex index = new InvertedIndex();
         index.addEntry(1, 10);
         
-        RoaringBitmap result = index.getSentencesForChar(999);
+        ImmutableRoaringBitmap result = index.getSentencesForChar(999);
         assertNotNull(result);
         assertTrue(result.isEmpty());
     }
+
+    @Test
+    void testLookupsAreReadOnly() {
+        InvertedIndex index = new InvertedIndex();
+        index.addEntry(1, 10);
+        index.seal();
+
+        ImmutableRoaringBitmap result = index.getSentencesForChar(1);
+        assertFalse(result instanceof MutableRoaringBitmap, "Callers must not get a mutable bitmap");
+        assertFalse(index.getSentencesForChar(999) instanceof MutableRoaringBitmap);
+        assertThrows(IllegalStateException.class, () -> index.addEntry(1, 20));
+        assertEquals(1, index.getSentencesForChar(1).getCardinality());
+    }
+
+    @Test
+    void testWriteAndReadViews() throws IOException {
+        InvertedIndex index = new InvertedIndex();
+        for (int sentenceId = 0; sentenceId < 100_000; sentenceId++) {
+            index.addEntry(sentenceId % 3, sentenceId);
+        }
+        index.addEntry(7, 42);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeInt(12345);
+        index.writeTo(new DataOutputStream(bytes));
+        new DataOutputStream(bytes).writeInt(67890);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.size()).put(bytes.toByteArray()).flip();
+        buffer.getInt();
+
+        InvertedIndex restored = InvertedIndex.readFrom(buffer);
+        assertEquals(67890, buffer.getInt(), "Reading should consume exactly the index");
+        assertEquals(4, restored.size());
+        assertEquals(index.getSentencesForChar(1), restored.getSentencesForChar(1));
+        assertEquals(33_334, restored.getSentencesForChar(0).getCardinality());
+        assertTrue(restored.getSentencesForChar(7).contains(42));
+        assertTrue(restored.getSentencesForChar(5).isEmpty());
+        assertThrows(IllegalStateException.class, () -> restored.addEntry(5, 1));
+    }
 }
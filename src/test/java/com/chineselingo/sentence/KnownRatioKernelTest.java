@@ -0,0 +1,92 @@
+package com.chineselingo.sentence;
+
+import com.chineselingo.user.UserState;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KnownRatioKernelTest {
+
+    /**
+     * The scalar kernel, and the vector kernel when the module is loaded (always under Maven).
+     */
+    private static List<KnownRatioKernel> kernels(UserState state, int targetCharId) {
+        List<KnownRatioKernel> kernels = new ArrayList<>();
+        kernels.add(new KnownRatioKernel(state, targetCharId));
+        if (KnownRatioKernel.isVectorAvailable()) {
+            kernels.add(VectorKnownRatioKernel.create(state, targetCharId));
+        }
+        return kernels;
+    }
+
+    @Test
+    void testCountsKnownTargetAndPunctuation() {
+        UserState state = new UserState();
+        state.markKnown(1);
+        state.markKnown(64);
+        SentenceStore store = new SentenceStore();
+        int sentenceId = store.addSentence("", new int[]{1, SentenceParser.UNKNOWN_ID, 5, 2, 64, 5, 60_000});
+        int empty = store.addSentence("", new int[0]);
+
+        for (KnownRatioKernel kernel : kernels(state, 5)) {
+            long score = kernel.score(store, sentenceId);
+            assertEquals(4, KnownRatioKernel.known(score));
+            assertEquals(6, KnownRatioKernel.total(score));
+            assertEquals(0, kernel.score(store, empty));
+        }
+    }
+
+    @Test
+    void testMatchesBranchingCount() {
+        Random random = new Random(3);
+        UserState state = new UserState();
+        for (int charId = 0; charId < 300; charId++) {
+            if (random.nextBoolean()) {
+                state.markKnown(charId);
+            }
+        }
+        state.markKnown(70_000);
+        int target = 17;
+
+        // Narrow tokens first; the last sentence widens the column
+        SentenceStore store = new SentenceStore();
+        for (int round = 0; round < 2; round++) {
+            for (int s = 0; s < 500; s++) {
+                int[] tokens = new int[random.nextInt(40)];
+                for (int i = 0; i < tokens.length; i++) {
+                    tokens[i] = random.nextInt(10) == 0 ? SentenceParser.UNKNOWN_ID : random.nextInt(400);
+                }
+                store.addSentence("", tokens);
+            }
+            assertEquals(round == 0 ? Character.BYTES : Integer.BYTES, store.tokenWidth());
+            assertAllMatch(store, state, target);
+            store.addSentence("", new int[]{70_000, 40_000, 70_001});
+        }
+        assertEquals(Integer.BYTES, store.tokenWidth());
+        assertAllMatch(store, state, target);
+    }
+
+    private static void assertAllMatch(SentenceStore store, UserState state, int target) {
+        for (KnownRatioKernel kernel : kernels(state, target)) {
+            for (int sentenceId = 0; sentenceId < store.size(); sentenceId++) {
+                int known = 0;
+                int total = 0;
+                for (int charId : store.tokens(sentenceId)) {
+                    if (charId != SentenceParser.UNKNOWN_ID) {
+                        total++;
+                        if (state.isKnown(charId) || charId == target) {
+                            known++;
+                        }
+                    }
+                }
+                long score = kernel.score(store, sentenceId);
+                assertEquals(known, KnownRatioKernel.known(score), kernel.getClass().getSimpleName());
+                assertEquals(total, KnownRatioKernel.total(score), kernel.getClass().getSimpleName());
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.chineselingo.sentence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SentenceDeduplicatorTest {
+
+    private static boolean offer(SentenceDeduplicator deduplicator, SentenceStore store, int... tokens) {
+        boolean kept = deduplicator.accept(store, tokens, 0, tokens.length);
+        if (kept) {
+            store.addSentence("", tokens);
+        }
+        return kept;
+    }
+
+    @Test
+    void testPunctuationDoesNotMatter() {
+        SentenceStore store = new SentenceStore();
+        SentenceDeduplicator deduplicator = new SentenceDeduplicator();
+        assertTrue(offer(deduplicator, store, 1, 2, 3, SentenceParser.UNKNOWN_ID));
+        assertFalse(offer(deduplicator, store, 1, 2, 3, 3), "4/5 shingles shared");
+        assertFalse(offer(deduplicator, store, SentenceParser.UNKNOWN_ID, 1, 2, SentenceParser.UNKNOWN_ID, 3));
+        assertTrue(offer(deduplicator, store, 1, 2, 4));
+        assertTrue(offer(deduplicator, store, SentenceParser.UNKNOWN_ID, SentenceParser.UNKNOWN_ID));
+
+        assertEquals(5, deduplicator.getExamined());
+        assertEquals(2, deduplicator.getRemoved());
+        assertEquals(1, deduplicator.getClusters());
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    void testReorderedSentencesAreKept() {
+        // 我爱你 and 你爱我 have the same characters but teach different things
+        SentenceStore store = new SentenceStore();
+        SentenceDeduplicator deduplicator = new SentenceDeduplicator();
+        assertTrue(offer(deduplicator, store, 1, 2, 3));
+        assertTrue(offer(deduplicator, store, 3, 2, 1));
+        assertTrue(offer(deduplicator, store, 1, 2, 3, 4, 5, 6));
+        assertTrue(offer(deduplicator, store, 1, 2, 4, 3, 5, 6), "4/10 shingles shared after swapping two");
+        assertFalse(offer(deduplicator, store, 3, 2, 1, SentenceParser.UNKNOWN_ID));
+
+        assertEquals(1, deduplicator.getRemoved());
+        assertEquals(4, store.size());
+    }
+
+    @Test
+    void testSimilarityThreshold() {
+        SentenceStore store = new SentenceStore();
+        SentenceDeduplicator strict = new SentenceDeduplicator(1.0);
+        assertTrue(offer(strict, store, 1, 2, 3, 4, 5));
+        assertTrue(offer(strict, store, 1, 2, 3, 4, 5, 6), "5/8 is below 1.0");
+        assertFalse(offer(strict, store, 1, 2, 3, 4, 5, SentenceParser.UNKNOWN_ID));
+
+        store = new SentenceStore();
+        SentenceDeduplicator loose = new SentenceDeduplicator(0.6);
+        assertTrue(offer(loose, store, 1, 2, 3, 4, 5));
+        assertFalse(offer(loose, store, 1, 2, 3, 4, 5, 3), "5/8 reaches 0.6");
+        assertTrue(offer(loose, store, 1, 2, 3, 3, 5), "4/8 is below 0.6");
+
+        assertThrows(IllegalArgumentException.class, () -> new SentenceDeduplicator(0.0));
+        assertThrows(IllegalArgumentException.class, () -> new SentenceDeduplicator(1.5));
+    }
+
+    @Test
+    void testSentenceIntroducingCharacterIsKept() {
+        // 我是一个学生 then 我不是一个学生: 6/9 shingles shared, but 不 is new
+        int wo = 1, shi = 2, yi = 3, ge = 4, xue = 5, sheng = 6, bu = 7;
+        SentenceStore store = new SentenceStore();
+        SentenceDeduplicator deduplicator = new SentenceDeduplicator(0.6);
+        assertTrue(offer(deduplicator, store, wo, shi, yi, ge, xue, sheng));
+        assertTrue(offer(deduplicator, store, wo, bu, shi, yi, ge, xue, sheng));
+        assertFalse(offer(deduplicator, store, wo, shi, yi, ge, xue, sheng, sheng), "6/8 and no new character");
+
+        assertEquals(1, deduplicator.getRemoved());
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void testDistinctSentencesAreKept() {
+        Random random = new Random(5);
+        SentenceStore store = new SentenceStore();
+        SentenceDeduplicator deduplicator = new SentenceDeduplicator();
+        for (int i = 0; i < 1_000; i++) {
+            int[] tokens = new int[8];
+            for (int t = 0; t < tokens.length; t++) {
+                tokens[t] = i * tokens.length + t;
+            }
+            assertTrue(offer(deduplicator, store, tokens));
+        }
+        int[] copy = store.tokens(random.nextInt(store.size()));
+        assertFalse(offer(deduplicator, store, copy));
+        assertEquals("removed 1 of 1001 sentences (0.1%) in 1 clusters", deduplicator.toString());
+    }
+}
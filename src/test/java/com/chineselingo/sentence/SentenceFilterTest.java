@@ -2,10 +2,17 @@ package com.chineselingo.sentence;
 
 import com.chineselingo.user.UserState;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -283,4 +290,317 @@ class SentenceFilterTest {
         assertEquals(id2, results.get(1));
         assertEquals(id3, results.get(2));
     }
+
+    @Test
+    void testFindIPlusKSentencesUsesUnknownCounts() {
+        int longer = store.addSentence("ABCD", new int[]{1, 2, 3, 4});
+        int shorter = store.addSentence("AC。", new int[]{1, 3, SentenceParser.UNKNOWN_ID});
+        int other = store.addSentence("BD", new int[]{2, 4});
+        InvertedIndexBuilder builder = new InvertedIndexBuilder();
+        for (int sentenceId = 0; sentenceId < store.size(); sentenceId++) {
+            builder.addSentence(sentenceId, store.tokens(sentenceId), 0, store.length(sentenceId));
+        }
+        index = builder.build();
+        userState.markKnown(1);
+        userState.markKnown(2);
+        SentenceUnknownCounts counts = SentenceUnknownCounts.attach(store, index, userState);
+
+        SentenceFilter filter = new SentenceFilter(store, index);
+        assertEquals(List.of(shorter), filter.findIPlusKSentences(3, counts, 1));
+        assertEquals(List.of(longer), filter.findIPlusKSentences(3, counts, 2));
+
+        userState.markKnown(4);
+        assertEquals(List.of(shorter, longer), filter.findIPlusKSentences(3, counts, 1),
+                "Shorter sentences rank first");
+        assertEquals(List.of(other), filter.findIPlusKSentences(2, counts, 0));
+    }
+
+    @Test
+    void testPagedResults() {
+        userState.markKnown(1);
+        int[] expected = new int[6];
+        for (int i = 0; i < 6; i++) {
+            // Lengths 7, 6, ..., 2: later sentences are shorter and rank first
+            int[] tokens = new int[7 - i];
+            Arrays.fill(tokens, 1);
+            tokens[0] = 9;
+            int sentenceId = store.addSentence("s" + i, tokens);
+            index.addEntry(9, sentenceId);
+            expected[5 - i] = sentenceId;
+        }
+
+        SentenceFilter filter = new SentenceFilter(store, index, 0.5);
+        assertEquals(IntArrayList.wrap(expected), filter.findIPlusOneSentences(9, userState, 0.5, 0, 100));
+        assertEquals(IntArrayList.wrap(new int[]{expected[2], expected[3]}),
+                filter.findIPlusOneSentences(9, userState, 0.5, 2, 2));
+        assertTrue(filter.findIPlusOneSentences(9, userState, 0.5, 6, 2).isEmpty());
+        assertTrue(filter.findIPlusOneSentences(9, userState, 0.5, 0, 0).isEmpty());
+        assertEquals(filter.findIPlusOneSentences(9, userState), filter.findIPlusOneSentences(9, userState, 0.9, 0, 10));
+    }
+
+    @Test
+    void testBatchLookupMatchesSingleLookups() {
+        Random random = new Random(11);
+        InvertedIndexBuilder builder = new InvertedIndexBuilder();
+        for (int i = 0; i < 500; i++) {
+            int[] tokens = new int[2 + random.nextInt(8)];
+            for (int t = 0; t < tokens.length; t++) {
+                tokens[t] = random.nextInt(10) == 0 ? SentenceParser.UNKNOWN_ID : random.nextInt(12);
+            }
+            int sentenceId = store.addSentence("s" + i, tokens);
+            builder.addSentence(sentenceId, tokens, 0, tokens.length);
+        }
+        index = builder.build();
+        for (int charId = 0; charId < 8; charId++) {
+            userState.markKnown(charId);
+        }
+
+        SentenceFilter filter = new SentenceFilter(store, index);
+        int[] targets = {8, 9, 3, 8, 42};
+        IntList[] batch = filter.findIPlusOneSentences(targets, userState, 0.8, 5);
+        assertEquals(targets.length, batch.length);
+        for (int i = 0; i < targets.length; i++) {
+            assertEquals(filter.findIPlusOneSentences(targets[i], userState, 0.8, 0, 5), batch[i],
+                    "Target " + targets[i]);
+        }
+        assertEquals(5, batch[0].size());
+        assertTrue(batch[4].isEmpty());
+        assertEquals(0, filter.findIPlusOneSentences(targets, userState, 0.8, 0)[0].size());
+    }
+
+    @Test
+    void testBitmapPlanMatchesScan() {
+        Random random = new Random(19);
+        InvertedIndexBuilder builder = new InvertedIndexBuilder();
+        for (int i = 0; i < 500; i++) {
+            int[] tokens = new int[1 + random.nextInt(6)];
+            for (int t = 0; t < tokens.length; t++) {
+                tokens[t] = random.nextInt(10) == 0 ? SentenceParser.UNKNOWN_ID : random.nextInt(12);
+            }
+            int sentenceId = store.addSentence("s" + i, tokens);
+            builder.addSentence(sentenceId, tokens, 0, tokens.length);
+        }
+        index = builder.build();
+        for (int charId = 0; charId < 8; charId++) {
+            userState.markKnown(charId);
+        }
+
+        SentenceFilter filter = new SentenceFilter(store, index);
+        assertEquals(SentenceFilter.Plan.SCAN, filter.plan(8, userState, 0.9));
+        assertEquals(SentenceFilter.Plan.BITMAP, filter.plan(8, userState, 1.0));
+        for (int target = 0; target < 13; target++) {
+            assertEquals(scanStrict(target), filter.findIPlusOneSentences(target, userState, 1.0, 0, Integer.MAX_VALUE),
+                    "Target " + target);
+        }
+
+        // Learning characters updates the built bitmaps in place
+        userState.markKnown(8);
+        assertTrue(UnknownSentences.find(userState, index).isBuilt());
+        assertEquals(scanStrict(9), filter.findIPlusOneSentences(9, userState, 1.0, 0, Integer.MAX_VALUE));
+        userState.markKnown(10);
+        userState.markKnown(11);
+        assertTrue(UnknownSentences.find(userState, index).isBuilt());
+        for (int target = 0; target < 13; target++) {
+            assertEquals(scanStrict(target), filter.findIPlusOneSentences(target, userState, 1.0, 0, Integer.MAX_VALUE),
+                    "Target " + target + " after learning");
+        }
+        IntList expected = scanStrict(8);
+        assertEquals(expected.subList(1, Math.min(4, expected.size())),
+                filter.findIPlusOneSentences(8, userState, 1.0, 1, 3));
+    }
+
+    @Test
+    void testUnknownSentencesAreKeptPerUser() {
+        Random random = new Random(29);
+        InvertedIndexBuilder builder = new InvertedIndexBuilder();
+        for (int i = 0; i < 300; i++) {
+            int[] tokens = new int[1 + random.nextInt(5)];
+            for (int t = 0; t < tokens.length; t++) {
+                tokens[t] = random.nextInt(10);
+            }
+            builder.addSentence(store.addSentence("s" + i, tokens), tokens, 0, tokens.length);
+        }
+        index = builder.build();
+        UserState other = new UserState();
+        for (int charId = 0; charId < 8; charId++) {
+            userState.markKnown(charId);
+            if (charId < 6) {
+                other.markKnown(charId);
+            }
+        }
+
+        SentenceFilter filter = new SentenceFilter(store, index);
+        filter.findIPlusOneSentences(8, userState, 1.0);
+        UnknownSentences bitmaps = UnknownSentences.find(userState, index);
+        assertNotNull(bitmaps);
+        assertTrue(bitmaps.isBuilt());
+
+        // Another user's search neither replaces nor discards the first user's bitmaps
+        filter.findIPlusOneSentences(6, other, 1.0);
+        assertSame(bitmaps, UnknownSentences.find(userState, index));
+        assertTrue(bitmaps.isBuilt());
+        assertNotSame(bitmaps, UnknownSentences.find(other, index));
+        assertEquals(SentenceFilter.Plan.BITMAP, filter.plan(9, userState, 1.0));
+        assertEquals(scanStrict(9), filter.findIPlusOneSentences(9, userState, 1.0, 0, Integer.MAX_VALUE));
+
+        userState.remapIds(IntStream.range(0, 10).toArray());
+        assertNull(UnknownSentences.find(userState, index), "A remap drops the bitmaps");
+    }
+
+    @Test
+    void testThresholdAboveOneIsNeverMet() {
+        int sentenceId = store.addSentence("AB", new int[]{1, 2});
+        InvertedIndexBuilder builder = new InvertedIndexBuilder();
+        builder.addSentence(sentenceId, new int[]{1, 2}, 0, 2);
+        index = builder.build();
+        userState.markKnown(2);
+
+        SentenceFilter filter = new SentenceFilter(store, index);
+        assertEquals(List.of(sentenceId), filter.findIPlusOneSentences(1, userState, 1.0));
+        assertEquals(SentenceFilter.Plan.SCAN, filter.plan(1, userState, 1.5));
+        assertTrue(filter.findIPlusOneSentences(1, userState, 1.5).isEmpty());
+    }
+
+    @Test
+    void testPlanScansRareTargetForNewUser() {
+        int sentenceId = store.addSentence("AB", new int[]{1, 2});
+        InvertedIndexBuilder builder = new InvertedIndexBuilder();
+        builder.addSentence(sentenceId, new int[]{1, 2}, 0, 2);
+        for (int charId = 3; charId < 100; charId++) {
+            builder.add(charId, store.addSentence("C", new int[]{charId}));
+        }
+        index = builder.build();
+
+        SentenceFilter filter = new SentenceFilter(store, index);
+        assertEquals(SentenceFilter.Plan.SCAN, filter.plan(1, userState, 1.0));
+        assertTrue(filter.findIPlusOneSentences(1, userState, 1.0).isEmpty());
+        userState.markKnown(2);
+        assertEquals(List.of(sentenceId), filter.findIPlusOneSentences(1, userState, 1.0));
+    }
+
+    @Test
+    void testParallelScanMatchesSerial() {
+        Random random = new Random(23);
+        InvertedIndexBuilder builder = new InvertedIndexBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            int[] tokens = new int[2 + random.nextInt(6)];
+            for (int t = 0; t < tokens.length; t++) {
+                tokens[t] = random.nextInt(20) == 0 ? SentenceParser.UNKNOWN_ID : random.nextInt(16);
+            }
+            int sentenceId = store.addSentence("", tokens);
+            builder.addSentence(sentenceId, tokens, 0, tokens.length);
+        }
+        index = builder.build();
+        for (int charId = 0; charId < 12; charId++) {
+            userState.markKnown(charId);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SentenceFilter serial = new SentenceFilter(store, index, 0.8);
+            SentenceFilter parallel = new SentenceFilter(store, index, 0.8, pool, 1);
+            for (int target : new int[]{3, 12, 15}) {
+                assertEquals(serial.findIPlusOneSentences(target, userState, 0.8, 0, Integer.MAX_VALUE),
+                        parallel.findIPlusOneSentences(target, userState, 0.8, 0, Integer.MAX_VALUE));
+                assertEquals(serial.findIPlusOneSentences(target, userState, 0.7, 100, 20),
+                        parallel.findIPlusOneSentences(target, userState, 0.7, 100, 20));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testContainerRanges() {
+        MutableRoaringBitmap candidates = MutableRoaringBitmap.bitmapOf(1, 2, 70_000, 140_000, 140_001, 300_000);
+        long[] bounds = SentenceFilter.containerRanges(candidates, 3);
+        assertArrayEquals(new long[]{0, 1L << 16, 3L << 16, 1L << 32}, bounds);
+        assertArrayEquals(new long[]{0, 1L << 32}, SentenceFilter.containerRanges(new MutableRoaringBitmap(), 4));
+    }
+
+    @Test
+    void testLengthOrderedStoreGivesSameRanking() {
+        Random random = new Random(29);
+        for (int i = 0; i < 2_000; i++) {
+            int[] tokens = new int[2 + random.nextInt(12)];
+            for (int t = 0; t < tokens.length; t++) {
+                tokens[t] = random.nextInt(10) == 0 ? SentenceParser.UNKNOWN_ID : random.nextInt(12);
+            }
+            store.addSentence("s" + i, tokens);
+        }
+        SentenceStore ordered = new SentenceStore();
+        ordered.addAllByLength(store);
+        assertTrue(ordered.isLengthOrdered());
+        for (int charId = 0; charId < 9; charId++) {
+            userState.markKnown(charId);
+        }
+
+        SentenceFilter fileOrder = new SentenceFilter(store, indexOf(store));
+        SentenceFilter lengthOrder = new SentenceFilter(ordered, indexOf(ordered));
+        for (int target : new int[]{2, 9, 11}) {
+            for (double threshold : new double[]{0.7, 1.0}) {
+                assertEquals(texts(store, fileOrder.findIPlusOneSentences(target, userState, threshold, 3, 10)),
+                        texts(ordered, lengthOrder.findIPlusOneSentences(target, userState, threshold, 3, 10)));
+            }
+        }
+        int[] targets = {9, 10, 11};
+        IntList[] fileOrderBatch = fileOrder.findIPlusOneSentences(targets, userState, 0.8, 4);
+        IntList[] lengthOrderBatch = lengthOrder.findIPlusOneSentences(targets, userState, 0.8, 4);
+        for (int i = 0; i < targets.length; i++) {
+            assertEquals(texts(store, fileOrderBatch[i]), texts(ordered, lengthOrderBatch[i]));
+        }
+    }
+
+    private static InvertedIndex indexOf(SentenceStore sentences) {
+        InvertedIndexBuilder builder = new InvertedIndexBuilder();
+        for (int sentenceId = 0; sentenceId < sentences.size(); sentenceId++) {
+            int[] tokens = sentences.tokens(sentenceId);
+            builder.addSentence(sentenceId, tokens, 0, tokens.length);
+        }
+        return builder.build();
+    }
+
+    private static List<String> texts(SentenceStore sentences, IntList sentenceIds) {
+        List<String> texts = new ArrayList<>();
+        for (int sentenceId : sentenceIds) {
+            texts.add(sentences.text(sentenceId));
+        }
+        return texts;
+    }
+
+    /**
+     * Strict i+1 search by definition: every character but the target is known.
+     */
+    private IntList scanStrict(int target) {
+        IntArrayList ids = new IntArrayList();
+        IntArrayList lengths = new IntArrayList();
+        for (int sentenceId = 0; sentenceId < store.size(); sentenceId++) {
+            boolean contains = false;
+            boolean qualifies = true;
+            int totalChars = 0;
+            for (int charId : store.tokens(sentenceId)) {
+                if (charId == SentenceParser.UNKNOWN_ID) {
+                    continue;
+                }
+                totalChars++;
+                contains |= charId == target;
+                qualifies &= charId == target || userState.isKnown(charId);
+            }
+            if (contains && qualifies) {
+                ids.add(sentenceId);
+                lengths.add(totalChars);
+            }
+        }
+        Integer[] order = new Integer[ids.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> lengths.getInt(a) != lengths.getInt(b)
+                ? Integer.compare(lengths.getInt(a), lengths.getInt(b)) : Integer.compare(ids.getInt(a), ids.getInt(b)));
+        IntArrayList sorted = new IntArrayList();
+        for (int i : order) {
+            sorted.add(ids.getInt(i));
+        }
+        return sorted;
+    }
 }
@@ -1,14 +1,18 @@
 package com.chineselingo.sentence;
 
 import com.chineselingo.data.CharIdMapper;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -163,6 +167,34 @@ class SentenceParserTest {
         assertEquals(SentenceParser.UNKNOWN_ID, tokens[5]); // ！
     }
 
+    @Test
+    void testFieldSplittingMatchesStringSplit(@TempDir Path tempDir) throws IOException {
+        Path testFile = tempDir.resolve("test.tsv");
+        Files.writeString(testFile, String.join("\n",
+                "1\t cmn \t 你好 \t\t",     // trailing empty fields are ignored
+                "2,cmn,你好,世界",            // comma fallback keeps the rest of the line
+                "3\tcmn\t你好\t世界",       // four tab fields: falls back to commas, invalid
+                "4\tcmnx\t你好",
+                "5\tcmn\t\uD840\uDC89你") + "\n");
+
+        CharIdMapper mapper = new CharIdMapper();
+        int ni = mapper.getId("你");
+        int hao = mapper.getId("好");
+        int extensionB = mapper.getId(0x20089);
+
+        SentenceStore store = new SentenceStore();
+        SentenceParser parser = new SentenceParser();
+        parser.parse(testFile, mapper, store, new InvertedIndex());
+
+        assertEquals(3, store.size());
+        assertEquals("你好", store.text(0));
+        assertArrayEquals(new int[]{ni, hao}, store.tokens(0));
+        assertEquals("你好,世界", store.text(1));
+        assertEquals(5, store.tokens(1).length);
+        assertArrayEquals(new int[]{extensionB, ni}, store.tokens(2), "Supplementary characters are one token");
+        assertEquals(5, parser.getThroughput().getLines());
+    }
+
     @Test
     void testBuildsInvertedIndex(@TempDir Path tempDir) throws IOException {
         Path testFile = tempDir.resolve("test.tsv");
@@ -200,4 +232,116 @@ class SentenceParserTest {
         assertEquals(1, personSentences.getCardinality()); // Only sentence 2
         assertTrue(personSentences.contains(2));
     }
+
+    @Test
+    void testChunkedParallelParseMatchesSerial(@TempDir Path tempDir) throws IOException {
+        StringBuilder content = new StringBuilder();
+        String[] texts = {"你好", "我爱中文", "你是谁", "Hello", "好人", "我是中国人", "他喜欢学习中文"};
+        for (int i = 0; i < 200; i++) {
+            String lang = i % 7 == 3 ? "eng" : "cmn";
+            content.append(i).append('\t').append(lang).append('\t').append(texts[i % texts.length]).append('\n');
+        }
+        Path testFile = tempDir.resolve("test.tsv");
+        Files.writeString(testFile, content.toString());
+
+        CharIdMapper mapper = new CharIdMapper();
+        for (String ch : new String[]{"你", "好", "我", "爱", "中", "文", "是", "谁", "人", "国"}) {
+            mapper.getId(ch);
+        }
+
+        SentenceStore serialStore = new SentenceStore();
+        InvertedIndex serialIndex = new InvertedIndex();
+        new SentenceParser().parse(testFile, mapper, serialStore, serialIndex);
+
+        SentenceStore parallelStore = new SentenceStore();
+        InvertedIndex parallelIndex = new InvertedIndex();
+        SentenceParser parallelParser = new SentenceParser(new ForkJoinPool(4), 64);
+        assertTrue(parallelParser.chunkBounds(ByteBuffer.wrap(Files.readAllBytes(testFile)), 16).length > 2,
+                "Fixture should be split into several chunks");
+        parallelParser.parse(testFile, mapper, parallelStore, parallelIndex);
+
+        assertEquals(serialStore.size(), parallelStore.size());
+        for (int id = 0; id < serialStore.size(); id++) {
+            assertEquals(serialStore.text(id), parallelStore.text(id), "Sentence " + id + " should keep its ID");
+            assertArrayEquals(serialStore.tokens(id), parallelStore.tokens(id));
+        }
+        assertEquals(serialIndex.size(), parallelIndex.size());
+        int youId = mapper.getId("你");
+        assertEquals(serialIndex.getSentencesForChar(youId), parallelIndex.getSentencesForChar(youId));
+    }
+
+    @Test
+    void testChunkBoundsAreLineAligned() {
+        byte[] bytes = "aaaa\nbbbb\ncccc\ndddd\n".getBytes(StandardCharsets.UTF_8);
+        SentenceParser parser = new SentenceParser(ForkJoinPool.commonPool(), 3);
+
+        int[] bounds = parser.chunkBounds(ByteBuffer.wrap(bytes), 8);
+
+        assertEquals(0, bounds[0]);
+        assertEquals(bytes.length, bounds[bounds.length - 1]);
+        for (int i = 1; i < bounds.length - 1; i++) {
+            assertEquals('\n', bytes[bounds[i] - 1], "Chunk " + i + " should start after a newline");
+        }
+    }
+
+    @Test
+    void testDropsNearDuplicates(@TempDir Path tempDir) throws IOException {
+        Path testFile = tempDir.resolve("test.tsv");
+        Files.writeString(testFile,
+            "1\tcmn\t我们都是学生。\n" +
+            "2\tcmn\t我们都是学生！\n" +
+            "3\tcmn\t我们是老师。\n" +
+            "4\tcmn\t我们都是学生们\n" +
+            "5\tcmn\t我们都是好学生\n");
+
+        CharIdMapper mapper = new CharIdMapper();
+        "我们都是学生老师好".codePoints().forEach(mapper::getId);
+        SentenceStore store = new SentenceStore();
+        InvertedIndex index = new InvertedIndex();
+        SentenceDeduplicator deduplicator = new SentenceDeduplicator();
+        new SentenceParser().parse(testFile, mapper, store, index, deduplicator);
+
+        // The last sentence is as similar as the fourth, but introduces 好
+        assertEquals(3, store.size());
+        assertEquals("我们都是学生。", store.text(0));
+        assertEquals("我们是老师。", store.text(1));
+        assertEquals("我们都是好学生", store.text(2));
+        assertEquals(2, deduplicator.getRemoved());
+        assertEquals(1, deduplicator.getClusters());
+        assertEquals(2, index.getSentencesForChar(mapper.getId("生")).getCardinality());
+    }
+
+    @Test
+    void testOrderByLength(@TempDir Path tempDir) throws IOException {
+        Path testFile = tempDir.resolve("test.tsv");
+        Files.writeString(testFile,
+            "7\tcmn\t我是学生。\n" +
+            "8\tcmn\t你好\n" +
+            "x\tcmn\t我是老师\n" +
+            "9\tcmn\t学习\n");
+
+        CharIdMapper mapper = new CharIdMapper();
+        "我是学生你好老师习".codePoints().forEach(mapper::getId);
+        SentenceStore store = new SentenceStore();
+        InvertedIndex index = new InvertedIndex();
+        new SentenceParser(null, true).parse(testFile, mapper, store, index);
+
+        assertTrue(store.isLengthOrdered());
+        assertEquals("你好", store.text(0));
+        assertEquals(8, store.sourceId(0));
+        assertEquals("学习", store.text(1));
+        assertEquals(9, store.sourceId(1));
+        assertEquals("我是学生。", store.text(2));
+        assertEquals(7, store.sourceId(2));
+        assertEquals("我是老师", store.text(3));
+        assertEquals(-1, store.sourceId(3), "Non-numeric IDs are not recorded");
+
+        assertEquals(IntArrayList.wrap(new int[]{1, 2}),
+                IntArrayList.wrap(index.getSentencesForChar(mapper.getId("学")).toArray()));
+
+        SentenceStore fileOrder = new SentenceStore();
+        new SentenceParser().parse(testFile, mapper, fileOrder, new InvertedIndex());
+        assertFalse(fileOrder.isLengthOrdered());
+        assertEquals(7, fileOrder.sourceId(0));
+    }
 }
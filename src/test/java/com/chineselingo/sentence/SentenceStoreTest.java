@@ -3,6 +3,12 @@ package com.chineselingo.sentence;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class SentenceStoreTest {
@@ -57,4 +63,126 @@ class SentenceStoreTest {
         assertNull(store.text(999));
         assertNull(store.tokens(999));
     }
+
+    @Test
+    void testNarrowTokensWidenOnLargeIds() {
+        SentenceStore store = new SentenceStore();
+        store.addSentence("你好！", new int[]{7, 0xFFFE, SentenceParser.UNKNOWN_ID});
+        assertEquals(Character.BYTES, store.tokenWidth(), "16-bit IDs should stay narrow");
+        assertArrayEquals(new int[]{7, 0xFFFE, SentenceParser.UNKNOWN_ID}, store.tokens(0));
+
+        store.addSentence("世界", new int[]{70000, 8});
+        assertEquals(Integer.BYTES, store.tokenWidth());
+        assertArrayEquals(new int[]{7, 0xFFFE, SentenceParser.UNKNOWN_ID}, store.tokens(0),
+                "Widening should keep earlier sentences");
+        assertArrayEquals(new int[]{70000, 8}, store.tokens(1));
+    }
+
+    @Test
+    void testInPlaceAccessors() {
+        SentenceStore store = new SentenceStore();
+        store.addSentence("你好", new int[]{1, 2});
+        store.addSentence("世界！", new int[]{3, 4, SentenceParser.UNKNOWN_ID});
+
+        assertEquals(3, store.length(1));
+        assertEquals(4, store.token(1, 1));
+        assertEquals(SentenceParser.UNKNOWN_ID, store.token(1, 2));
+        assertEquals(0, store.length(2));
+
+        ByteBuffer text = store.textBytes(1);
+        assertTrue(text.isReadOnly());
+        assertEquals("世界！", StandardCharsets.UTF_8.decode(text).toString());
+        assertEquals("你好世界！".getBytes(StandardCharsets.UTF_8).length, store.textByteCount());
+        assertNull(store.textBytes(-1));
+
+        int[] copied = new int[4];
+        assertEquals(3, store.copyTokens(1, copied));
+        assertArrayEquals(new int[]{3, 4, SentenceParser.UNKNOWN_ID, 0}, copied);
+        store.addSentence("大", new int[]{70000});
+        assertEquals(3, store.copyTokens(1, copied));
+        assertArrayEquals(new int[]{3, 4, SentenceParser.UNKNOWN_ID, 0}, copied);
+    }
+
+    @Test
+    void testAddAllByLength() throws IOException {
+        SentenceStore parsed = new SentenceStore();
+        ByteBuffer text = ByteBuffer.wrap("一二三四五六".getBytes(StandardCharsets.UTF_8));
+        parsed.addSentence(text, 0, 9, new int[]{1, 2, 3}, 0, 3, 101);
+        parsed.addSentence(text, 9, 15, new int[]{4, SentenceParser.UNKNOWN_ID}, 0, 2, 102);
+        parsed.addSentence(text, 3, 9, new int[]{2, 3}, 0, 2, 103);
+        assertFalse(parsed.isLengthOrdered());
+        assertEquals(102, parsed.sourceId(1));
+
+        SentenceStore ordered = new SentenceStore();
+        ordered.addAllByLength(parsed);
+        assertTrue(ordered.isLengthOrdered());
+        assertEquals(3, ordered.size());
+        assertEquals("四五", ordered.text(0));
+        assertArrayEquals(new int[]{4, SentenceParser.UNKNOWN_ID}, ordered.tokens(0));
+        assertEquals(102, ordered.sourceId(0));
+        assertEquals("二三", ordered.text(1));
+        assertEquals(103, ordered.sourceId(1));
+        assertEquals("一二三", ordered.text(2));
+        assertEquals(101, ordered.sourceId(2));
+        assertEquals(-1, ordered.sourceId(3));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ordered.writeTo(new DataOutputStream(bytes));
+        SentenceStore restored = SentenceStore.readFrom(ByteBuffer.wrap(bytes.toByteArray()), true);
+        assertTrue(restored.isLengthOrdered());
+        assertEquals(103, restored.sourceId(1));
+        restored.addSentence("五六", new int[]{5, 6});
+        assertFalse(restored.isLengthOrdered(), "A shorter sentence after a longer one breaks the order");
+        assertEquals(-1, restored.sourceId(3));
+    }
+
+    @Test
+    void testWriteAndRead() throws IOException {
+        SentenceStore store = new SentenceStore();
+        for (int i = 0; i < 100; i++) {
+            store.addSentence("句子" + i, new int[]{i, i + 1, SentenceParser.UNKNOWN_ID});
+        }
+        store.trim();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        store.writeTo(new DataOutputStream(bytes));
+        SentenceStore restored = SentenceStore.readFrom(ByteBuffer.wrap(bytes.toByteArray()));
+
+        assertEquals(100, restored.size());
+        assertEquals(Character.BYTES, restored.tokenWidth());
+        assertEquals("句子42", restored.text(42));
+        assertArrayEquals(new int[]{42, 43, SentenceParser.UNKNOWN_ID}, restored.tokens(42));
+
+        restored.addSentence("新", new int[]{100000});
+        assertEquals(100, restored.size() - 1);
+        assertArrayEquals(new int[]{99, 100, SentenceParser.UNKNOWN_ID}, restored.tokens(99));
+        assertArrayEquals(new int[]{100000}, restored.tokens(100));
+    }
+
+    @Test
+    void testOffHeapStore() throws IOException {
+        SentenceStore store = SentenceStore.offHeap();
+        assertTrue(store.isOffHeap());
+        for (int i = 0; i < 50; i++) {
+            store.addSentence("句子" + i, new int[]{i, SentenceParser.UNKNOWN_ID});
+        }
+        store.addSentence("宽", new int[]{100000});
+        assertEquals(Integer.BYTES, store.tokenWidth());
+        assertEquals("句子7", store.text(7));
+        assertArrayEquals(new int[]{7, SentenceParser.UNKNOWN_ID}, store.tokens(7));
+        assertTrue(store.textBytes(7).isDirect(), "Text slices should point into the direct arena");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        store.writeTo(new DataOutputStream(bytes));
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.size()).put(bytes.toByteArray()).flip();
+        SentenceStore view = SentenceStore.readFrom(direct, true);
+        assertFalse(direct.hasRemaining(), "Reading should consume the store");
+        assertEquals(51, view.size());
+        assertArrayEquals(new int[]{100000}, view.tokens(50));
+
+        view.addSentence("新", new int[]{1});
+        view.trim();
+        assertEquals("新", view.text(51));
+        assertEquals("句子49", view.text(49), "Appending should copy the viewed columns");
+    }
 }
@@ -0,0 +1,81 @@
+package com.chineselingo.sentence;
+
+import com.chineselingo.user.UserState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SentenceUnknownCountsTest {
+
+    private static final int UNKNOWN = SentenceParser.UNKNOWN_ID;
+
+    private SentenceStore store;
+    private InvertedIndex index;
+    private UserState state;
+
+    @BeforeEach
+    void setUp() {
+        store = new SentenceStore();
+        InvertedIndexBuilder builder = new InvertedIndexBuilder();
+        int[][] sentences = {
+                {1, 2, 3},          // 0
+                {1, 1, 4, UNKNOWN}, // 1: repeated character counts once
+                {2, 3, 4, 5},       // 2
+                {6}                 // 3
+        };
+        for (int[] tokens : sentences) {
+            int sentenceId = store.addSentence("s", tokens);
+            builder.addSentence(sentenceId, tokens, 0, tokens.length);
+        }
+        index = builder.build();
+        state = new UserState();
+        state.markKnown(1);
+    }
+
+    @Test
+    void testInitialCounts() {
+        SentenceUnknownCounts counts = SentenceUnknownCounts.attach(store, index, state);
+
+        assertEquals(2, counts.getUnknownCount(0));
+        assertEquals(1, counts.getUnknownCount(1));
+        assertEquals(4, counts.getUnknownCount(2));
+        assertEquals(0, counts.countSentences(0));
+        assertEquals(2, counts.countSentences(1));
+        assertEquals(1, counts.countSentences(2));
+        assertArrayEquals(new int[]{1}, counts.findSentences(4, 1).toArray());
+        assertArrayEquals(new int[]{0}, counts.findSentences(3, 2).toArray());
+        assertTrue(counts.findSentences(5, 2).isEmpty(), "Sentence 2 has four unknowns");
+        assertThrows(IllegalArgumentException.class, () -> counts.findSentences(1, 3));
+    }
+
+    @Test
+    void testMarkKnownMovesSentencesBetweenBuckets() {
+        SentenceUnknownCounts counts = SentenceUnknownCounts.attach(store, index, state);
+
+        state.markKnown(2);
+        assertArrayEquals(new int[]{0}, counts.findSentences(3, 1).toArray(), "Sentence 0 becomes i+1");
+        assertTrue(counts.findSentences(3, 2).isEmpty(), "Sentence 2 has three unknowns, beyond the buckets");
+        assertEquals(3, counts.getUnknownCount(2));
+
+        state.markKnown(2);
+        assertEquals(3, counts.getUnknownCount(2), "Marking a known character again changes nothing");
+
+        state.markKnown(4);
+        assertArrayEquals(new int[]{1}, counts.findSentences(1, 0).toArray());
+        assertArrayEquals(new int[]{0}, counts.findSentences(3, 1).toArray());
+        assertArrayEquals(new int[]{2}, counts.findSentences(3, 2).toArray(), "Sentence 2 enters the i+2 bucket");
+
+        counts.detach();
+        state.markKnown(3);
+        assertEquals(1, counts.getUnknownCount(0), "Detached counts no longer follow the state");
+    }
+
+    @Test
+    void testRemapDetachesCounts() {
+        SentenceUnknownCounts counts = SentenceUnknownCounts.attach(store, index, state);
+        state.remapIds(new int[]{0, 1, 2, 3, 4, 5, 6});
+        state.markKnown(2);
+        assertEquals(2, counts.getUnknownCount(0));
+    }
+}
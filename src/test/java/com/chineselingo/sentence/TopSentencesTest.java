@@ -0,0 +1,61 @@
+package com.chineselingo.sentence;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopSentencesTest {
+
+    @Test
+    void testPagesMatchFullSort() {
+        Random random = new Random(7);
+        int[] lengths = new int[5_000];
+        TopSentences all = new TopSentences(0, Integer.MAX_VALUE);
+        for (int sentenceId = 0; sentenceId < lengths.length; sentenceId++) {
+            lengths[sentenceId] = 2 + random.nextInt(24);
+            all.offer(lengths[sentenceId], sentenceId);
+        }
+        IntArrayList ranked = all.toList();
+        assertEquals(lengths.length, ranked.size());
+        for (int i = 1; i < ranked.size(); i++) {
+            int previous = ranked.getInt(i - 1);
+            int current = ranked.getInt(i);
+            assertTrue(lengths[previous] < lengths[current]
+                    || (lengths[previous] == lengths[current] && previous < current));
+        }
+
+        for (int offset : new int[]{0, 10, 4_995}) {
+            TopSentences page = new TopSentences(offset, 10);
+            for (int sentenceId = lengths.length - 1; sentenceId >= 0; sentenceId--) {
+                page.offer(lengths[sentenceId], sentenceId);
+            }
+            assertEquals(ranked.subList(offset, Math.min(offset + 10, ranked.size())), page.toList());
+        }
+    }
+
+    @Test
+    void testEmptyPage() {
+        assertTrue(new TopSentences(5, 0).isEmpty());
+        assertTrue(new TopSentences(3, 4).toList().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> new TopSentences(-1, 1));
+    }
+
+    @Test
+    void testMergeMatchesSingleSelection() {
+        TopSentences single = new TopSentences(3, 5);
+        TopSentences left = new TopSentences(0, 8);
+        TopSentences right = new TopSentences(0, 8);
+        for (int sentenceId = 0; sentenceId < 100; sentenceId++) {
+            int length = (sentenceId * 37) % 11;
+            single.offer(length, sentenceId);
+            (sentenceId < 50 ? left : right).offer(length, sentenceId);
+        }
+        TopSentences merged = new TopSentences(3, 5);
+        merged.merge(left);
+        merged.merge(right);
+        assertEquals(single.toList(), merged.toList());
+    }
+}
@@ -1,5 +1,6 @@
 package com.chineselingo.user;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -45,6 +46,48 @@ class UserStateTest {
         assertFalse(userState.isKnown(50));
     }
 
+    @Test
+    void testKnownListenerSeesNewlyKnownCharactersOnly() {
+        IntArrayList notified = new IntArrayList();
+        UserState.KnownListener listener = notified::add;
+        userState.addKnownListener(listener);
+
+        userState.markKnown(3);
+        userState.markKnown(3);
+        userState.markKnown(7);
+        userState.removeKnownListener(listener);
+        userState.markKnown(9);
+
+        assertEquals(IntArrayList.wrap(new int[]{3, 7}), notified);
+    }
+
+    @Test
+    void testFindKnownListener() {
+        class Counting implements UserState.KnownListener {
+            final int owner;
+            int count;
+
+            Counting(int owner) {
+                this.owner = owner;
+            }
+
+            @Override
+            public void onMarkedKnown(int charId) {
+                count++;
+            }
+        }
+        Counting first = new Counting(1);
+        Counting second = new Counting(2);
+        userState.addKnownListener(charId -> { });
+        userState.addKnownListener(first);
+        userState.addKnownListener(second);
+
+        assertSame(second, userState.findKnownListener(Counting.class, listener -> listener.owner == 2));
+        assertNull(userState.findKnownListener(Counting.class, listener -> listener.owner == 3));
+        userState.remapIds(new int[0]);
+        assertNull(userState.findKnownListener(Counting.class, listener -> true));
+    }
+
     @Test
     void testRecordReview() {
         int charId = 5;
@@ -127,4 +170,22 @@ class UserStateTest {
         assertEquals(0, history.getSuccesses());
         assertEquals(0, history.getLastReviewedEpochSeconds());
     }
+
+    @Test
+    void testRemapIds() {
+        userState.markKnown(0);
+        userState.markKnown(2);
+        userState.recordReview(2, true, 1000L);
+        userState.recordReview(1, false, 2000L);
+
+        // 0 -> 5, 1 removed, 2 -> 0
+        userState.remapIds(new int[]{5, -1, 0});
+
+        assertTrue(userState.isKnown(5));
+        assertTrue(userState.isKnown(0));
+        assertFalse(userState.isKnown(2));
+        assertEquals(1, userState.getReviewHistory(0).getSuccesses());
+        assertNull(userState.getReviewHistory(1), "History of removed characters should be dropped");
+        assertNull(userState.getReviewHistory(2));
+    }
 }
@@ -0,0 +1,122 @@
+package com.chineselingo.word;
+
+import com.chineselingo.data.CharIdMapper;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WordDictionaryTest {
+
+    private CharIdMapper mapper;
+    private WordDictionary dictionary;
+
+    @BeforeEach
+    void setUp() {
+        mapper = new CharIdMapper();
+        for (String character : new String[]{"中", "国", "人", "学", "生", "國", "大"}) {
+            mapper.getId(character);
+        }
+
+        WordDictionaryBuilder builder = new WordDictionaryBuilder();
+        builder.add("中国", "中國", "Zhong1 guo2", "/China/");
+        builder.add("中国人", "中國人", "Zhong1 guo2 ren2", "/Chinese person/");
+        builder.add("学生", "學生", "xue2 sheng5", "/student/");
+        builder.add("人生", "人生", "ren2 sheng1", "/life/");
+        builder.add("大人", "大人", "da4 ren5", "/adult/");
+        builder.add("大人", "大人", "da4 ren2", "/your Excellency/");
+        builder.add("中间", "中間", "zhong1 jian1", "/middle/");
+
+        Object2IntOpenHashMap<String> frequencies = new Object2IntOpenHashMap<>();
+        frequencies.put("中国", 500);
+        frequencies.put("中国人", 100);
+        frequencies.put("人生", 300);
+        frequencies.put("大人", 200);
+        dictionary = builder.build(mapper, frequencies);
+    }
+
+    private int[] ids(String text) {
+        return text.codePoints().map(codePoint -> mapper.getId(Character.toString(codePoint))).toArray();
+    }
+
+    @Test
+    void testFindWords() {
+        assertEquals(5, dictionary.size(), "Unknown characters skip a word, readings merge");
+
+        int china = dictionary.find(ids("中国"));
+        assertTrue(china >= 0);
+        assertEquals("中国", dictionary.getText(china));
+        assertEquals("Zhong1 guo2", dictionary.getPinyin(china));
+        assertEquals("/China/", dictionary.getDefinition(china));
+        assertEquals(500, dictionary.getFrequency(china));
+        assertArrayEquals(ids("中国"), dictionary.getChars(china));
+
+        assertEquals(china, dictionary.find(ids("中國")), "Traditional form finds the same word");
+        assertEquals(-1, dictionary.find(ids("中")), "A prefix is not a word");
+        assertEquals(-1, dictionary.find(ids("国人")));
+        assertEquals(-1, dictionary.find());
+    }
+
+    @Test
+    void testReadingsAreMerged() {
+        int adult = dictionary.find(ids("大人"));
+        assertEquals("da4 ren5 / da4 ren2", dictionary.getPinyin(adult));
+        assertEquals("/adult/ [da4 ren2] /your Excellency/", dictionary.getDefinition(adult));
+    }
+
+    @Test
+    void testLongestMatch() {
+        int[] sentence = ids("中国人学生");
+        assertEquals(3, dictionary.longestMatch(sentence, 0));
+        assertEquals(0, dictionary.longestMatch(sentence, 1));
+        assertEquals(2, dictionary.longestMatch(sentence, 3));
+        assertEquals(0, dictionary.longestMatch(sentence, 4));
+    }
+
+    @Test
+    void testWordsForCharAreRankedByFrequency() {
+        int person = mapper.getId("人");
+        assertEquals(3, dictionary.getWordCount(person));
+
+        int[] words = dictionary.getWordsForChar(person, 10);
+        assertEquals("人生", dictionary.getText(words[0]));
+        assertEquals("大人", dictionary.getText(words[1]));
+        assertEquals("中国人", dictionary.getText(words[2]));
+
+        assertEquals(1, dictionary.getWordsForChar(person, 1).length);
+        assertEquals(0, dictionary.getWordsForChar(mapper.getId("中") + 100, 5).length);
+        assertEquals(2, dictionary.getWordCount(mapper.getId("國")), "Traditional characters have postings");
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            dictionary.writeTo(out);
+        }
+        WordDictionary restored = WordDictionary.readFrom(ByteBuffer.wrap(bytes.toByteArray()));
+
+        assertEquals(dictionary.size(), restored.size());
+        for (int word = 0; word < dictionary.size(); word++) {
+            assertEquals(dictionary.getText(word), restored.getText(word));
+            assertEquals(dictionary.getDefinition(word), restored.getDefinition(word));
+            assertEquals(word, restored.find(dictionary.getChars(word)));
+        }
+        int person = mapper.getId("人");
+        assertArrayEquals(dictionary.getWordsForChar(person, 10), restored.getWordsForChar(person, 10));
+    }
+
+    @Test
+    void testEmptyDictionary() {
+        assertEquals(0, WordDictionary.EMPTY.size());
+        assertEquals(-1, WordDictionary.EMPTY.find(0, 1));
+        assertEquals(0, WordDictionary.EMPTY.longestMatch(new int[]{0}, 0));
+        assertEquals(0, WordDictionary.EMPTY.getWordsForChar(0, 5).length);
+    }
+}